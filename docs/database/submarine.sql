@@ -100,3 +100,37 @@ CREATE TABLE `sys_user` (
   CONSTRAINT `FK_SYS_USER_SEX` FOREIGN KEY (`sex`) REFERENCES `sys_dict_item` (`item_code`),
   CONSTRAINT `FK_SYS_USER_STATUS` FOREIGN KEY (`status`) REFERENCES `sys_dict_item` (`item_code`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- ----------------------------
+-- Table structure for job
+-- ----------------------------
+DROP TABLE IF EXISTS `job`;
+CREATE TABLE `job` (
+  `job_name` varchar(255) NOT NULL COMMENT 'job name',
+  `application_id` varchar(64) default NULL COMMENT 'application id',
+  `input_path` varchar(1024) default NULL COMMENT 'input path',
+  `checkpoint_path` varchar(1024) default NULL COMMENT 'checkpoint path',
+  `saved_model_path` varchar(1024) default NULL COMMENT 'saved model path',
+  `info` text NOT NULL COMMENT 'job info as JSON',
+  `create_time` datetime default NULL COMMENT 'create time',
+  `update_time` datetime default NULL COMMENT 'last update time',
+  PRIMARY KEY  (`job_name`),
+  KEY `IDX_JOB_APPLICATION_ID` (`application_id`),
+  KEY `IDX_JOB_INPUT_PATH` (`input_path`(255)),
+  KEY `IDX_JOB_CHECKPOINT_PATH` (`checkpoint_path`(255)),
+  KEY `IDX_JOB_SAVED_MODEL_PATH` (`saved_model_path`(255))
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- ----------------------------
+-- Table structure for model
+-- ----------------------------
+DROP TABLE IF EXISTS `model`;
+CREATE TABLE `model` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT 'id, orders versions of a model',
+  `model_name` varchar(255) NOT NULL COMMENT 'model name',
+  `version` varchar(64) NOT NULL default '' COMMENT 'model version, empty for default',
+  `info` text NOT NULL COMMENT 'model info as JSON',
+  `create_time` datetime default NULL COMMENT 'create time',
+  PRIMARY KEY  (`id`),
+  UNIQUE KEY `UK_MODEL_NAME_VERSION` (`model_name`, `version`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
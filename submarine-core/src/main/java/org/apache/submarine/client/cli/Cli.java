@@ -35,6 +35,7 @@ public class Cli {
     helpMsg.append("    job \n");
     helpMsg.append("       run : run a job, please see 'job run --help' for usage \n");
     helpMsg.append("       show : get status of job, please see 'job show --help' for usage \n");
+    helpMsg.append("       gc : delete staging areas of finished jobs, see 'job gc --help' for usage \n");
 
     System.out.println(helpMsg.toString());
   }
@@ -92,6 +93,8 @@ public class Cli {
         new RunJobCli(clientContext).run(moduleArgs);
       } else if (subCmd.equals(CliConstants.SHOW)) {
         new ShowJobCli(clientContext).run(moduleArgs);
+      } else if (subCmd.equals(CliConstants.GC)) {
+        new GcJobCli(clientContext).run(moduleArgs);
       } else {
         printHelp();
         throw new IllegalArgumentException("Unknown option for job");
@@ -22,6 +22,7 @@ public class CliConstants {
   public static final String SERVE = "serve";
   public static final String LIST = "list";
   public static final String SHOW = "show";
+  public static final String GC = "gc";
   public static final String NAME = "name";
   public static final String INPUT_PATH = "input_path";
   public static final String CHECKPOINT_PATH = "checkpoint_path";
@@ -61,4 +62,10 @@ public class CliConstants {
   public static final String INSECURE_CLUSTER = "insecure";
 
   public static final String FRAMEWORK = "framework";
+
+  public static final String RETENTION_MS = "retention_ms";
+  public static final String CONCURRENCY = "concurrency";
+  public static final String MAX_DELETES_PER_SECOND = "max_deletes_per_second";
+  public static final String INCLUDE_UNKNOWN = "include_unknown";
+  public static final String DRY_RUN = "dry_run";
 }
@@ -20,5 +20,5 @@ package org.apache.submarine.client.cli;
  * Represents a Submarine command.
  */
 public enum Command {
-  RUN_JOB, SHOW_JOB
+  RUN_JOB, SHOW_JOB, GC_JOB
 }
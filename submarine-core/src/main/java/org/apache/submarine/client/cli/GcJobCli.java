@@ -0,0 +1,138 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.client.cli;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.submarine.client.cli.param.GcJobParameters;
+import org.apache.submarine.client.cli.param.ParametersHolder;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.exception.SubmarineException;
+import org.apache.submarine.runtimes.common.StagingAreaGarbageCollector;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Deletes staging areas of finished jobs.
+ */
+public class GcJobCli extends AbstractCli {
+  private Options options;
+  private ParametersHolder parametersHolder;
+
+  public GcJobCli(ClientContext cliContext) {
+    super(cliContext);
+    options = generateOptions();
+  }
+
+  public void printUsages() {
+    new HelpFormatter().printHelp("job gc", options);
+  }
+
+  private Options generateOptions() {
+    Options options = new Options();
+    options.addOption(CliConstants.NAME, true,
+        "Name of the job, all jobs are checked when it is not specified");
+    options.addOption(CliConstants.RETENTION_MS, true,
+        "Only collect jobs whose staging area wasn't modified for this many "
+            + "milliseconds");
+    options.addOption(CliConstants.CONCURRENCY, true,
+        "Number of jobs processed in parallel");
+    options.addOption(CliConstants.MAX_DELETES_PER_SECOND, true,
+        "Maximum number of delete calls per second, 0 for no limit");
+    options.addOption(CliConstants.INCLUDE_UNKNOWN, false,
+        "Also collect jobs whose status can't be retrieved anymore");
+    options.addOption(CliConstants.DRY_RUN, false,
+        "Only print what would be deleted");
+    options.addOption(CliConstants.VERBOSE, false,
+        "Print verbose log for troubleshooting");
+    options.addOption("h", "help", false, "Print help");
+    return options;
+  }
+
+  private void parseCommandLineAndGetGcJobParameters(String[] args)
+      throws IOException, YarnException, ParseException {
+    GnuParser parser = new GnuParser();
+    CommandLine cli = parser.parse(options, args);
+    parametersHolder = ParametersHolder.createWithCmdLine(cli,
+        Command.GC_JOB);
+    parametersHolder.updateParameters(clientContext);
+  }
+
+  @VisibleForTesting
+  public GcJobParameters getParameters() {
+    return (GcJobParameters) parametersHolder.getParameters();
+  }
+
+  @VisibleForTesting
+  protected StagingAreaGarbageCollector createGarbageCollector() {
+    GcJobParameters parameters = getParameters();
+    StagingAreaGarbageCollector gc =
+        new StagingAreaGarbageCollector(clientContext)
+            .setDryRun(parameters.isDryRun());
+    if (parameters.isIncludeUnknown()) {
+      gc.setCollectUnknown(true);
+    }
+    if (parameters.getRetentionMs() != null) {
+      gc.setRetentionMs(parameters.getRetentionMs());
+    }
+    if (parameters.getConcurrency() != null) {
+      gc.setConcurrency(parameters.getConcurrency());
+    }
+    if (parameters.getMaxDeletesPerSecond() != null) {
+      gc.setMaxDeletesPerSecond(parameters.getMaxDeletesPerSecond());
+    }
+    return gc;
+  }
+
+  @Override
+  public int run(String[] args)
+      throws ParseException, IOException, YarnException, InterruptedException,
+      SubmarineException {
+    // No arguments means all jobs, unlike other commands
+    if (args.length > 0 && CliUtils.argsForHelp(args)) {
+      printUsages();
+      return 0;
+    }
+    try {
+      parseCommandLineAndGetGcJobParameters(args);
+    } catch (ParseException e) {
+      printUsages();
+      throw e;
+    }
+
+    StagingAreaGarbageCollector gc = createGarbageCollector();
+    String jobName = getParameters().getName();
+    StagingAreaGarbageCollector.Result result = jobName == null
+        ? gc.collectAll() : gc.collect(Collections.singletonList(jobName));
+
+    String verb = getParameters().isDryRun() ? "Would delete" : "Deleted";
+    System.out.println(verb + " " + result.getDeletedPaths().size()
+        + " path(s) of " + result.getCollectedJobs().size() + " job(s), "
+        + result.getSkippedJobs().size() + " job(s) skipped");
+    for (String job : result.getCollectedJobs()) {
+      System.out.println("\tCollected: " + job);
+    }
+    for (String job : result.getFailedJobs()) {
+      System.out.println("\tFailed: " + job);
+    }
+    return result.getFailedJobs().isEmpty() ? 0 : -1;
+  }
+}
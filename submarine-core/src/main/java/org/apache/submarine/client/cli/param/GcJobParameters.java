@@ -0,0 +1,89 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.client.cli.param;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.submarine.client.cli.CliConstants;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineLogs;
+
+import java.io.IOException;
+
+/**
+ * Parameters of "job gc", the name is optional, all jobs are collected when
+ * it is absent. Options which are not given fall back to configuration.
+ */
+public class GcJobParameters extends BaseParameters {
+  private Long retentionMs;
+  private Integer concurrency;
+  private Double maxDeletesPerSecond;
+  private boolean includeUnknown;
+  private boolean dryRun;
+
+  @Override
+  public void updateParameters(ParametersHolder parametersHolder,
+      ClientContext clientContext)
+      throws ParseException, IOException, YarnException {
+    if (parametersHolder.hasOption(CliConstants.VERBOSE)) {
+      SubmarineLogs.verboseOn();
+    }
+    setName(parametersHolder.getOptionValue(CliConstants.NAME));
+
+    try {
+      String value = parametersHolder.getOptionValue(CliConstants.RETENTION_MS);
+      if (value != null) {
+        retentionMs = Long.parseLong(value);
+      }
+      value = parametersHolder.getOptionValue(CliConstants.CONCURRENCY);
+      if (value != null) {
+        concurrency = Integer.parseInt(value);
+        if (concurrency <= 0) {
+          throw new ParseException("--" + CliConstants.CONCURRENCY
+              + " must be positive");
+        }
+      }
+      value = parametersHolder.getOptionValue(
+          CliConstants.MAX_DELETES_PER_SECOND);
+      if (value != null) {
+        maxDeletesPerSecond = Double.parseDouble(value);
+      }
+    } catch (NumberFormatException e) {
+      throw new ParseException("Failed to parse number: " + e.getMessage());
+    }
+    includeUnknown = parametersHolder.hasOption(CliConstants.INCLUDE_UNKNOWN);
+    dryRun = parametersHolder.hasOption(CliConstants.DRY_RUN);
+  }
+
+  public Long getRetentionMs() {
+    return retentionMs;
+  }
+
+  public Integer getConcurrency() {
+    return concurrency;
+  }
+
+  public Double getMaxDeletesPerSecond() {
+    return maxDeletesPerSecond;
+  }
+
+  public boolean isIncludeUnknown() {
+    return includeUnknown;
+  }
+
+  public boolean isDryRun() {
+    return dryRun;
+  }
+}
@@ -46,6 +46,15 @@ public class Localization {
   // Read write by default
   private String mountPermission = "rw";
 
+  /**
+   * Dedup upload: whether the uploaded resource may be reused by later jobs
+   * of the same user, it must not be changed by them. This only avoids
+   * uploading it again when the shared cache is enabled, it is still
+   * localized with APPLICATION visibility.
+   */
+  private boolean shared = false;
+  private static final String SHARED_SUFFIX = ":shared";
+
   private static final List<String> SUPPORTED_SCHEME = Arrays.asList(
       "hdfs", "oss", "s3a", "s3n", "wasb",
       "wasbs", "abfs", "abfss", "adl", "har",
@@ -53,6 +62,10 @@ public class Localization {
       "webhdfs", "swift");
 
   public void parse(String arg) throws ParseException {
+    if (arg.endsWith(SHARED_SUFFIX)) {
+      shared = true;
+      arg = arg.substring(0, arg.length() - SHARED_SUFFIX.length());
+    }
     String[] tokens = arg.split(":");
     int minimum = "a:b".split(":").length;
     int minimumWithPermission = "a:b:rw".split(":").length;
@@ -66,7 +79,7 @@ public class Localization {
     if (tokens.length < minimumParts
         || tokens.length > maximumParts) {
       throw new ParseException("Invalid parameter,"
-          + "should be \"remoteUri:localPath[:rw|:wr]\" "
+          + "should be \"remoteUri:localPath[:rw|:wr][:public|:shared]\" "
           + "format for --localizations");
     }
 
@@ -127,6 +140,14 @@ public class Localization {
     this.mountPermission = mPermission;
   }
 
+  public boolean isShared() {
+    return shared;
+  }
+
+  public void setShared(boolean shared) {
+    this.shared = shared;
+  }
+
   private boolean isSupportedScheme(String scheme) {
     return SUPPORTED_SCHEME.contains(scheme);
   }
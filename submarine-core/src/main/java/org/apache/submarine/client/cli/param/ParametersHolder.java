@@ -66,7 +66,8 @@ public final class ParametersHolder {
   public static final String SUPPORTED_FRAMEWORKS_MESSAGE =
       "TensorFlow and PyTorch are the only supported frameworks for now!";
   public static final String SUPPORTED_COMMANDS_MESSAGE =
-      "'Show job' and 'run job' are the only supported commands for now!";
+      "'Show job', 'run job' and 'gc job' are the only supported commands "
+          + "for now!";
 
 
 
@@ -104,6 +105,8 @@ public final class ParametersHolder {
       }
     } else if (command == Command.SHOW_JOB) {
       return new ShowJobParameters();
+    } else if (command == Command.GC_JOB) {
+      return new GcJobParameters();
     } else {
       throw new UnsupportedOperationException(SUPPORTED_COMMANDS_MESSAGE);
     }
@@ -38,17 +38,24 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.submarine.client.cli.AbstractCli;
 import org.apache.submarine.client.cli.CliConstants;
 import org.apache.submarine.client.cli.CliUtils;
 import org.apache.submarine.client.cli.Command;
+import org.apache.submarine.client.cli.param.Localization;
 import org.apache.submarine.client.cli.param.ParametersHolder;
 import org.apache.submarine.client.cli.param.runjob.RunJobParameters;
+import org.apache.submarine.client.cli.param.runjob.TensorFlowRunJobParameters;
 import org.apache.submarine.client.cli.param.yaml.YamlConfigFile;
 import org.apache.submarine.client.cli.param.yaml.YamlParseException;
 import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.api.JobStatus;
 import org.apache.submarine.common.exception.SubmarineException;
+import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.apache.submarine.common.resource.ResourceUtils;
+import org.apache.submarine.runtimes.common.JobHistoryRecord;
 import org.apache.submarine.runtimes.common.JobMonitor;
 import org.apache.submarine.runtimes.common.JobSubmitter;
 import org.apache.submarine.runtimes.common.StorageKeyConstants;
@@ -60,7 +67,10 @@ import org.yaml.snakeyaml.constructor.Constructor;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -154,13 +164,19 @@ public class RunJobCli extends AbstractCli {
         + " If it's a relative path, it'll be"
         + " under container's implied working directory"
         + " but sub directory is not supported yet."
+        + " Appending \":shared\" dedups the upload: read-only"
+        + " resources are not uploaded again by later jobs of the user"
+        + " when submarine.localization.shared-cache.enabled is set,"
+        + " otherwise it has no effect. It does not make them PUBLIC,"
+        + " they are still localized for each application."
         + " This option can be set mutiple times."
         + " Examples are \n"
         + "-localization \"hdfs:///user/yarn/mydir2:/opt/data\"\n"
         + "-localization \"s3a:///a/b/myfile1:./\"\n"
         + "-localization \"https:///a/b/myfile2:./myfile\"\n"
         + "-localization \"/user/yarn/mydir3:/opt/mydir3\"\n"
-        + "-localization \"./mydir1:.\"\n");
+        + "-localization \"./mydir1:.\"\n"
+        + "-localization \"./corpus:/opt/corpus:shared\"\n");
     options.addOption(CliConstants.KEYTAB, true, "Specify keytab used by the " +
         "job under security environment");
     options.addOption(CliConstants.PRINCIPAL, true, "Specify principal used " +
@@ -235,6 +251,8 @@ public class RunJobCli extends AbstractCli {
       GnuParser parser = new GnuParser();
       CommandLine cli = parser.parse(options, args);
       parametersHolder = createParametersHolder(cli);
+      // Connections are set up while parameters are validated
+      warmUpFileSystems();
       parametersHolder.updateParameters(clientContext);
     } catch (ParseException e) {
       LOG.error("Exception in parse: {}", e.getMessage());
@@ -243,6 +261,36 @@ public class RunJobCli extends AbstractCli {
     }
   }
 
+  /**
+   * Start opening the file systems of all paths given to the job.
+   * @throws ParseException of an invalid localization, like the validation
+   *         of the parameters would throw.
+   */
+  private void warmUpFileSystems() throws ParseException, YarnException {
+    RemoteDirectoryManager rdm = clientContext.getRemoteDirectoryManager();
+    if (rdm == null) {
+      return;
+    }
+    List<String> uris = new ArrayList<>();
+    for (String option : Arrays.asList(CliConstants.INPUT_PATH,
+        CliConstants.CHECKPOINT_PATH, CliConstants.SAVED_MODEL_PATH)) {
+      String value = parametersHolder.getOptionValue(option);
+      if (value != null) {
+        uris.add(value);
+      }
+    }
+    List<String> localizations =
+        parametersHolder.getOptionValues(CliConstants.LOCALIZATION);
+    if (localizations != null) {
+      for (String value : localizations) {
+        Localization localization = new Localization();
+        localization.parse(value);
+        uris.add(localization.getRemoteUri());
+      }
+    }
+    rdm.warmUpFileSystems(uris);
+  }
+
   private ParametersHolder createParametersHolder(CommandLine cli)
       throws ParseException, YarnException {
     String yamlConfigFile =
@@ -296,7 +344,8 @@ public class RunJobCli extends AbstractCli {
   }
 
   private void storeJobInformation(RunJobParameters parameters,
-      ApplicationId applicationId, String[] args) throws IOException {
+      ApplicationId applicationId, String[] args, long submitTime)
+      throws IOException {
     String jobName = parameters.getName();
     Map<String, String> jobInfo = new HashMap<>();
     jobInfo.put(StorageKeyConstants.JOB_NAME, jobName);
@@ -317,10 +366,48 @@ public class RunJobCli extends AbstractCli {
 
     String joinedArgs = String.join(" ", args);
     jobInfo.put(StorageKeyConstants.JOB_RUN_ARGS, joinedArgs);
+    // The job is added to the history once its final status is seen
+    try {
+      if (clientContext.getRuntimeFactory().getJobHistoryStore() != null) {
+        createJobHistoryRecord(parameters, submitTime).toJobInfo(jobInfo);
+      }
+    } catch (IOException e) {
+      // The job is submitted already, it is just not added to the history
+      LOG.warn("Failed to open the job history, job " + jobName
+          + " won't be added to it", e);
+    }
     clientContext.getRuntimeFactory().getSubmarineStorage().addNewJob(jobName,
         jobInfo);
   }
 
+  private JobHistoryRecord createJobHistoryRecord(RunJobParameters parameters,
+      long submitTime) {
+    JobHistoryRecord record = new JobHistoryRecord()
+        .setJobName(parameters.getName())
+        .setQueue(parameters.getQueue())
+        .setSubmitTime(submitTime);
+    Resource workerResource = parameters.getWorkerResource();
+    if (workerResource != null) {
+      record.setWorkers(parameters.getNumWorkers(),
+          workerResource.getVirtualCores(),
+          ResourceUtils.getMemorySize(workerResource),
+          ResourceUtils.getResourceValue(workerResource,
+              ResourceUtils.GPU_URI));
+    }
+    if (parameters instanceof TensorFlowRunJobParameters) {
+      TensorFlowRunJobParameters tfParameters =
+          (TensorFlowRunJobParameters) parameters;
+      Resource psResource = tfParameters.getPsResource();
+      if (psResource != null) {
+        record.setPs(tfParameters.getNumPS(), psResource.getVirtualCores(),
+            ResourceUtils.getMemorySize(psResource),
+            ResourceUtils.getResourceValue(psResource,
+                ResourceUtils.GPU_URI));
+      }
+    }
+    return record;
+  }
+
   @Override
   public int run(String[] args)
       throws ParseException, IOException, YarnException, SubmarineException {
@@ -330,12 +417,15 @@ public class RunJobCli extends AbstractCli {
     }
 
     parseCommandLineAndGetRunJobParameters(args);
+    long submitTime = System.currentTimeMillis();
     ApplicationId applicationId = jobSubmitter.submitJob(parametersHolder);
     RunJobParameters parameters =
         (RunJobParameters) parametersHolder.getParameters();
-    storeJobInformation(parameters, applicationId, args);
+    storeJobInformation(parameters, applicationId, args, submitTime);
     if (parameters.isWaitJobFinish()) {
-      this.jobMonitor.waitTrainingFinal(parameters.getName());
+      JobStatus finalStatus =
+          this.jobMonitor.waitTrainingFinalStatus(parameters.getName());
+      JobMonitor.checkTrainingSucceeded(finalStatus.getState());
     }
 
     return 0;
@@ -18,10 +18,15 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.exception.SubmarineRuntimeException;
 import org.apache.submarine.common.fs.DefaultRemoteDirectoryManager;
+import org.apache.submarine.common.fs.InstrumentedRemoteDirectoryManager;
 import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.apache.submarine.common.metrics.OperationMetrics;
 import org.apache.submarine.runtimes.RuntimeFactory;
 
+import java.lang.reflect.InvocationTargetException;
+
 public class ClientContext {
   private Configuration yarnConf = new YarnConfiguration();
 
@@ -55,13 +60,64 @@ public class ClientContext {
     if (remoteDirectoryManager == null) {
       synchronized (this) {
         if (remoteDirectoryManager == null) {
-          remoteDirectoryManager = new DefaultRemoteDirectoryManager(this);
+          remoteDirectoryManager = createRemoteDirectoryManager();
         }
       }
     }
     return remoteDirectoryManager;
   }
 
+  private RemoteDirectoryManager createRemoteDirectoryManager() {
+    RemoteDirectoryManager rdm = internalCreateRemoteDirectoryManager();
+    if (submarineConfig != null && submarineConfig.getBoolean(
+        SubmarineConfiguration.REMOTE_DIRECTORY_MANAGER_INSTRUMENTATION_ENABLED,
+        SubmarineConfiguration
+            .DEFAULT_REMOTE_DIRECTORY_MANAGER_INSTRUMENTATION_ENABLED)) {
+      rdm = new InstrumentedRemoteDirectoryManager(rdm,
+          new OperationMetrics("RemoteDirectoryManager").reportOnShutdown());
+    }
+    return rdm;
+  }
+
+  /**
+   * Create the manager configured by
+   * {@link SubmarineConfiguration#REMOTE_DIRECTORY_MANAGER_CLASS}.
+   */
+  private RemoteDirectoryManager internalCreateRemoteDirectoryManager() {
+    if (submarineConfig == null) {
+      return new DefaultRemoteDirectoryManager(this);
+    }
+    String rdmClass = submarineConfig.get(
+        SubmarineConfiguration.REMOTE_DIRECTORY_MANAGER_CLASS,
+        SubmarineConfiguration.DEFAULT_REMOTE_DIRECTORY_MANAGER_CLASS);
+
+    return newInstance(rdmClass, RemoteDirectoryManager.class, this);
+  }
+
+  /**
+   * Create an instance of a configured class through its constructor taking
+   * the client context.
+   * @param className name of the class, a subclass of given type.
+   */
+  public static <T> T newInstance(String className, Class<T> type,
+      ClientContext clientContext) {
+    try {
+      Class<?> clazz = Class.forName(className);
+      if (type.isAssignableFrom(clazz)) {
+        return type.cast(clazz.getConstructor(ClientContext.class)
+            .newInstance(clientContext));
+      } else {
+        throw new SubmarineRuntimeException("Class: " + className
+            + " not instance of " + type.getCanonicalName());
+      }
+    } catch (ClassNotFoundException | IllegalAccessException |
+             InstantiationException | NoSuchMethodException |
+             InvocationTargetException e) {
+      throw new SubmarineRuntimeException("Could not instantiate "
+          + type.getSimpleName() + ": " + className, e);
+    }
+  }
+
   public Configuration getSubmarineConfig() {
     return submarineConfig;
   }
@@ -30,6 +30,8 @@ public class JobStatus {
   protected JobState state;
   protected String tensorboardLink = "N/A";
   protected List<JobComponentStatus> componentStatus;
+  // When the job finished as reported by the scheduler, 0 when unknown
+  protected long finishTime;
 
   public void nicePrint(PrintStream out) {
     out.println(
@@ -84,4 +86,12 @@ public class JobStatus {
   public void setComponentStatus(List<JobComponentStatus> componentStatus) {
     this.componentStatus = componentStatus;
   }
+
+  public long getFinishTime() {
+    return finishTime;
+  }
+
+  public void setFinishTime(long finishTime) {
+    this.finishTime = finishTime;
+  }
 }
@@ -34,6 +34,96 @@ public class SubmarineConfiguration extends Configuration {
   // Default 2GB
   public static final long DEFAULT_MAX_ALLOWED_REMOTE_URI_SIZE_MB = 2048;
 
+  /**
+   * Number of threads copying remote files to local disk.
+   */
+  public static final String LOCALIZATION_COPY_THREADS =
+      SUBMARINE_LOCALIZATION_PREFIX + "copy.threads";
+  public static final int DEFAULT_LOCALIZATION_COPY_THREADS = 8;
+
+  /**
+   * Remote files larger than this are copied by several threads, one range
+   * of this size each.
+   */
+  public static final String LOCALIZATION_COPY_CHUNK_SIZE_MB =
+      SUBMARINE_LOCALIZATION_PREFIX + "copy.chunk-size-mb";
+  public static final long DEFAULT_LOCALIZATION_COPY_CHUNK_SIZE_MB = 64;
+
+  /**
+   * Files at least this large are uploaded to the staging area in chunks,
+   * a failed upload is resumed after the last uploaded chunk. Every upload
+   * is read back and verified against checksums of the chunks.
+   */
+  public static final String LOCALIZATION_RESUMABLE_UPLOAD_THRESHOLD_MB =
+      SUBMARINE_LOCALIZATION_PREFIX + "resumable-upload.threshold-mb";
+  public static final long DEFAULT_LOCALIZATION_RESUMABLE_UPLOAD_THRESHOLD_MB =
+      256;
+
+  /**
+   * Rounded up to a multiple of the block size of the staging area, so
+   * chunks can be cut off right away.
+   */
+  public static final String LOCALIZATION_RESUMABLE_UPLOAD_CHUNK_SIZE_MB =
+      SUBMARINE_LOCALIZATION_PREFIX + "resumable-upload.chunk-size-mb";
+  public static final long
+      DEFAULT_LOCALIZATION_RESUMABLE_UPLOAD_CHUNK_SIZE_MB = 64;
+
+  /**
+   * How many times a failed chunk is uploaded again before giving up.
+   */
+  public static final String LOCALIZATION_RESUMABLE_UPLOAD_RETRIES =
+      SUBMARINE_LOCALIZATION_PREFIX + "resumable-upload.retries";
+  public static final int DEFAULT_LOCALIZATION_RESUMABLE_UPLOAD_RETRIES = 3;
+
+  /**
+   * When enabled, remote files which are not on HDFS are streamed straight
+   * into the staging area instead of being downloaded to local disk and
+   * uploaded again. Directories are zipped straight into the staging area,
+   * remote ones are still downloaded first.
+   */
+  public static final String LOCALIZATION_STREAMING_ENABLED =
+      SUBMARINE_LOCALIZATION_PREFIX + "streaming.enabled";
+  public static final boolean DEFAULT_LOCALIZATION_STREAMING_ENABLED = false;
+
+  public static final String LOCALIZATION_STREAMING_BUFFER_SIZE_KB =
+      SUBMARINE_LOCALIZATION_PREFIX + "streaming.buffer-size-kb";
+  public static final int DEFAULT_LOCALIZATION_STREAMING_BUFFER_SIZE_KB =
+      4096;
+
+  /**
+   * Number of localizations whose remote status is looked up concurrently
+   * before a job is submitted.
+   */
+  public static final String LOCALIZATION_PREFETCH_THREADS =
+      SUBMARINE_LOCALIZATION_PREFIX + "prefetch.threads";
+  public static final int DEFAULT_LOCALIZATION_PREFETCH_THREADS = 16;
+
+  /**
+   * When enabled, files uploaded for jobs are kept in a directory shared by
+   * all jobs, keyed by user and the hash of their content, so identical
+   * files are uploaded once per user. Only localizations marked as shared
+   * and component files are cached, keytabs, launch scripts and Hadoop
+   * configs never are. NodeManagers still localize the files for each
+   * application. Entries are deleted by the garbage collector, see
+   * {@link #GC_SHARED_CACHE_RETENTION_MS}.
+   */
+  public static final String LOCALIZATION_SHARED_CACHE_ENABLED =
+      SUBMARINE_LOCALIZATION_PREFIX + "shared-cache.enabled";
+  public static final boolean DEFAULT_LOCALIZATION_SHARED_CACHE_ENABLED =
+      false;
+
+  public static final String LOCALIZATION_SHARED_CACHE_DIR =
+      SUBMARINE_LOCALIZATION_PREFIX + "shared-cache.dir";
+  public static final String DEFAULT_LOCALIZATION_SHARED_CACHE_DIR =
+      "/submarine/shared-cache";
+
+  /**
+   * Number of files uploaded to the staging area concurrently.
+   */
+  public static final String LOCALIZATION_UPLOAD_THREADS =
+      SUBMARINE_LOCALIZATION_PREFIX + "upload.threads";
+  public static final int DEFAULT_LOCALIZATION_UPLOAD_THREADS = 8;
+
   public SubmarineConfiguration() {
     this(new Configuration(false), true);
   }
@@ -63,4 +153,251 @@ public class SubmarineConfiguration extends Configuration {
   public void setSubmarineRuntimeClass(String runtimeClass) {
     set(RUNTIME_CLASS, runtimeClass);
   }
+
+  /*
+   * Staging areas and models
+   */
+
+  /**
+   * Implementation of RemoteDirectoryManager, it must have a constructor
+   * which takes a ClientContext.
+   */
+  public static final String REMOTE_DIRECTORY_MANAGER_CLASS =
+      PREFIX + "remote-directory-manager.class";
+  public static final String DEFAULT_REMOTE_DIRECTORY_MANAGER_CLASS =
+      "org.apache.submarine.common.fs.DefaultRemoteDirectoryManager";
+
+  /**
+   * Local directory which holds staging areas and models of
+   * LocalRemoteDirectoryManager. On single node clusters it must be
+   * readable by the containers.
+   */
+  public static final String LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT =
+      PREFIX + "remote-directory-manager.local.root";
+  public static final String DEFAULT_LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT =
+      System.getProperty("user.home") + "/.submarine/fs";
+
+  /*
+   * Storage of job / model meta info
+   */
+
+  public static final String STORAGE_PREFIX = PREFIX + "storage.";
+
+  /**
+   * Implementation of SubmarineStorage, it must have a constructor which
+   * takes a ClientContext.
+   */
+  public static final String STORAGE_CLASS = STORAGE_PREFIX + "class";
+  public static final String DEFAULT_STORAGE_CLASS =
+      "org.apache.submarine.runtimes.common.FSBasedSubmarineStorageImpl";
+
+  /**
+   * Local directory of the embedded storage.
+   */
+  public static final String EMBEDDED_STORAGE_DIR =
+      STORAGE_PREFIX + "embedded.dir";
+  public static final String DEFAULT_EMBEDDED_STORAGE_DIR =
+      System.getProperty("user.home") + "/.submarine/storage";
+
+  /**
+   * Whether the embedded storage syncs every write to disk.
+   */
+  public static final String EMBEDDED_STORAGE_SYNC =
+      STORAGE_PREFIX + "embedded.sync";
+  public static final boolean DEFAULT_EMBEDDED_STORAGE_SYNC = true;
+
+  /**
+   * When enabled, new job infos are journaled on local disk and written to
+   * the storage in the background, so job submission doesn't wait for it.
+   */
+  public static final String STORAGE_WRITE_BEHIND_ENABLED =
+      STORAGE_PREFIX + "write-behind.enabled";
+  public static final boolean DEFAULT_STORAGE_WRITE_BEHIND_ENABLED = false;
+
+  public static final String STORAGE_WRITE_BEHIND_JOURNAL_DIR =
+      STORAGE_PREFIX + "write-behind.journal.dir";
+  public static final String DEFAULT_STORAGE_WRITE_BEHIND_JOURNAL_DIR =
+      System.getProperty("user.home") + "/.submarine/journal";
+
+  public static final String STORAGE_WRITE_BEHIND_RETRY_INTERVAL_MS =
+      STORAGE_PREFIX + "write-behind.retry-interval-ms";
+  public static final long DEFAULT_STORAGE_WRITE_BEHIND_RETRY_INTERVAL_MS =
+      5000L;
+
+  /**
+   * How long a client waits on exit for pending job infos to be written,
+   * those not written by then are written by the next client which starts.
+   */
+  public static final String STORAGE_WRITE_BEHIND_CLOSE_TIMEOUT_MS =
+      STORAGE_PREFIX + "write-behind.close-timeout-ms";
+  public static final long DEFAULT_STORAGE_WRITE_BEHIND_CLOSE_TIMEOUT_MS =
+      10000L;
+
+  /**
+   * When enabled, job and model infos read from the storage are cached in
+   * memory of the client.
+   */
+  public static final String STORAGE_CACHE_ENABLED =
+      STORAGE_PREFIX + "cache.enabled";
+  public static final boolean DEFAULT_STORAGE_CACHE_ENABLED = false;
+
+  public static final String STORAGE_CACHE_MAX_ENTRIES =
+      STORAGE_PREFIX + "cache.max-entries";
+  public static final int DEFAULT_STORAGE_CACHE_MAX_ENTRIES = 1000;
+
+  /**
+   * How long a cached info is used before it is read again, so changes of
+   * other clients become visible.
+   */
+  public static final String STORAGE_CACHE_TTL_MS =
+      STORAGE_PREFIX + "cache.ttl-ms";
+  public static final long DEFAULT_STORAGE_CACHE_TTL_MS = 60000L;
+
+  /**
+   * Number of threads used by FS based storage to read or write infos of
+   * many jobs at once.
+   */
+  public static final String STORAGE_FS_BULK_THREADS =
+      STORAGE_PREFIX + "fs.bulk.threads";
+  public static final int DEFAULT_STORAGE_FS_BULK_THREADS = 16;
+
+  /**
+   * When enabled, FS based storage keeps reverse indexes of job infos, see
+   * StorageKeyConstants#INDEXED_KEYS, as empty files
+   * [dir]/[key]/[hash of value]/[job name].
+   */
+  public static final String JOB_INDEX_ENABLED =
+      STORAGE_PREFIX + "fs.job-index.enabled";
+  public static final boolean DEFAULT_JOB_INDEX_ENABLED = false;
+
+  public static final String JOB_INDEX_DIR =
+      STORAGE_PREFIX + "fs.job-index.dir";
+  public static final String DEFAULT_JOB_INDEX_DIR = "submarine/index/jobs";
+
+  /**
+   * When enabled, FS based storage keeps job info in a log-structured
+   * catalog (segment files plus sorted indexes) instead of one file per job.
+   */
+  public static final String JOB_CATALOG_ENABLED =
+      STORAGE_PREFIX + "fs.job-catalog.enabled";
+  public static final boolean DEFAULT_JOB_CATALOG_ENABLED = false;
+
+  public static final String JOB_CATALOG_DIR =
+      STORAGE_PREFIX + "fs.job-catalog.dir";
+  public static final String DEFAULT_JOB_CATALOG_DIR = "submarine/catalog/jobs";
+
+  /**
+   * Segments of the job catalog are merged once there are more than this.
+   */
+  public static final String JOB_CATALOG_MAX_SEGMENTS =
+      STORAGE_PREFIX + "fs.job-catalog.max-segments";
+  public static final int DEFAULT_JOB_CATALOG_MAX_SEGMENTS = 32;
+
+  /*
+   * Garbage collection of job staging areas
+   */
+
+  public static final String GC_PREFIX = PREFIX + "gc.";
+
+  /**
+   * Staging area of a finished job is deleted once nothing in it was
+   * modified for this long. Can be set per job by appending "." and the job
+   * name, a negative value keeps the staging area.
+   */
+  public static final String GC_STAGING_RETENTION_MS =
+      GC_PREFIX + "staging.retention-ms";
+  public static final long DEFAULT_GC_STAGING_RETENTION_MS =
+      7L * 24 * 3600 * 1000;
+
+  /**
+   * Number of jobs processed in parallel.
+   */
+  public static final String GC_CONCURRENCY = GC_PREFIX + "concurrency";
+  public static final int DEFAULT_GC_CONCURRENCY = 8;
+
+  /**
+   * Maximum number of delete calls per second, zero or negative for no
+   * limit.
+   */
+  public static final String GC_MAX_DELETES_PER_SECOND =
+      GC_PREFIX + "max-deletes-per-second";
+  public static final double DEFAULT_GC_MAX_DELETES_PER_SECOND = 50;
+
+  /**
+   * Whether jobs the scheduler doesn't know anymore are treated as finished.
+   */
+  public static final String GC_COLLECT_UNKNOWN =
+      GC_PREFIX + "collect-unknown";
+  public static final boolean DEFAULT_GC_COLLECT_UNKNOWN = false;
+
+  /**
+   * Staging area of a job the scheduler doesn't know anymore is deleted
+   * once nothing in it was modified for this long, a negative value keeps
+   * them.
+   */
+  public static final String GC_UNKNOWN_RETENTION_MS =
+      GC_PREFIX + "unknown.retention-ms";
+  public static final long DEFAULT_GC_UNKNOWN_RETENTION_MS =
+      30L * 24 * 3600 * 1000;
+
+  /**
+   * When all jobs are collected, entries of the shared upload cache of the
+   * user which were not used by a job for this long are deleted too. It
+   * has to be longer than jobs run, since containers started later still
+   * localize files from there. A negative value keeps them, they can be
+   * removed by hand from [shared cache dir]/[user] then.
+   */
+  public static final String GC_SHARED_CACHE_RETENTION_MS =
+      GC_PREFIX + "shared-cache.retention-ms";
+  public static final long DEFAULT_GC_SHARED_CACHE_RETENTION_MS =
+      30L * 24 * 3600 * 1000;
+
+  /*
+   * History of finished jobs
+   */
+
+  public static final String HISTORY_PREFIX = PREFIX + "history.";
+
+  /**
+   * When enabled, a record of every finished job is added to the columnar
+   * job history, once a client waiting for the job or the garbage collector
+   * sees its final status.
+   */
+  public static final String JOB_HISTORY_ENABLED =
+      HISTORY_PREFIX + "enabled";
+  public static final boolean DEFAULT_JOB_HISTORY_ENABLED = false;
+
+  public static final String JOB_HISTORY_DIR = HISTORY_PREFIX + "dir";
+  public static final String DEFAULT_JOB_HISTORY_DIR = "submarine/history/jobs";
+
+  /**
+   * Blocks of the job history are merged once there are more than this.
+   */
+  public static final String JOB_HISTORY_MAX_BLOCKS =
+      HISTORY_PREFIX + "max-blocks";
+  public static final int DEFAULT_JOB_HISTORY_MAX_BLOCKS = 32;
+
+  /*
+   * Instrumentation
+   */
+
+  public static final String INSTRUMENTATION_PREFIX =
+      PREFIX + "instrumentation.";
+
+  /**
+   * When enabled, latency, errors and FileSystem operations of every
+   * SubmarineStorage call are measured and logged when the client exits.
+   */
+  public static final String STORAGE_INSTRUMENTATION_ENABLED =
+      INSTRUMENTATION_PREFIX + "storage.enabled";
+  public static final boolean DEFAULT_STORAGE_INSTRUMENTATION_ENABLED = false;
+
+  /**
+   * Same as {@link #STORAGE_INSTRUMENTATION_ENABLED}, for every
+   * RemoteDirectoryManager call.
+   */
+  public static final String REMOTE_DIRECTORY_MANAGER_INSTRUMENTATION_ENABLED =
+      INSTRUMENTATION_PREFIX + "remote-directory-manager.enabled";
+  public static final boolean
+      DEFAULT_REMOTE_DIRECTORY_MANAGER_INSTRUMENTATION_ENABLED = false;
 }
@@ -14,54 +14,136 @@
 
 package org.apache.submarine.common.fs;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.submarine.client.cli.CliConstants;
 import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.security.PrivilegedExceptionAction;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages remote directories for staging, log, etc.
+ *
+ * Paths are qualified without asking the file system, and directories known
+ * to exist are remembered for the lifetime of this manager, so creating the
+ * same directory again costs nothing and creating a new one costs a single
+ * recursive mkdirs. Directories removed by others meanwhile are not noticed.
  * TODO(keqiu), need to properly handle permission / name validation, etc.
  */
 public class DefaultRemoteDirectoryManager implements RemoteDirectoryManager {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(DefaultRemoteDirectoryManager.class);
+  private static final int WARM_UP_THREADS = 4;
+
   private FileSystem fs;
   private Configuration conf;
+  private final ParallelCopier copier;
+  private final ResumableUploader uploader;
+  private final long resumableUploadThreshold;
+  private volatile Path userRoot;
+  private final Set<Path> knownDirs = ConcurrentHashMap.newKeySet();
+  private final Map<FileSystemKey, FileSystem> fileSystems =
+      new ConcurrentHashMap<>();
+  private final Set<FileSystemKey> warmedUpFileSystems =
+      ConcurrentHashMap.newKeySet();
+  private ExecutorService warmUpExecutor;
 
   public DefaultRemoteDirectoryManager(ClientContext context) {
+    this(context, getDefaultFileSystem(context));
+  }
+
+  /**
+   * @param fs file system of the staging areas and models.
+   */
+  protected DefaultRemoteDirectoryManager(ClientContext context,
+      FileSystem fs) {
     this.conf = context.getYarnConfig();
+    this.fs = fs;
+    Configuration submarineConf = context.getSubmarineConfig();
+    if (submarineConf == null) {
+      submarineConf = new Configuration(false);
+    }
+    this.copier = new ParallelCopier(
+        submarineConf.getInt(
+            SubmarineConfiguration.LOCALIZATION_COPY_THREADS,
+            SubmarineConfiguration.DEFAULT_LOCALIZATION_COPY_THREADS),
+        submarineConf.getLong(
+            SubmarineConfiguration.LOCALIZATION_COPY_CHUNK_SIZE_MB,
+            SubmarineConfiguration.DEFAULT_LOCALIZATION_COPY_CHUNK_SIZE_MB)
+            * 1024 * 1024);
+    this.uploader = new ResumableUploader(
+        submarineConf.getLong(
+            SubmarineConfiguration.LOCALIZATION_RESUMABLE_UPLOAD_CHUNK_SIZE_MB,
+            SubmarineConfiguration
+                .DEFAULT_LOCALIZATION_RESUMABLE_UPLOAD_CHUNK_SIZE_MB)
+            * 1024 * 1024,
+        submarineConf.getInt(
+            SubmarineConfiguration.LOCALIZATION_RESUMABLE_UPLOAD_RETRIES,
+            SubmarineConfiguration
+                .DEFAULT_LOCALIZATION_RESUMABLE_UPLOAD_RETRIES));
+    this.resumableUploadThreshold = submarineConf.getLong(
+        SubmarineConfiguration.LOCALIZATION_RESUMABLE_UPLOAD_THRESHOLD_MB,
+        SubmarineConfiguration
+            .DEFAULT_LOCALIZATION_RESUMABLE_UPLOAD_THRESHOLD_MB) * 1024 * 1024;
+  }
+
+  private static FileSystem getDefaultFileSystem(ClientContext context) {
     try {
-      this.fs = FileSystem.get(context.getYarnConfig());
+      return FileSystem.get(context.getYarnConfig());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * @param create whether to create the directory.
+   * @throws java.io.FileNotFoundException if it doesn't exist and is not
+   *         created.
+   */
   @Override
   public Path getJobStagingArea(String jobName, boolean create)
       throws IOException {
-    Path staging = new Path(getJobRootFolder(jobName), "staging");
+    Path staging = getJobStagingPath(jobName);
     if (create) {
       createFolderIfNotExist(staging);
+    } else if (!knownDirs.contains(staging)) {
+      fs.getFileStatus(staging);
+      knownDirs.add(staging);
     }
+    return staging;
+  }
 
-    // Get a file status to make sure it is a absolute path.
-    FileStatus fStatus = fs.getFileStatus(staging);
-    return fStatus.getPath();
+  private Path getJobStagingPath(String jobName) {
+    return new Path(new Path(getUserRootPath(), jobName), "staging");
   }
 
   @Override
   public Path getJobCheckpointDir(String jobName, boolean create)
       throws IOException {
-    Path jobDir = new Path(getJobStagingArea(jobName, create),
+    Path jobDir = new Path(getJobStagingPath(jobName),
         CliConstants.CHECKPOINT_PATH);
     if (create) {
+      // Creates the staging area as well
       createFolderIfNotExist(jobDir);
     }
     return jobDir;
@@ -70,7 +152,8 @@ public class DefaultRemoteDirectoryManager implements RemoteDirectoryManager {
   @Override
   public Path getModelDir(String modelName, boolean create)
       throws IOException {
-    Path modelDir = new Path(new Path("submarine", "models"), modelName);
+    Path modelDir = fs.makeQualified(
+        new Path(new Path("submarine", "models"), modelName));
     if (create) {
       createFolderIfNotExist(modelDir);
     }
@@ -82,18 +165,119 @@ public class DefaultRemoteDirectoryManager implements RemoteDirectoryManager {
     return fs;
   }
 
+  /**
+   * File systems are kept per scheme, authority and user by this manager,
+   * like the global FileSystem cache does, so repeated calls don't go
+   * through that cache and its lock.
+   */
   @Override
   public FileSystem getFileSystemByUri(String uri) throws IOException {
-    return FileSystem.get(URI.create(uri), conf);
+    URI fsUri = URI.create(uri);
+    if (fsUri.getScheme() == null) {
+      return fs;
+    }
+    FileSystemKey key = new FileSystemKey(fsUri);
+    FileSystem fileSystem = fileSystems.get(key);
+    if (fileSystem == null) {
+      fileSystem = FileSystem.get(fsUri, conf);
+      FileSystem existing = fileSystems.putIfAbsent(key, fileSystem);
+      if (existing != null) {
+        fileSystem = existing;
+      }
+    }
+    return fileSystem;
+  }
+
+  @Override
+  public void warmUpFileSystems(Collection<String> uris) {
+    for (String uri : uris) {
+      URI fsUri;
+      FileSystemKey key;
+      try {
+        fsUri = URI.create(uri);
+        if (fsUri.getScheme() == null) {
+          continue;
+        }
+        key = new FileSystemKey(fsUri);
+      } catch (IllegalArgumentException | IOException e) {
+        // Reported when the file system is used
+        LOG.debug("Not warming up file system of " + uri, e);
+        continue;
+      }
+      if (!warmedUpFileSystems.add(key)) {
+        continue;
+      }
+      final UserGroupInformation ugi = key.ugi;
+      getWarmUpExecutor().execute(() -> {
+        try {
+          // Connects, authenticates and fills client side caches, as the
+          // user asking for it
+          ugi.doAs((PrivilegedExceptionAction<FileStatus>) () ->
+              getFileSystemByUri(uri).getFileStatus(new Path(uri)));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+          LOG.debug("Failed to warm up file system of " + uri, e);
+        }
+      });
+    }
+  }
+
+  /**
+   * Scheme, authority and the current user, file systems are bound to the
+   * user they are created for.
+   */
+  private static final class FileSystemKey {
+    private final String scheme;
+    private final String authority;
+    private final UserGroupInformation ugi;
+
+    FileSystemKey(URI uri) throws IOException {
+      this.scheme = uri.getScheme().toLowerCase();
+      this.authority = uri.getAuthority() == null
+          ? "" : uri.getAuthority().toLowerCase();
+      this.ugi = UserGroupInformation.getCurrentUser();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof FileSystemKey)) {
+        return false;
+      }
+      FileSystemKey other = (FileSystemKey) o;
+      return scheme.equals(other.scheme) && authority.equals(other.authority)
+          && ugi.equals(other.ugi);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(scheme, authority, ugi);
+    }
+  }
+
+  private synchronized ExecutorService getWarmUpExecutor() {
+    if (warmUpExecutor == null) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          WARM_UP_THREADS, WARM_UP_THREADS, 10, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+              .setDaemon(true).setNameFormat("submarine-fs-warm-up-%d")
+              .build());
+      executor.allowCoreThreadTimeOut(true);
+      warmUpExecutor = executor;
+    }
+    return warmUpExecutor;
   }
 
   @Override
   public Path getUserRootFolder() throws IOException {
-    Path rootPath = new Path("submarine", "jobs");
+    Path rootPath = getUserRootPath();
     createFolderIfNotExist(rootPath);
-    // Get a file status to make sure it is a absolute path.
-    FileStatus fStatus = fs.getFileStatus(rootPath);
-    return fStatus.getPath();
+    return rootPath;
+  }
+
+  private Path getUserRootPath() {
+    if (userRoot == null) {
+      userRoot = fs.makeQualified(new Path("submarine", "jobs"));
+    }
+    return userRoot;
   }
 
   @Override
@@ -116,7 +300,7 @@ public class DefaultRemoteDirectoryManager implements RemoteDirectoryManager {
   @Override
   public boolean copyRemoteToLocal(String remoteUri, String localUri)
       throws IOException {
-    // Delete old to avoid failure in FileUtil.copy
+    // Delete old, the copier needs a fresh destination
     File old = new File(localUri);
     if (old.exists()) {
       if (!FileUtil.fullyDelete(old)) {
@@ -124,9 +308,22 @@ public class DefaultRemoteDirectoryManager implements RemoteDirectoryManager {
             + old.getAbsolutePath());
       }
     }
-    return FileUtil.copy(getFileSystemByUri(remoteUri), new Path(remoteUri),
-        new File(localUri), false,
-        conf);
+    copier.copy(getFileSystemByUri(remoteUri), new Path(remoteUri),
+        new File(localUri));
+    return true;
+  }
+
+  /**
+   * Large files are uploaded in chunks, see {@link ResumableUploader}.
+   */
+  @Override
+  public void copyLocalToRemote(File localFile, Path remotePath)
+      throws IOException {
+    if (localFile.length() >= resumableUploadThreshold) {
+      uploader.upload(localFile, fs, remotePath);
+      return;
+    }
+    fs.copyFromLocalFile(new Path(localFile.getAbsolutePath()), remotePath);
   }
 
   @Override
@@ -145,20 +342,25 @@ public class DefaultRemoteDirectoryManager implements RemoteDirectoryManager {
         .getContentSummary(new Path(uri)).getSpaceConsumed();
   }
 
-  private Path getJobRootFolder(String jobName) throws IOException {
-    Path userRoot = getUserRootFolder();
-    Path jobRootPath = new Path(userRoot, jobName);
-    createFolderIfNotExist(jobRootPath);
-    // Get a file status to make sure it is a absolute path.
-    FileStatus fStatus = fs.getFileStatus(jobRootPath);
-    return fStatus.getPath();
+  @Override
+  public long getRemoteFileSize(String uri, long limit) throws IOException {
+    return FileSizeWalker.getSize(getFileSystemByUri(uri), new Path(uri),
+        limit);
   }
 
+  /**
+   * Create the folder and its parents with one mkdirs, unless it is known
+   * to exist. The path must be qualified.
+   */
   private void createFolderIfNotExist(Path path) throws IOException {
-    if (!fs.exists(path)) {
-      if (!fs.mkdirs(path)) {
-        throw new IOException("Failed to create folder=" + path);
-      }
+    if (knownDirs.contains(path)) {
+      return;
+    }
+    if (!fs.mkdirs(path)) {
+      throw new IOException("Failed to create folder=" + path);
+    }
+    for (Path dir = path; dir != null; dir = dir.getParent()) {
+      knownDirs.add(dir);
     }
   }
 }
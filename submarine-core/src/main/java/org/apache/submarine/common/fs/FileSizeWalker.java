@@ -0,0 +1,62 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import java.io.IOException;
+
+/**
+ * Size of a file or directory tree, computed incrementally so it can stop
+ * as soon as a limit is crossed.
+ *
+ * HDFS answers getContentSummary from NameNode memory with one RPC, so it
+ * is used there. Other file systems, object stores in particular, compute
+ * the summary by listing the whole tree, so the listing is streamed with
+ * listFiles instead (a flat paged listing on S3A) and summed as it goes.
+ */
+public final class FileSizeWalker {
+  private FileSizeWalker() {
+  }
+
+  /**
+   * @param limit stop once the size is larger than this.
+   * @return the size in bytes, or a partial sum larger than limit when the
+   *         limit was crossed.
+   */
+  public static long getSize(FileSystem fs, Path path, long limit)
+      throws IOException {
+    if (hasCheapContentSummary(fs)) {
+      return fs.getContentSummary(path).getSpaceConsumed();
+    }
+    long size = 0;
+    RemoteIterator<LocatedFileStatus> files = fs.listFiles(path, true);
+    while (files.hasNext()) {
+      size += files.next().getLen();
+      if (size > limit) {
+        break;
+      }
+    }
+    return size;
+  }
+
+  static boolean hasCheapContentSummary(FileSystem fs) {
+    String scheme = fs.getUri().getScheme();
+    return "hdfs".equals(scheme) || "viewfs".equals(scheme);
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.submarine.common.metrics.OperationMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Measures every call to a {@link RemoteDirectoryManager}.
+ */
+public class InstrumentedRemoteDirectoryManager
+    implements RemoteDirectoryManager {
+  private final RemoteDirectoryManager rdm;
+  private final OperationMetrics metrics;
+
+  public InstrumentedRemoteDirectoryManager(RemoteDirectoryManager rdm,
+      OperationMetrics metrics) {
+    this.rdm = rdm;
+    this.metrics = metrics;
+  }
+
+  public OperationMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public Path getJobStagingArea(String jobName, boolean create)
+      throws IOException {
+    return metrics.measure("getJobStagingArea",
+        () -> rdm.getJobStagingArea(jobName, create));
+  }
+
+  @Override
+  public Path getJobCheckpointDir(String jobName, boolean create)
+      throws IOException {
+    return metrics.measure("getJobCheckpointDir",
+        () -> rdm.getJobCheckpointDir(jobName, create));
+  }
+
+  @Override
+  public Path getModelDir(String modelName, boolean create)
+      throws IOException {
+    return metrics.measure("getModelDir",
+        () -> rdm.getModelDir(modelName, create));
+  }
+
+  @Override
+  public FileSystem getDefaultFileSystem() throws IOException {
+    return metrics.measure("getDefaultFileSystem", rdm::getDefaultFileSystem);
+  }
+
+  @Override
+  public FileSystem getFileSystemByUri(String uri) throws IOException {
+    return metrics.measure("getFileSystemByUri",
+        () -> rdm.getFileSystemByUri(uri));
+  }
+
+  @Override
+  public Path getUserRootFolder() throws IOException {
+    return metrics.measure("getUserRootFolder", rdm::getUserRootFolder);
+  }
+
+  @Override
+  public void warmUpFileSystems(Collection<String> uris) {
+    // Returns right away, nothing worth measuring
+    rdm.warmUpFileSystems(uris);
+  }
+
+  @Override
+  public boolean isDir(String uri) throws IOException {
+    return metrics.measure("isDir", () -> rdm.isDir(uri));
+  }
+
+  @Override
+  public boolean isRemote(String uri) throws IOException {
+    return metrics.measure("isRemote", () -> rdm.isRemote(uri));
+  }
+
+  @Override
+  public boolean copyRemoteToLocal(String remoteUri, String localUri)
+      throws IOException {
+    return metrics.measure("copyRemoteToLocal",
+        () -> rdm.copyRemoteToLocal(remoteUri, localUri));
+  }
+
+  @Override
+  public void copyLocalToRemote(File localFile, Path remotePath)
+      throws IOException {
+    metrics.measure("copyLocalToRemote", () -> {
+      rdm.copyLocalToRemote(localFile, remotePath);
+      return null;
+    });
+  }
+
+  @Override
+  public boolean existsRemoteFile(Path uri) throws IOException {
+    return metrics.measure("existsRemoteFile",
+        () -> rdm.existsRemoteFile(uri));
+  }
+
+  @Override
+  public FileStatus getRemoteFileStatus(Path uri) throws IOException {
+    return metrics.measure("getRemoteFileStatus",
+        () -> rdm.getRemoteFileStatus(uri));
+  }
+
+  @Override
+  public long getRemoteFileSize(String uri) throws IOException {
+    return metrics.measure("getRemoteFileSize",
+        () -> rdm.getRemoteFileSize(uri));
+  }
+
+  @Override
+  public long getRemoteFileSize(String uri, long limit) throws IOException {
+    return metrics.measure("getRemoteFileSizeWithLimit",
+        () -> rdm.getRemoteFileSize(uri, limit));
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disk usage of a local file or directory, like FileUtil#getDU: the sum of
+ * the lengths of all files below, symbolic links are not followed.
+ *
+ * Every directory is listed by its own fork/join task, so large trees of
+ * small files are scanned by several threads. Scanning stops once the sum
+ * is larger than a limit.
+ */
+public final class LocalDiskUsage {
+  private static final int DEFAULT_PARALLELISM =
+      Math.max(4, java.lang.Runtime.getRuntime().availableProcessors());
+
+  private LocalDiskUsage() {
+  }
+
+  public static long getDU(File file, long limit) {
+    return getDU(file, limit, DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * @param limit stop once the size is larger than this.
+   * @return the size in bytes, or a partial sum larger than limit when the
+   *         limit was crossed.
+   */
+  public static long getDU(File file, long limit, int parallelism) {
+    if (!file.exists()) {
+      return 0;
+    }
+    if (!file.isDirectory()) {
+      return file.length();
+    }
+    AtomicLong total = new AtomicLong();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new DirectoryScan(file, limit, total));
+    } finally {
+      pool.shutdown();
+    }
+    return total.get();
+  }
+
+  private static class DirectoryScan extends RecursiveAction {
+    private final File dir;
+    private final long limit;
+    private final AtomicLong total;
+
+    DirectoryScan(File dir, long limit, AtomicLong total) {
+      this.dir = dir;
+      this.limit = limit;
+      this.total = total;
+    }
+
+    @Override
+    protected void compute() {
+      if (total.get() > limit) {
+        return;
+      }
+      File[] children = dir.listFiles();
+      if (children == null) {
+        return;
+      }
+      long size = 0;
+      List<DirectoryScan> subdirs = new ArrayList<>();
+      for (File child : children) {
+        if (Files.isSymbolicLink(child.toPath())) {
+          continue;
+        }
+        if (child.isDirectory()) {
+          subdirs.add(new DirectoryScan(child, limit, total));
+        } else {
+          size += child.length();
+        }
+      }
+      if (total.addAndGet(size) > limit) {
+        return;
+      }
+      invokeAll(subdirs);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Keeps staging areas and models in a directory on local disk, for single
+ * node clusters like mini-submarine and for tests.
+ *
+ * Files copied from the root to local dirs, remote to local, are hardlinked
+ * instead of being copied through Hadoop streams, falling back to a plain
+ * file copy when the link can't be made, e.g. across devices. Files going
+ * to the root, like the ones put into the staging area, are always copied,
+ * since they may be changed there, like keytabs whose permissions are
+ * narrowed.
+ */
+public class LocalRemoteDirectoryManager extends DefaultRemoteDirectoryManager {
+
+  public LocalRemoteDirectoryManager(ClientContext context) {
+    super(context, createFileSystem(context));
+  }
+
+  private static FileSystem createFileSystem(ClientContext context) {
+    Configuration conf = context.getSubmarineConfig();
+    String root = conf == null
+        ? SubmarineConfiguration.DEFAULT_LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT
+        : conf.get(SubmarineConfiguration.LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT,
+            SubmarineConfiguration.DEFAULT_LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT);
+    try {
+      // Raw, so no checksum files are left next to the files copied here
+      RawLocalFileSystem fs = new RawLocalFileSystem();
+      fs.initialize(URI.create("file:///"), context.getYarnConfig());
+      fs.setWorkingDirectory(new Path(new File(root).getAbsolutePath()));
+      return fs;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public boolean copyRemoteToLocal(String remoteUri, String localUri)
+      throws IOException {
+    String scheme = new Path(remoteUri).toUri().getScheme();
+    if (scheme != null && !scheme.equalsIgnoreCase("file")) {
+      return super.copyRemoteToLocal(remoteUri, localUri);
+    }
+    File old = new File(localUri);
+    if (old.exists()) {
+      if (!FileUtil.fullyDelete(old)) {
+        throw new IOException("Failed to delete dir:"
+            + old.getAbsolutePath());
+      }
+    }
+    java.nio.file.Path src = toLocalPath(new Path(remoteUri));
+    java.nio.file.Path dst = Paths.get(localUri);
+    try {
+      Files.walkFileTree(src, new SimpleFileVisitor<java.nio.file.Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(java.nio.file.Path dir,
+            BasicFileAttributes attrs) throws IOException {
+          Files.createDirectories(dst.resolve(src.relativize(dir)));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(java.nio.file.Path file,
+            BasicFileAttributes attrs) throws IOException {
+          link(file, dst.resolve(src.relativize(file)));
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      FileUtil.fullyDelete(dst.toFile());
+      throw e;
+    }
+    return true;
+  }
+
+  @Override
+  public void copyLocalToRemote(File localFile, Path remotePath)
+      throws IOException {
+    java.nio.file.Path dst = toLocalPath(remotePath);
+    Files.createDirectories(dst.getParent());
+    Files.copy(localFile.toPath(), dst, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private java.nio.file.Path toLocalPath(Path path) {
+    return Paths.get(getDefaultFileSystem().makeQualified(path).toUri());
+  }
+
+  private static void link(java.nio.file.Path src, java.nio.file.Path dst)
+      throws IOException {
+    if (Files.isRegularFile(src, LinkOption.NOFOLLOW_LINKS)) {
+      try {
+        Files.createLink(dst, src);
+        return;
+      } catch (IOException | UnsupportedOperationException e) {
+        // e.g. another device, copied below
+      }
+    }
+    Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a remote file or directory to local disk with a pool of threads.
+ *
+ * Small files are copied concurrently, one task per file. Files larger than
+ * the chunk size are split into ranges of that size, each range is read
+ * with its own stream and written at its offset of the local file, so a
+ * single big file is copied by several threads too.
+ */
+public class ParallelCopier {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ParallelCopier.class);
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  private final int threads;
+  private final long chunkSize;
+
+  public ParallelCopier(int threads, long chunkSize) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive, got "
+          + threads);
+    }
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive, got "
+          + chunkSize);
+    }
+    this.threads = threads;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Copy src to dst, which must not exist. A directory is copied with all
+   * its content. On failure, whatever was copied to dst is deleted.
+   */
+  public CopyStats copy(FileSystem srcFs, Path src, File dst)
+      throws IOException {
+    long start = System.nanoTime();
+    CopyStats stats = new CopyStats();
+    ExecutorService pool = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("parallel-copier-%d").build());
+    boolean succeeded = false;
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      submit(srcFs, srcFs.getFileStatus(src), dst, pool, tasks, stats);
+      for (Future<?> task : tasks) {
+        waitFor(task);
+      }
+      succeeded = true;
+    } finally {
+      pool.shutdownNow();
+      if (!succeeded) {
+        FileUtil.fullyDelete(dst);
+      }
+    }
+    stats.elapsedNanos = System.nanoTime() - start;
+    LOG.info("Copied {} to {}: {}", src, dst, stats);
+    return stats;
+  }
+
+  private void submit(FileSystem srcFs, FileStatus status, File dst,
+      ExecutorService pool, List<Future<?>> tasks, CopyStats stats)
+      throws IOException {
+    if (status.isDirectory()) {
+      if (!dst.mkdirs()) {
+        throw new IOException("Failed to create dir:"
+            + dst.getAbsolutePath());
+      }
+      for (FileStatus child : srcFs.listStatus(status.getPath())) {
+        submit(srcFs, child, new File(dst, child.getPath().getName()), pool,
+            tasks, stats);
+      }
+      return;
+    }
+
+    Path path = status.getPath();
+    long length = status.getLen();
+    stats.files.incrementAndGet();
+    // Every task writes at its own offset, so the file is sized upfront
+    try (RandomAccessFile file = new RandomAccessFile(dst, "rw")) {
+      file.setLength(length);
+    }
+    for (long offset = 0; offset < length; offset += chunkSize) {
+      long from = offset;
+      long to = Math.min(length, offset + chunkSize);
+      stats.chunks.incrementAndGet();
+      tasks.add(pool.submit(() -> {
+        copyRange(srcFs, path, dst, from, to);
+        stats.bytes.addAndGet(to - from);
+        return null;
+      }));
+    }
+  }
+
+  private static void copyRange(FileSystem srcFs, Path src, File dst,
+      long from, long to) throws IOException {
+    byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, to - from)];
+    try (FSDataInputStream in = srcFs.open(src);
+         RandomAccessFile out = new RandomAccessFile(dst, "rw")) {
+      if (from > 0) {
+        in.seek(from);
+      }
+      FileChannel channel = out.getChannel();
+      long position = from;
+      while (position < to) {
+        int read = in.read(buffer, 0,
+            (int) Math.min(buffer.length, to - position));
+        if (read < 0) {
+          throw new IOException("Unexpected end of " + src + " at "
+              + position + ", expected " + to + " bytes");
+        }
+        ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+        while (data.hasRemaining()) {
+          position += channel.write(data, position);
+        }
+      }
+    }
+  }
+
+  private static void waitFor(Future<?> task) throws IOException {
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while copying");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Amount of data copied and how long it took.
+   */
+  public static class CopyStats {
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private long elapsedNanos;
+
+    public long getFiles() {
+      return files.get();
+    }
+
+    public long getChunks() {
+      return chunks.get();
+    }
+
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    public long getElapsedMs() {
+      return elapsedNanos / 1000000;
+    }
+
+    /**
+     * @return bytes copied per second.
+     */
+    public double getThroughput() {
+      return elapsedNanos == 0 ? 0 : bytes.get() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("files=%d chunks=%d bytes=%d elapsedMs=%d"
+              + " throughputMBps=%.1f", getFiles(), getChunks(), getBytes(),
+          getElapsedMs(), getThroughput() / (1024 * 1024));
+    }
+  }
+}
@@ -18,7 +18,9 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 
 public interface RemoteDirectoryManager {
   Path getJobStagingArea(String jobName, boolean create) throws IOException;
@@ -31,6 +33,13 @@ public interface RemoteDirectoryManager {
 
   FileSystem getFileSystemByUri(String uri) throws IOException;
 
+  /**
+   * Start opening the file systems of the given uris in the background, so
+   * connections are ready by the time they are used. Returns immediately,
+   * failures are left to the actual calls to report.
+   */
+  void warmUpFileSystems(Collection<String> uris);
+
   Path getUserRootFolder() throws IOException;
 
   boolean isDir(String uri) throws IOException;
@@ -40,9 +49,20 @@ public interface RemoteDirectoryManager {
   boolean copyRemoteToLocal(String remoteUri, String localUri)
       throws IOException;
 
+  /**
+   * Copy a local file to the default file system.
+   */
+  void copyLocalToRemote(File localFile, Path remotePath) throws IOException;
+
   boolean existsRemoteFile(Path uri) throws IOException;
 
   FileStatus getRemoteFileStatus(Path uri) throws IOException;
 
   long getRemoteFileSize(String uri) throws IOException;
+
+  /**
+   * Same as {@link #getRemoteFileSize(String)}, but may stop counting once
+   * the size is larger than limit and return the partial sum.
+   */
+  long getRemoteFileSize(String uri, long limit) throws IOException;
 }
@@ -0,0 +1,336 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Uploads a local file in chunks which survive failures.
+ *
+ * The file is written to a temporary file next to the target, one chunk
+ * at a time. Once a chunk is written, it is recorded with its CRC32 in a
+ * manifest next to the target, so a failed upload is resumed after the
+ * last recorded chunk, by the next attempt or the next upload of the same
+ * file. When all chunks are written, they are read back and compared with
+ * the manifest, chunks which don't match are uploaded again. The temporary
+ * file is then renamed to the target, and the manifest is deleted.
+ *
+ * Resuming needs append and truncate, file systems which don't support them
+ * get the file with a single copy. Chunks are rounded up to multiples of
+ * the block size, since HDFS truncates at block boundaries right away but
+ * has to recover the last block first otherwise. When a file system can't
+ * truncate right away anyway, the upload starts over.
+ */
+public class ResumableUploader {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ResumableUploader.class);
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final String SOURCE_LENGTH = "source.length";
+  private static final String SOURCE_MODIFICATION_TIME =
+      "source.modification-time";
+  private static final String CHUNK_SIZE = "chunk.size";
+  private static final String CHUNKS = "chunks";
+
+  private final long chunkSize;
+  private final int retries;
+
+  /**
+   * @param retries number of times a failed chunk is uploaded again before
+   *                giving up, the upload can still be resumed later.
+   */
+  public ResumableUploader(long chunkSize, int retries) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive, got "
+          + chunkSize);
+    }
+    if (retries < 0) {
+      throw new IllegalArgumentException("retries must not be negative, got "
+          + retries);
+    }
+    this.chunkSize = chunkSize;
+    this.retries = retries;
+  }
+
+  public long getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Upload src to dst, replacing dst if it exists.
+   */
+  public void upload(File src, FileSystem fs, Path dst) throws IOException {
+    if (!src.isFile()) {
+      throw new FileNotFoundException("File " + src + " does not exist");
+    }
+    Path tmp = getSidecar(dst, "uploading");
+    long blockSize = fs.getDefaultBlockSize(tmp);
+    if (blockSize > 0 && chunkSize % blockSize != 0) {
+      long alignedChunkSize = (chunkSize / blockSize + 1) * blockSize;
+      new ResumableUploader(alignedChunkSize, retries).upload(src, fs, dst);
+      return;
+    }
+    Path manifestPath = getSidecar(dst, "upload-manifest");
+    List<Long> chunks = resume(src, fs, tmp, manifestPath);
+    if (!chunks.isEmpty()) {
+      LOG.info("Resuming upload of " + src + " to " + dst + " after "
+          + chunks.size() + " chunks");
+    }
+
+    int failures = 0;
+    while (true) {
+      try {
+        writeChunks(src, fs, tmp, manifestPath, chunks);
+        int corrupted = verify(src, fs, tmp, chunks);
+        if (corrupted < 0) {
+          break;
+        }
+        LOG.warn("Chunk " + corrupted + " of " + tmp
+            + " doesn't match " + src + ", uploading it again");
+        truncateOrRestart(fs, tmp, manifestPath, src, chunks, corrupted);
+      } catch (UnsupportedOperationException e) {
+        LOG.debug("Can't resume uploads to " + fs.getUri(), e);
+        fs.delete(tmp, false);
+        fs.delete(manifestPath, false);
+        fs.copyFromLocalFile(new Path(src.getAbsolutePath()), dst);
+        return;
+      } catch (IOException e) {
+        if (++failures > retries) {
+          throw e;
+        }
+        LOG.warn("Failed to upload " + src + " to " + tmp + ", retrying", e);
+        // Whatever follows the recorded chunks is dropped
+        truncateOrRestart(fs, tmp, manifestPath, src, chunks, chunks.size());
+      }
+    }
+
+    if (fs.exists(dst)) {
+      fs.delete(dst, true);
+    }
+    if (!fs.rename(tmp, dst)) {
+      throw new IOException("Failed to rename " + tmp + " to " + dst);
+    }
+    fs.delete(manifestPath, false);
+  }
+
+  /**
+   * @return CRC32s of the chunks already uploaded for the same version of
+   *         src, or nothing when it must be uploaded from the start.
+   */
+  private List<Long> resume(File src, FileSystem fs, Path tmp,
+      Path manifestPath) throws IOException {
+    List<Long> chunks = new ArrayList<>();
+    Properties manifest = readManifest(fs, manifestPath);
+    if (manifest != null
+        && String.valueOf(src.length()).equals(
+            manifest.getProperty(SOURCE_LENGTH))
+        && String.valueOf(src.lastModified()).equals(
+            manifest.getProperty(SOURCE_MODIFICATION_TIME))
+        && String.valueOf(chunkSize).equals(
+            manifest.getProperty(CHUNK_SIZE))) {
+      String recorded = manifest.getProperty(CHUNKS, "");
+      for (String crc : recorded.split(",")) {
+        if (!crc.isEmpty()) {
+          chunks.add(Long.parseLong(crc, 16));
+        }
+      }
+    }
+    try {
+      if (!chunks.isEmpty() && truncate(fs, tmp, manifestPath, src, chunks,
+          chunks.size())) {
+        return chunks;
+      }
+    } catch (UnsupportedOperationException e) {
+      LOG.debug("Can't resume uploads to " + fs.getUri(), e);
+    }
+    chunks.clear();
+    fs.delete(tmp, false);
+    fs.delete(manifestPath, false);
+    return chunks;
+  }
+
+  private void writeChunks(File src, FileSystem fs, Path tmp,
+      Path manifestPath, List<Long> chunks) throws IOException {
+    long length = src.length();
+    if (length == 0) {
+      fs.create(tmp, true).close();
+      return;
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (FileInputStream in = new FileInputStream(src)) {
+      while (getLength(src, chunks.size()) < length) {
+        long offset = getLength(src, chunks.size());
+        in.getChannel().position(offset);
+        CRC32 crc = new CRC32();
+        try (OutputStream out = offset == 0
+            ? fs.create(tmp, true) : fs.append(tmp)) {
+          copy(in, out, Math.min(chunkSize, length - offset), buffer, crc);
+        }
+        chunks.add(crc.getValue());
+        writeManifest(fs, manifestPath, src, chunks);
+      }
+    }
+  }
+
+  /**
+   * @return index of the first chunk of tmp which doesn't match, or -1.
+   */
+  private int verify(File src, FileSystem fs, Path tmp, List<Long> chunks)
+      throws IOException {
+    long length = fs.getFileStatus(tmp).getLen();
+    if (length != src.length()) {
+      return (int) Math.max(0,
+          Math.min(chunks.size() - 1, length / chunkSize));
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (FSDataInputStream in = fs.open(tmp)) {
+      for (int i = 0; i < chunks.size(); i++) {
+        CRC32 crc = new CRC32();
+        copy(in, null, getLength(src, i + 1) - getLength(src, i), buffer,
+            crc);
+        if (crc.getValue() != chunks.get(i)) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Same as {@link #truncate}, when the file system can't cut tmp right
+   * away, e.g. while it recovers the last block, tmp is dropped and all
+   * chunks are uploaded again.
+   */
+  private void truncateOrRestart(FileSystem fs, Path tmp, Path manifestPath,
+      File src, List<Long> chunks, int keep) throws IOException {
+    if (truncate(fs, tmp, manifestPath, src, chunks, keep)) {
+      return;
+    }
+    LOG.warn("Can't truncate " + tmp + " right away, uploading " + src
+        + " from the start");
+    chunks.clear();
+    fs.delete(tmp, false);
+    writeManifest(fs, manifestPath, src, chunks);
+  }
+
+  /**
+   * Cut tmp after the given number of chunks and forget about the rest.
+   * @return false if the file system couldn't do it right away.
+   */
+  private boolean truncate(FileSystem fs, Path tmp, Path manifestPath,
+      File src, List<Long> chunks, int keep) throws IOException {
+    while (chunks.size() > keep) {
+      chunks.remove(chunks.size() - 1);
+    }
+    writeManifest(fs, manifestPath, src, chunks);
+    long newLength = getLength(src, keep);
+    if (!fs.exists(tmp)) {
+      return newLength == 0;
+    }
+    long length = fs.getFileStatus(tmp).getLen();
+    if (length < newLength) {
+      return false;
+    }
+    if (length == newLength) {
+      return true;
+    }
+    return fs.truncate(tmp, newLength);
+  }
+
+  private void writeManifest(FileSystem fs, Path manifestPath, File src,
+      List<Long> chunks) throws IOException {
+    Properties manifest = new Properties();
+    manifest.setProperty(SOURCE_LENGTH, String.valueOf(src.length()));
+    manifest.setProperty(SOURCE_MODIFICATION_TIME,
+        String.valueOf(src.lastModified()));
+    manifest.setProperty(CHUNK_SIZE, String.valueOf(chunkSize));
+    StringBuilder recorded = new StringBuilder();
+    for (long crc : chunks) {
+      if (recorded.length() > 0) {
+        recorded.append(',');
+      }
+      recorded.append(Long.toHexString(crc));
+    }
+    manifest.setProperty(CHUNKS, recorded.toString());
+    try (FSDataOutputStream out = fs.create(manifestPath, true)) {
+      manifest.store(new OutputStreamWriter(out,
+          StandardCharsets.UTF_8), null);
+    }
+  }
+
+  private static Properties readManifest(FileSystem fs, Path manifestPath)
+      throws IOException {
+    if (!fs.exists(manifestPath)) {
+      return null;
+    }
+    Properties manifest = new Properties();
+    try (FSDataInputStream in = fs.open(manifestPath)) {
+      manifest.load(new InputStreamReader(in,
+          StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Ignoring corrupted manifest " + manifestPath, e);
+      return null;
+    }
+    return manifest;
+  }
+
+  /**
+   * @return length of src covered by the given number of chunks.
+   */
+  private long getLength(File src, int chunkCount) {
+    return Math.min(src.length(), chunkCount * chunkSize);
+  }
+
+  private static void copy(InputStream in, OutputStream out, long size,
+      byte[] buffer, CRC32 crc) throws IOException {
+    long remaining = size;
+    while (remaining > 0) {
+      int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (read < 0) {
+        throw new EOFException("Unexpected end of file, " + remaining
+            + " bytes missing");
+      }
+      crc.update(buffer, 0, read);
+      if (out != null) {
+        out.write(buffer, 0, read);
+      }
+      remaining -= read;
+    }
+  }
+
+  private static Path getSidecar(Path dst, String suffix) {
+    return new Path(dst.getParent(), "." + dst.getName() + "." + suffix);
+  }
+}
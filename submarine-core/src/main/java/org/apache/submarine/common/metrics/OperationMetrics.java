@@ -0,0 +1,184 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.common.metrics;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms, error counts and number of FileSystem operations
+ * (which are RPCs for remote file systems) per named operation.
+ *
+ * FileSystem operations are taken from the statistics Hadoop keeps per
+ * FileSystem class, which count operations of all threads. They include what a
+ * measured call did in thread pools (e.g. parallel addNewJobs and
+ * getJobInfos), but also operations of other threads running at the same
+ * time, so the count of concurrently measured calls is an upper bound.
+ */
+public class OperationMetrics {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(OperationMetrics.class);
+
+  private final String name;
+  private final Map<String, OperationStats> operations =
+      new ConcurrentSkipListMap<>();
+
+  public OperationMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * A call which is measured.
+   */
+  public interface Call<T> {
+    T call() throws IOException;
+  }
+
+  public <T> T measure(String operation, Call<T> call) throws IOException {
+    OperationStats stats =
+        operations.computeIfAbsent(operation, k -> new OperationStats());
+    long fsOpsBefore = getFileSystemOps();
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      T result = call.call();
+      failed = false;
+      return result;
+    } finally {
+      stats.record(System.nanoTime() - start,
+          getFileSystemOps() - fsOpsBefore, failed);
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private static long getFileSystemOps() {
+    long ops = 0;
+    // Deprecated from Hadoop 2.8 on, but the only API Hadoop 2.7 has
+    for (FileSystem.Statistics statistics : FileSystem.getAllStatistics()) {
+      ops += statistics.getReadOps() + statistics.getLargeReadOps()
+          + statistics.getWriteOps();
+    }
+    return ops;
+  }
+
+  /**
+   * @return stats of the operation, or null when it was never called.
+   */
+  public OperationStats get(String operation) {
+    return operations.get(operation);
+  }
+
+  /**
+   * @return one line per operation, sorted by name.
+   */
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(name).append(" operations:");
+    for (Map.Entry<String, OperationStats> e : operations.entrySet()) {
+      OperationStats stats = e.getValue();
+      sb.append(String.format(
+          "%n  %s: count=%d errors=%d fsOps=%d totalMs=%d"
+              + " p50Us<=%d p90Us<=%d p99Us<=%d",
+          e.getKey(), stats.getCount(), stats.getErrors(),
+          stats.getFileSystemOps(), stats.getTotalNanos() / 1000000,
+          stats.getPercentileMicros(0.5), stats.getPercentileMicros(0.9),
+          stats.getPercentileMicros(0.99)));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Log the report when the JVM exits.
+   */
+  public OperationMetrics reportOnShutdown() {
+    java.lang.Runtime.getRuntime().addShutdownHook(
+        new Thread(() -> LOG.info(report())));
+    return this;
+  }
+
+  /**
+   * Stats of one operation. Latencies go to power-of-two buckets of
+   * microseconds, so percentiles are upper bounds within a factor of two.
+   */
+  public static class OperationStats {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong fileSystemOps = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    // bucket i counts latencies in [2^i, 2^(i+1)) us
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos, long fsOps, boolean failed) {
+      count.incrementAndGet();
+      if (failed) {
+        errors.incrementAndGet();
+      }
+      fileSystemOps.addAndGet(fsOps);
+      totalNanos.addAndGet(nanos);
+      long micros = Math.max(1, nanos / 1000);
+      histogram.incrementAndGet(Math.min(BUCKETS - 1,
+          63 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    public long getCount() {
+      return count.get();
+    }
+
+    public long getErrors() {
+      return errors.get();
+    }
+
+    public long getFileSystemOps() {
+      return fileSystemOps.get();
+    }
+
+    public long getTotalNanos() {
+      return totalNanos.get();
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return upper bound of the latency at the percentile in microseconds,
+     *         0 when nothing was recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+      long[] buckets = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = histogram.get(i);
+        total += buckets[i];
+      }
+      long rank = (long) Math.ceil(percentile * total);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return (1L << (i + 1)) - 1;
+        }
+      }
+      return 0;
+    }
+  }
+}
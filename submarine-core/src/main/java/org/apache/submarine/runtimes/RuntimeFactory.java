@@ -16,20 +16,29 @@ package org.apache.submarine.runtimes;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.submarine.common.ClientContext;
 import org.apache.submarine.common.conf.SubmarineConfiguration;
 import org.apache.submarine.common.exception.SubmarineRuntimeException;
+import org.apache.submarine.common.metrics.OperationMetrics;
+import org.apache.submarine.runtimes.common.CachingSubmarineStorage;
+import org.apache.submarine.runtimes.common.InstrumentedSubmarineStorage;
+import org.apache.submarine.runtimes.common.JobHistoryStore;
 import org.apache.submarine.runtimes.common.JobMonitor;
 import org.apache.submarine.runtimes.common.JobSubmitter;
 import org.apache.submarine.runtimes.common.SubmarineStorage;
+import org.apache.submarine.runtimes.common.WriteBehindSubmarineStorage;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.File;
+import java.io.IOException;
 
 public abstract class RuntimeFactory {
   protected ClientContext clientContext;
   private JobSubmitter jobSubmitter;
   private JobMonitor jobMonitor;
   private SubmarineStorage submarineStorage;
+  private JobHistoryStore jobHistoryStore;
 
   public RuntimeFactory(ClientContext clientContext) {
     this.clientContext = clientContext;
@@ -42,28 +51,58 @@ public abstract class RuntimeFactory {
     String runtimeClass = submarineConfiguration.get(
         SubmarineConfiguration.RUNTIME_CLASS,
         SubmarineConfiguration.DEFAULT_RUNTIME_CLASS);
-
-    try {
-      Class<?> runtimeClazz = Class.forName(runtimeClass);
-      if (RuntimeFactory.class.isAssignableFrom(runtimeClazz)) {
-        return (RuntimeFactory) runtimeClazz.getConstructor(ClientContext.class).newInstance(clientContext);
-      } else {
-        throw new SubmarineRuntimeException("Class: " + runtimeClass
-            + " not instance of " + RuntimeFactory.class.getCanonicalName());
-      }
-    } catch (ClassNotFoundException | IllegalAccessException |
-             InstantiationException | NoSuchMethodException |
-             InvocationTargetException e) {
-      throw new SubmarineRuntimeException(
-          "Could not instantiate RuntimeFactory: " + runtimeClass, e);
-    }
+    return ClientContext.newInstance(runtimeClass, RuntimeFactory.class,
+        clientContext);
   }
 
   protected abstract JobSubmitter internalCreateJobSubmitter();
 
   protected abstract JobMonitor internalCreateJobMonitor();
 
-  protected abstract SubmarineStorage internalCreateSubmarineStorage();
+  /**
+   * Create the storage configured by
+   * {@link SubmarineConfiguration#STORAGE_CLASS}.
+   */
+  protected SubmarineStorage internalCreateSubmarineStorage() {
+    Configuration submarineConfiguration = clientContext.getSubmarineConfig();
+    String storageClass = submarineConfiguration.get(
+        SubmarineConfiguration.STORAGE_CLASS,
+        SubmarineConfiguration.DEFAULT_STORAGE_CLASS);
+    return ClientContext.newInstance(storageClass, SubmarineStorage.class,
+        clientContext);
+  }
+
+  private SubmarineStorage createWriteBehindStorage(Configuration conf,
+      SubmarineStorage storage) {
+    File journalDir = new File(conf.get(
+        SubmarineConfiguration.STORAGE_WRITE_BEHIND_JOURNAL_DIR,
+        SubmarineConfiguration.DEFAULT_STORAGE_WRITE_BEHIND_JOURNAL_DIR));
+    final WriteBehindSubmarineStorage writeBehindStorage;
+    try {
+      writeBehindStorage = new WriteBehindSubmarineStorage(storage,
+          journalDir, conf.getLong(
+              SubmarineConfiguration.STORAGE_WRITE_BEHIND_RETRY_INTERVAL_MS,
+              SubmarineConfiguration
+                  .DEFAULT_STORAGE_WRITE_BEHIND_RETRY_INTERVAL_MS));
+    } catch (IOException e) {
+      throw new SubmarineRuntimeException(
+          "Could not create write-behind journal in " + journalDir, e);
+    }
+
+    // Exiting waits a while for pending job infos, so other hosts see them.
+    // Those not written by then are written by the next client which starts.
+    final long closeTimeoutMs = conf.getLong(
+        SubmarineConfiguration.STORAGE_WRITE_BEHIND_CLOSE_TIMEOUT_MS,
+        SubmarineConfiguration.DEFAULT_STORAGE_WRITE_BEHIND_CLOSE_TIMEOUT_MS);
+    java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        writeBehindStorage.close(closeTimeoutMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+    return writeBehindStorage;
+  }
 
   public synchronized JobSubmitter getJobSubmitterInstance() {
     if (jobSubmitter == null) {
@@ -81,11 +120,57 @@ public abstract class RuntimeFactory {
 
   public synchronized SubmarineStorage getSubmarineStorage() {
     if (submarineStorage == null) {
-      submarineStorage = internalCreateSubmarineStorage();
+      submarineStorage = wrapSubmarineStorage(internalCreateSubmarineStorage());
     }
     return submarineStorage;
   }
 
+  /**
+   * @return history of finished jobs, or null when it is disabled.
+   */
+  public synchronized JobHistoryStore getJobHistoryStore()
+      throws IOException {
+    Configuration conf = clientContext.getSubmarineConfig();
+    if (jobHistoryStore == null && conf != null && conf.getBoolean(
+        SubmarineConfiguration.JOB_HISTORY_ENABLED,
+        SubmarineConfiguration.DEFAULT_JOB_HISTORY_ENABLED)) {
+      FileSystem fs =
+          clientContext.getRemoteDirectoryManager().getDefaultFileSystem();
+      jobHistoryStore = new JobHistoryStore(fs, fs.makeQualified(new Path(
+          conf.get(SubmarineConfiguration.JOB_HISTORY_DIR,
+              SubmarineConfiguration.DEFAULT_JOB_HISTORY_DIR))),
+          conf.getInt(SubmarineConfiguration.JOB_HISTORY_MAX_BLOCKS,
+              SubmarineConfiguration.DEFAULT_JOB_HISTORY_MAX_BLOCKS));
+    }
+    return jobHistoryStore;
+  }
+
+  private SubmarineStorage wrapSubmarineStorage(SubmarineStorage storage) {
+    Configuration conf = clientContext.getSubmarineConfig();
+    if (conf == null) {
+      return storage;
+    }
+    if (conf.getBoolean(SubmarineConfiguration.STORAGE_WRITE_BEHIND_ENABLED,
+        SubmarineConfiguration.DEFAULT_STORAGE_WRITE_BEHIND_ENABLED)) {
+      storage = createWriteBehindStorage(conf, storage);
+    }
+    if (conf.getBoolean(SubmarineConfiguration.STORAGE_CACHE_ENABLED,
+        SubmarineConfiguration.DEFAULT_STORAGE_CACHE_ENABLED)) {
+      storage = new CachingSubmarineStorage(storage,
+          conf.getInt(SubmarineConfiguration.STORAGE_CACHE_MAX_ENTRIES,
+              SubmarineConfiguration.DEFAULT_STORAGE_CACHE_MAX_ENTRIES),
+          conf.getLong(SubmarineConfiguration.STORAGE_CACHE_TTL_MS,
+              SubmarineConfiguration.DEFAULT_STORAGE_CACHE_TTL_MS));
+    }
+    // Outermost, so cache hits are measured as well
+    if (conf.getBoolean(SubmarineConfiguration.STORAGE_INSTRUMENTATION_ENABLED,
+        SubmarineConfiguration.DEFAULT_STORAGE_INSTRUMENTATION_ENABLED)) {
+      storage = new InstrumentedSubmarineStorage(storage,
+          new OperationMetrics("SubmarineStorage").reportOnShutdown());
+    }
+    return storage;
+  }
+
   @VisibleForTesting
   public synchronized void setJobSubmitterInstance(JobSubmitter jobSubmitter) {
     this.jobSubmitter = jobSubmitter;
@@ -0,0 +1,272 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of another {@link SubmarineStorage}.
+ *
+ * Job and model infos are kept in a bounded LRU map, entries expire after
+ * the given time to live so changes made by other clients are picked up
+ * eventually. Adds go to the underlying storage first and then invalidate
+ * the cached entry.
+ *
+ * A miss leaves a pending entry behind which the load replaces once it is
+ * done. An add invalidating the key in between drops the pending entry, so
+ * a load racing with an add can't cache the info it read before the add.
+ * Pending entries are kept apart from the LRU map and don't count towards
+ * its size.
+ */
+public class CachingSubmarineStorage extends SubmarineStorage {
+  private static final String JOB_KEY_PREFIX = "job/";
+  private static final String MODEL_KEY_PREFIX = "model/";
+  private static final String DEFAULT_MODEL_KEY_PREFIX = "default-model/";
+  private static final String LATEST_MODEL_KEY_PREFIX = "latest-model/";
+
+  private final SubmarineStorage storage;
+  private final long ttlNanos;
+  private final Map<String, CachedInfo> cache;
+  private final Map<String, CachedInfo> pending = new HashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public CachingSubmarineStorage(SubmarineStorage storage,
+      final int maxEntries, long ttlMs) {
+    this.storage = storage;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    this.cache = new LinkedHashMap<String, CachedInfo>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<String, CachedInfo> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  @Override
+  public void addNewJob(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    storage.addNewJob(jobName, jobInfo);
+    invalidate(JOB_KEY_PREFIX + jobName);
+  }
+
+  @Override
+  public Map<String, String> getJobInfoByName(String jobName)
+      throws IOException {
+    return get(JOB_KEY_PREFIX + jobName,
+        () -> storage.getJobInfoByName(jobName));
+  }
+
+  @Override
+  public void addNewJobs(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    storage.addNewJobs(jobInfos);
+    for (String jobName : jobInfos.keySet()) {
+      invalidate(JOB_KEY_PREFIX + jobName);
+    }
+  }
+
+  @Override
+  public Map<String, Map<String, String>> getJobInfos(
+      Collection<String> jobNames) throws IOException {
+    Map<String, Map<String, String>> jobInfos = new LinkedHashMap<>();
+    Map<String, CachedInfo> missed = new LinkedHashMap<>();
+    for (String jobName : jobNames) {
+      CachedInfo cached = lookup(JOB_KEY_PREFIX + jobName);
+      jobInfos.put(jobName, cached.info);
+      if (cached.isPending()) {
+        missed.put(jobName, cached);
+      }
+    }
+    if (!missed.isEmpty()) {
+      Map<String, Map<String, String>> loaded = Collections.emptyMap();
+      try {
+        loaded = storage.getJobInfos(new ArrayList<>(missed.keySet()));
+        jobInfos.putAll(loaded);
+      } finally {
+        for (Map.Entry<String, CachedInfo> e : missed.entrySet()) {
+          complete(JOB_KEY_PREFIX + e.getKey(), e.getValue(),
+              loaded.get(e.getKey()));
+        }
+      }
+    }
+    for (Map.Entry<String, Map<String, String>> e : jobInfos.entrySet()) {
+      e.setValue(new HashMap<>(e.getValue()));
+    }
+    return jobInfos;
+  }
+
+  /**
+   * Lookups by info are not cached.
+   */
+  @Override
+  public List<String> getJobNamesByInfo(String key, String value)
+      throws IOException {
+    return storage.getJobNamesByInfo(key, value);
+  }
+
+  @Override
+  public void addNewModel(String modelName, String version,
+      Map<String, String> modelInfo) throws IOException {
+    storage.addNewModel(modelName, version, modelInfo);
+    invalidate(getModelKey(modelName, version));
+    // Storages like the FS based one keep the default version and a version
+    // named "null" in the same place, drop both
+    if (version == null || version.equals("null")) {
+      invalidate(getModelKey(modelName, null));
+      invalidate(getModelKey(modelName, "null"));
+    }
+    invalidate(LATEST_MODEL_KEY_PREFIX + modelName);
+  }
+
+  @Override
+  public Map<String, String> getModelInfoByName(String modelName,
+      String version) throws IOException {
+    return get(getModelKey(modelName, version),
+        () -> storage.getModelInfoByName(modelName, version));
+  }
+
+  /**
+   * Versions are not cached, they are expected to be listed rarely.
+   */
+  @Override
+  public List<String> listModelVersions(String modelName)
+      throws IOException {
+    return storage.listModelVersions(modelName);
+  }
+
+  @Override
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    return get(LATEST_MODEL_KEY_PREFIX + modelName,
+        () -> storage.getLatestModelInfo(modelName));
+  }
+
+  public SubmarineStorage getUnderlyingStorage() {
+    return storage;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  public synchronized void invalidateAll() {
+    cache.clear();
+    pending.clear();
+  }
+
+  private Map<String, String> get(String key, InfoLoader loader)
+      throws IOException {
+    CachedInfo cached = lookup(key);
+    if (!cached.isPending()) {
+      return new HashMap<>(cached.info);
+    }
+    Map<String, String> info = null;
+    try {
+      info = loader.load();
+    } finally {
+      complete(key, cached, info);
+    }
+    return new HashMap<>(info);
+  }
+
+  /**
+   * Returns the cached info, or on a miss a new pending entry which the
+   * caller has to {@link #complete} after loading the info.
+   */
+  private synchronized CachedInfo lookup(String key) {
+    CachedInfo cached = cache.get(key);
+    if (cached != null && now() - cached.loadedAt <= ttlNanos) {
+      hits.incrementAndGet();
+      return cached;
+    }
+    misses.incrementAndGet();
+    cache.remove(key);
+    CachedInfo load = new CachedInfo(null, now());
+    pending.put(key, load);
+    return load;
+  }
+
+  /**
+   * Replaces the pending entry with the loaded info, or drops it when the
+   * load failed. Nothing is cached if the key was invalidated or looked up
+   * again meanwhile, the info may be older than the last add then.
+   */
+  private synchronized void complete(String key, CachedInfo load,
+      Map<String, String> info) {
+    if (pending.get(key) != load) {
+      return;
+    }
+    pending.remove(key);
+    if (info != null) {
+      cache.put(key, new CachedInfo(
+          Collections.unmodifiableMap(new HashMap<>(info)), now()));
+    }
+  }
+
+  private synchronized void invalidate(String key) {
+    cache.remove(key);
+    pending.remove(key);
+  }
+
+  private String getModelKey(String modelName, String version) {
+    // The default version gets its own prefix, a version may be named "null"
+    if (version == null) {
+      return DEFAULT_MODEL_KEY_PREFIX + modelName;
+    }
+    return MODEL_KEY_PREFIX + modelName + "/" + version;
+  }
+
+  long now() {
+    return System.nanoTime();
+  }
+
+  private static class CachedInfo {
+    private final Map<String, String> info;
+    private final long loadedAt;
+
+    CachedInfo(Map<String, String> info, long loadedAt) {
+      this.info = info;
+      this.loadedAt = loadedAt;
+    }
+
+    boolean isPending() {
+      return info == null;
+    }
+  }
+
+  private interface InfoLoader {
+    Map<String, String> load() throws IOException;
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage on top of an embedded {@link FileKeyValueStore} on local disk.
+ * Lookups don't leave the host, and no cluster is needed at all, which
+ * makes it suitable for gateway hosts and local tests.
+ */
+public class EmbeddedSubmarineStorageImpl extends SubmarineStorage {
+  private static final String JOB_KEY_PREFIX = "job/";
+  private static final String MODEL_KEY_PREFIX = "model/";
+  private static final String MODEL_VERSIONS_KEY_PREFIX = "model-versions/";
+  private static final String INDEX_KEY_PREFIX = "index/";
+
+  private final File storeDir;
+  private final boolean syncOnWrite;
+  private FileKeyValueStore store;
+
+  public EmbeddedSubmarineStorageImpl(ClientContext clientContext) {
+    Configuration conf = clientContext.getSubmarineConfig();
+    this.storeDir = new File(conf.get(
+        SubmarineConfiguration.EMBEDDED_STORAGE_DIR,
+        SubmarineConfiguration.DEFAULT_EMBEDDED_STORAGE_DIR));
+    this.syncOnWrite = conf.getBoolean(
+        SubmarineConfiguration.EMBEDDED_STORAGE_SYNC,
+        SubmarineConfiguration.DEFAULT_EMBEDDED_STORAGE_SYNC);
+  }
+
+  @Override
+  public void addNewJob(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    addNewJobs(Collections.singletonMap(jobName, jobInfo));
+  }
+
+  @Override
+  public void addNewJobs(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    Map<String, byte[]> entries = new HashMap<>();
+    for (Map.Entry<String, Map<String, String>> e : jobInfos.entrySet()) {
+      byte[] old = getStore().get(JOB_KEY_PREFIX + e.getKey());
+      Map<String, String> oldInfo = old == null ? null
+          : InfoMapCodec.decode(old);
+      entries.put(JOB_KEY_PREFIX + e.getKey(),
+          InfoMapCodec.encode(e.getValue()));
+      for (String key : StorageKeyConstants.INDEXED_KEYS) {
+        String value = JobIndexes.normalize(key, e.getValue().get(key), null);
+        String oldValue = oldInfo == null ? null
+            : JobIndexes.normalize(key, oldInfo.get(key), null);
+        if (oldValue != null && !oldValue.equals(value)) {
+          // Stale index entry, a null value deletes it
+          entries.put(getIndexPrefix(key, oldValue) + e.getKey(), null);
+        }
+        if (value != null) {
+          entries.put(getIndexPrefix(key, value) + e.getKey(), new byte[0]);
+        }
+      }
+    }
+    // Infos and index entries are written with one append
+    getStore().putAll(entries);
+  }
+
+  @Override
+  public List<String> getJobNamesByInfo(String key, String value)
+      throws IOException {
+    JobIndexes.checkIndexed(key, value);
+    String prefix = getIndexPrefix(key, value);
+    Map<String, Map<String, String>> jobInfos = new HashMap<>();
+    for (String indexKey : getStore().keys(prefix)) {
+      String jobName = indexKey.substring(prefix.length());
+      byte[] jobInfo = getStore().get(JOB_KEY_PREFIX + jobName);
+      if (jobInfo != null) {
+        jobInfos.put(jobName, InfoMapCodec.decode(jobInfo));
+      }
+    }
+    return JobIndexes.filter(jobInfos, key, value, null);
+  }
+
+  @Override
+  public Map<String, String> getJobInfoByName(String jobName)
+      throws IOException {
+    byte[] value = getStore().get(JOB_KEY_PREFIX + jobName);
+    if (value == null) {
+      throw new FileNotFoundException("Failed to find job=" + jobName);
+    }
+    return InfoMapCodec.decode(value);
+  }
+
+  @Override
+  public void addNewModel(String modelName, String version,
+      Map<String, String> modelInfo) throws IOException {
+    // Info and version index are written together, the version list is
+    // read and written back under the file lock of the store
+    byte[] info = InfoMapCodec.encode(modelInfo);
+    getStore().update(MODEL_VERSIONS_KEY_PREFIX + modelName, current -> {
+      List<String> versions = current == null ? new ArrayList<>()
+          : ModelVersions.decode(current);
+      Map<String, byte[]> entries = new HashMap<>();
+      entries.put(getModelKey(modelName, version), info);
+      entries.put(MODEL_VERSIONS_KEY_PREFIX + modelName,
+          ModelVersions.encode(ModelVersions.add(versions, version)));
+      return entries;
+    });
+  }
+
+  @Override
+  public Map<String, String> getModelInfoByName(String modelName,
+      String version) throws IOException {
+    byte[] value = getStore().get(getModelKey(modelName, version));
+    if (value == null) {
+      throw new IOException(
+          "Failed to find, model=" + modelName + " version=" + version);
+    }
+    return InfoMapCodec.decode(value);
+  }
+
+  @Override
+  public List<String> listModelVersions(String modelName)
+      throws IOException {
+    byte[] value = getStore().get(MODEL_VERSIONS_KEY_PREFIX + modelName);
+    if (value == null) {
+      return new ArrayList<>();
+    }
+    return ModelVersions.decode(value);
+  }
+
+  @Override
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    List<String> versions = listModelVersions(modelName);
+    if (versions.isEmpty()) {
+      throw new IOException("Failed to find, model=" + modelName);
+    }
+    return getModelInfoByName(modelName, versions.get(versions.size() - 1));
+  }
+
+  /**
+   * Drop overwritten records from the underlying store.
+   */
+  public void compact() throws IOException {
+    getStore().compact();
+  }
+
+  public synchronized void close() throws IOException {
+    if (store != null) {
+      store.close();
+      store = null;
+    }
+  }
+
+  private String getIndexPrefix(String key, String value) {
+    return INDEX_KEY_PREFIX + key + "/"
+        + JobIndexes.hash(JobIndexes.normalize(key, value, null)) + "/";
+  }
+
+  private String getModelKey(String modelName, String version) {
+    return MODEL_KEY_PREFIX + modelName + "/" + version;
+  }
+
+  private synchronized FileKeyValueStore getStore() throws IOException {
+    if (store == null) {
+      store = new FileKeyValueStore(storeDir, syncOnWrite);
+    }
+    return store;
+  }
+}
@@ -15,51 +15,438 @@
 
 package org.apache.submarine.runtimes.common;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
 import org.apache.hadoop.fs.Path;
 import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
 import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A super naive FS-based storage.
+ * By default every job is stored in its own job.info under the staging area
+ * of the job. When {@link SubmarineConfiguration#JOB_CATALOG_ENABLED} is set,
+ * jobs are kept in a {@link JobCatalog} instead, jobs stored before that are
+ * still found by name in their job.info.
  */
 public class FSBasedSubmarineStorageImpl extends SubmarineStorage {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(FSBasedSubmarineStorageImpl.class);
+
+  private static final String MODEL_INFO_SUFFIX = ".info";
+  // File name of the null (default) version, "null.info" like it always was
+  private static final String NULL_MODEL_VERSION = "null";
+  private static final String MODEL_VERSIONS_FILE = "_versions";
+  private static final String MODEL_LATEST_FILE = "_latest";
+  private static final String MODEL_VERSIONS_LOCK = "_versions.lock";
+  // A lock older than this is left over by a crashed client
+  private static final long MODEL_VERSIONS_LOCK_EXPIRY_MS = 60 * 1000;
+  private static final long MODEL_VERSIONS_LOCK_RETRY_MS = 100;
+
   RemoteDirectoryManager rdm;
+  private final Configuration conf;
+  private JobCatalog jobCatalog;
+  private Path jobIndexDir;
+  private ExecutorService bulkExecutor;
 
   public FSBasedSubmarineStorageImpl(ClientContext clientContext) {
     rdm = clientContext.getRemoteDirectoryManager();
+    conf = clientContext.getSubmarineConfig();
   }
 
   @Override
   public void addNewJob(String jobName, Map<String, String> jobInfo)
       throws IOException {
-    Path jobInfoPath = getJobInfoPath(jobName, true);
-    FSDataOutputStream fos = rdm.getDefaultFileSystem().create(jobInfoPath);
-    serializeMap(fos, jobInfo);
+    Map<String, String> oldInfo = getIndexedJobInfo(jobName);
+    JobCatalog catalog = getJobCatalog();
+    if (catalog != null) {
+      catalog.put(jobName, jobInfo);
+    } else {
+      Path jobInfoPath = getJobInfoPath(jobName, true);
+      FSDataOutputStream fos = rdm.getDefaultFileSystem().create(jobInfoPath);
+      serializeMap(fos, jobInfo);
+    }
+    // Written after the info, an index entry never points to a missing job
+    indexJob(jobName, oldInfo, jobInfo);
   }
 
   @Override
   public Map<String, String> getJobInfoByName(String jobName)
       throws IOException {
+    JobCatalog catalog = getJobCatalog();
+    if (catalog == null) {
+      return readJobInfo(jobName);
+    }
+    try {
+      return catalog.get(jobName);
+    } catch (FileNotFoundException e) {
+      // Stored before the catalog was enabled
+      try {
+        return readJobInfo(jobName);
+      } catch (FileNotFoundException notFound) {
+        throw e;
+      }
+    }
+  }
+
+  private Map<String, String> readJobInfo(String jobName) throws IOException {
     Path jobInfoPath = getJobInfoPath(jobName, false);
     FSDataInputStream fis = rdm.getDefaultFileSystem().open(jobInfoPath);
     return deserializeMap(fis);
   }
 
+  /**
+   * Write job infos in parallel, or as one catalog segment when the job
+   * catalog is enabled.
+   */
+  @Override
+  public void addNewJobs(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    final JobCatalog catalog = getJobCatalog();
+    final Map<String, Map<String, String>> oldInfos;
+    if (catalog != null) {
+      // Read for the whole batch, so index entries can be updated
+      oldInfos = getJobIndexDir() == null ? Collections.emptyMap()
+          : readJobInfos(new ArrayList<>(jobInfos.keySet()), false);
+      catalog.putAll(jobInfos);
+    } else {
+      oldInfos = null;
+    }
+    List<Callable<Void>> tasks = new ArrayList<>(jobInfos.size());
+    for (final Map.Entry<String, Map<String, String>> e
+        : jobInfos.entrySet()) {
+      tasks.add(() -> {
+        if (catalog == null) {
+          addNewJob(e.getKey(), e.getValue());
+        } else {
+          indexJob(e.getKey(), oldInfos.get(e.getKey()), e.getValue());
+        }
+        return null;
+      });
+    }
+    invokeAll(tasks);
+  }
+
+  /**
+   * Jobs are found with one listing of the index folder of the value, and
+   * a read of each job info found there to drop stale index entries. When
+   * the index is disabled, all job infos are read.
+   */
+  @Override
+  public List<String> getJobNamesByInfo(String key, String value)
+      throws IOException {
+    JobIndexes.checkIndexed(key, value);
+    Path indexDir = getJobIndexDir();
+    if (indexDir == null) {
+      return JobIndexes.filter(getAllJobInfos(), key, value,
+          rdm.getDefaultFileSystem());
+    }
+
+    FileStatus[] entries;
+    try {
+      entries = rdm.getDefaultFileSystem().listStatus(
+          getIndexEntryDir(indexDir, key, value));
+    } catch (FileNotFoundException e) {
+      return new ArrayList<>();
+    }
+    List<Callable<Map<String, String>>> tasks = new ArrayList<>();
+    for (FileStatus entry : entries) {
+      final String jobName = entry.getPath().getName();
+      tasks.add(() -> {
+        try {
+          return getJobInfoByName(jobName);
+        } catch (FileNotFoundException e) {
+          return null;
+        }
+      });
+    }
+    List<Map<String, String>> results = invokeAll(tasks);
+    Map<String, Map<String, String>> jobInfos = new LinkedHashMap<>();
+    for (int i = 0; i < entries.length; i++) {
+      jobInfos.put(entries[i].getPath().getName(), results.get(i));
+    }
+    return JobIndexes.filter(jobInfos, key, value,
+        rdm.getDefaultFileSystem());
+  }
+
+  /**
+   * Read job infos in parallel, the job catalog is read once for all of
+   * them.
+   */
+  @Override
+  public Map<String, Map<String, String>> getJobInfos(
+      Collection<String> jobNames) throws IOException {
+    return readJobInfos(new ArrayList<>(jobNames), true);
+  }
+
+  /**
+   * Read infos of given jobs from the catalog when it is enabled, the
+   * job.info files of jobs not found there are read on the bulk thread
+   * pool.
+   * @param mustExist whether a missing job fails, otherwise its info is
+   *                  null.
+   * @return job name to info of the job, in the order of given names.
+   */
+  private Map<String, Map<String, String>> readJobInfos(List<String> names,
+      boolean mustExist) throws IOException {
+    JobCatalog catalog = getJobCatalog();
+    Map<String, Map<String, String>> cataloged = catalog == null
+        ? Collections.emptyMap() : catalog.getAll(names);
+    List<String> uncataloged = new ArrayList<>();
+    List<Callable<Map<String, String>>> tasks = new ArrayList<>();
+    for (final String jobName : names) {
+      if (cataloged.containsKey(jobName)) {
+        continue;
+      }
+      uncataloged.add(jobName);
+      tasks.add(() -> {
+        try {
+          return readJobInfo(jobName);
+        } catch (FileNotFoundException e) {
+          if (mustExist) {
+            throw e;
+          }
+          return null;
+        }
+      });
+    }
+    List<Map<String, String>> results = invokeAll(tasks);
+    Map<String, Map<String, String>> read = new HashMap<>(cataloged);
+    for (int i = 0; i < uncataloged.size(); i++) {
+      read.put(uncataloged.get(i), results.get(i));
+    }
+    Map<String, Map<String, String>> jobInfos = new LinkedHashMap<>();
+    for (String jobName : names) {
+      jobInfos.put(jobName, read.get(jobName));
+    }
+    return jobInfos;
+  }
+
+  /**
+   * Get info of all known jobs. When the job catalog is enabled, jobs
+   * stored in job.info files before that are included, the catalog wins
+   * for jobs found in both.
+   * @return job name to job info, sorted by job name.
+   */
+  public Map<String, Map<String, String>> getAllJobInfos()
+      throws IOException {
+    // One open per job, prefer the catalog when there are many jobs.
+    Map<String, Map<String, String>> jobInfos = new TreeMap<>();
+    FileStatus[] jobDirs;
+    try {
+      jobDirs = rdm.getDefaultFileSystem().listStatus(
+          rdm.getUserRootFolder());
+    } catch (FileNotFoundException e) {
+      jobDirs = new FileStatus[0];
+    }
+    for (FileStatus jobDir : jobDirs) {
+      if (!jobDir.isDirectory()) {
+        continue;
+      }
+      String jobName = jobDir.getPath().getName();
+      try {
+        jobInfos.put(jobName, readJobInfo(jobName));
+      } catch (FileNotFoundException e) {
+        // Not a job, or a job without info
+      }
+    }
+
+    JobCatalog catalog = getJobCatalog();
+    if (catalog != null) {
+      jobInfos.putAll(catalog.getAll());
+    }
+    return jobInfos;
+  }
+
+  /**
+   * @return info of the job before it is added again, so its index entries
+   *         can be updated. Null when the job is new or there is no index.
+   */
+  private Map<String, String> getIndexedJobInfo(String jobName)
+      throws IOException {
+    if (getJobIndexDir() == null) {
+      return null;
+    }
+    try {
+      return getJobInfoByName(jobName);
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Add index entries of the job, and remove those of values it had in
+   * oldInfo but not anymore.
+   */
+  private void indexJob(String jobName, Map<String, String> oldInfo,
+      Map<String, String> jobInfo) throws IOException {
+    Path indexDir = getJobIndexDir();
+    if (indexDir == null) {
+      return;
+    }
+    FileSystem fs = rdm.getDefaultFileSystem();
+    for (String key : StorageKeyConstants.INDEXED_KEYS) {
+      String value = JobIndexes.normalize(key, jobInfo.get(key), fs);
+      String oldValue = oldInfo == null ? null
+          : JobIndexes.normalize(key, oldInfo.get(key), fs);
+      if (oldValue != null && !oldValue.equals(value)) {
+        fs.delete(new Path(getIndexEntryDir(indexDir, key, oldValue),
+            jobName), false);
+      }
+      if (value != null) {
+        fs.create(new Path(getIndexEntryDir(indexDir, key, value), jobName),
+            true).close();
+      }
+    }
+  }
+
+  private Path getIndexEntryDir(Path indexDir, String key, String value)
+      throws IOException {
+    return new Path(new Path(indexDir, key), JobIndexes.hash(
+        JobIndexes.normalize(key, value, rdm.getDefaultFileSystem())));
+  }
+
+  private synchronized Path getJobIndexDir() throws IOException {
+    if (jobIndexDir == null && conf != null && conf.getBoolean(
+        SubmarineConfiguration.JOB_INDEX_ENABLED,
+        SubmarineConfiguration.DEFAULT_JOB_INDEX_ENABLED)) {
+      jobIndexDir = rdm.getDefaultFileSystem().makeQualified(new Path(
+          conf.get(SubmarineConfiguration.JOB_INDEX_DIR,
+              SubmarineConfiguration.DEFAULT_JOB_INDEX_DIR)));
+    }
+    return jobIndexDir;
+  }
+
+  private synchronized JobCatalog getJobCatalog() throws IOException {
+    if (jobCatalog == null && conf != null && conf.getBoolean(
+        SubmarineConfiguration.JOB_CATALOG_ENABLED,
+        SubmarineConfiguration.DEFAULT_JOB_CATALOG_ENABLED)) {
+      FileSystem fs = rdm.getDefaultFileSystem();
+      Path catalogDir = fs.makeQualified(new Path(conf.get(
+          SubmarineConfiguration.JOB_CATALOG_DIR,
+          SubmarineConfiguration.DEFAULT_JOB_CATALOG_DIR)));
+      if (!fs.exists(catalogDir) && !fs.mkdirs(catalogDir)) {
+        throw new IOException("Failed to create folder=" + catalogDir);
+      }
+      jobCatalog = new JobCatalog(fs, catalogDir, conf.getInt(
+          SubmarineConfiguration.JOB_CATALOG_MAX_SEGMENTS,
+          SubmarineConfiguration.DEFAULT_JOB_CATALOG_MAX_SEGMENTS));
+    }
+    return jobCatalog;
+  }
+
+  /**
+   * Run tasks on the bulk thread pool, fails with the first failure.
+   * @return results in the order of tasks.
+   */
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+    List<T> results = new ArrayList<>(tasks.size());
+    if (tasks.size() <= 1) {
+      for (Callable<T> task : tasks) {
+        results.add(callUnchecked(task));
+      }
+      return results;
+    }
+
+    ExecutorService executor = getBulkExecutor();
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for "
+          + tasks.size() + " storage operations");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static <T> T callUnchecked(Callable<T> task) throws IOException {
+    try {
+      return task.call();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private synchronized ExecutorService getBulkExecutor() {
+    if (bulkExecutor == null) {
+      int threads = conf == null
+          ? SubmarineConfiguration.DEFAULT_STORAGE_FS_BULK_THREADS
+          : conf.getInt(SubmarineConfiguration.STORAGE_FS_BULK_THREADS,
+              SubmarineConfiguration.DEFAULT_STORAGE_FS_BULK_THREADS);
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+          60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("submarine-storage-%d").build());
+      executor.allowCoreThreadTimeOut(true);
+      bulkExecutor = executor;
+    }
+    return bulkExecutor;
+  }
+
+  /**
+   * @throws IllegalArgumentException when version is "null", its info
+   *         would be stored as the one of the null version.
+   */
   @Override
   public void addNewModel(String modelName, String version,
       Map<String, String> modelInfo) throws IOException {
+    if (NULL_MODEL_VERSION.equals(version)) {
+      throw new IllegalArgumentException("Model version \""
+          + NULL_MODEL_VERSION + "\" is reserved for the default version,"
+          + " model=" + modelName);
+    }
     Path modelInfoPath = getModelInfoPath(modelName, version, true);
     FSDataOutputStream fos = rdm.getDefaultFileSystem().create(modelInfoPath);
     serializeMap(fos, modelInfo);
+    addModelVersion(modelName, version);
   }
 
   @Override
@@ -70,29 +457,182 @@ public class FSBasedSubmarineStorageImpl extends SubmarineStorage {
     return deserializeMap(fis);
   }
 
+  /**
+   * Versions are read from the version index of the model, models written
+   * before the index existed are listed once from the model directory.
+   */
+  @Override
+  public List<String> listModelVersions(String modelName)
+      throws IOException {
+    FileSystem fs = rdm.getDefaultFileSystem();
+    Path modelDir = rdm.getModelDir(modelName, false);
+    try (FSDataInputStream in = fs.open(
+        new Path(modelDir, MODEL_VERSIONS_FILE))) {
+      return ModelVersions.decode(IOUtils.toByteArray(in));
+    } catch (FileNotFoundException e) {
+      return listModelVersionsFromDir(fs, modelDir);
+    }
+  }
+
+  /**
+   * The latest version is kept in a file of its own, so it is found without
+   * reading the whole version index.
+   */
+  @Override
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    FileSystem fs = rdm.getDefaultFileSystem();
+    Path modelDir = rdm.getModelDir(modelName, false);
+    List<String> latest;
+    try (FSDataInputStream in = fs.open(
+        new Path(modelDir, MODEL_LATEST_FILE))) {
+      latest = ModelVersions.decode(IOUtils.toByteArray(in));
+    } catch (FileNotFoundException e) {
+      // Added before the latest version was kept
+      return super.getLatestModelInfo(modelName);
+    }
+    return getModelInfoByName(modelName, latest.get(0));
+  }
+
+  /**
+   * The index and the latest version are rewritten under a lock file in the
+   * model directory, so versions added by other clients at the same time
+   * are not lost.
+   */
+  private synchronized void addModelVersion(String modelName, String version)
+      throws IOException {
+    FileSystem fs = rdm.getDefaultFileSystem();
+    Path modelDir = rdm.getModelDir(modelName, true);
+    Path lock = new Path(modelDir, MODEL_VERSIONS_LOCK);
+    acquireModelVersionsLock(fs, lock);
+    try {
+      List<String> versions =
+          ModelVersions.add(listModelVersions(modelName), version);
+      replaceFile(fs, new Path(modelDir, MODEL_VERSIONS_FILE),
+          ModelVersions.encode(versions));
+      replaceFile(fs, new Path(modelDir, MODEL_LATEST_FILE),
+          ModelVersions.encode(Collections.singletonList(version)));
+    } finally {
+      fs.delete(lock, false);
+    }
+  }
+
+  /**
+   * Readers see either the old or the new content, never a partial one.
+   */
+  private void replaceFile(FileSystem fs, Path path, byte[] content)
+      throws IOException {
+    Path tmp = new Path(path.getParent(),
+        path.getName() + ".tmp." + UUID.randomUUID());
+    try {
+      try (FSDataOutputStream out = fs.create(tmp, false)) {
+        out.write(content);
+      }
+      FileContext.getFileContext(fs.getUri(), fs.getConf()).rename(tmp,
+          path, Options.Rename.OVERWRITE);
+    } finally {
+      fs.delete(tmp, false);
+    }
+  }
+
+  /**
+   * Only an existing lock means another client holds it, any other failure
+   * to create the lock is thrown right away.
+   */
+  private void acquireModelVersionsLock(FileSystem fs, Path lock)
+      throws IOException {
+    long deadline = System.currentTimeMillis()
+        + 2 * MODEL_VERSIONS_LOCK_EXPIRY_MS;
+    while (true) {
+      try {
+        fs.create(lock, false).close();
+        return;
+      } catch (FileAlreadyExistsException e) {
+        try {
+          FileStatus status = fs.getFileStatus(lock);
+          if (System.currentTimeMillis() - status.getModificationTime()
+              > MODEL_VERSIONS_LOCK_EXPIRY_MS) {
+            removeExpiredLock(fs, lock, status);
+          }
+        } catch (FileNotFoundException fnfe) {
+          // Released meanwhile, try again
+        }
+        if (System.currentTimeMillis() > deadline) {
+          throw new IOException("Timed out waiting for " + lock, e);
+        }
+      }
+      try {
+        Thread.sleep(MODEL_VERSIONS_LOCK_RETRY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted waiting for " + lock);
+      }
+    }
+  }
+
+  /**
+   * The lock is moved aside before it is deleted, so a lock another client
+   * created since it was seen expired is put back instead of deleted.
+   */
+  private void removeExpiredLock(FileSystem fs, Path lock,
+      FileStatus expired) throws IOException {
+    Path moved = new Path(lock.getParent(),
+        MODEL_VERSIONS_LOCK + ".expired." + UUID.randomUUID());
+    if (!fs.rename(lock, moved)) {
+      return;
+    }
+    if (fs.getFileStatus(moved).getModificationTime()
+        == expired.getModificationTime()) {
+      LOG.warn("Removed expired model version lock {}", lock);
+      fs.delete(moved, false);
+    } else if (!fs.rename(moved, lock)) {
+      LOG.warn("Failed to put back model version lock {}", lock);
+      fs.delete(moved, false);
+    }
+  }
+
+  private List<String> listModelVersionsFromDir(FileSystem fs, Path modelDir)
+      throws IOException {
+    List<String> versions = new ArrayList<>();
+    if (!fs.exists(modelDir)) {
+      return versions;
+    }
+    List<FileStatus> infos = new ArrayList<>();
+    for (FileStatus status : fs.listStatus(modelDir)) {
+      if (status.getPath().getName().endsWith(MODEL_INFO_SUFFIX)) {
+        infos.add(status);
+      }
+    }
+    infos.sort(Comparator.comparingLong(FileStatus::getModificationTime));
+    for (FileStatus status : infos) {
+      String name = status.getPath().getName();
+      String version = name.substring(0,
+          name.length() - MODEL_INFO_SUFFIX.length());
+      versions.add(NULL_MODEL_VERSION.equals(version) ? null : version);
+    }
+    return versions;
+  }
+
   private Path getModelInfoPath(String modelName, String version, boolean create)
       throws IOException {
     Path modelDir = rdm.getModelDir(modelName, create);
-    return new Path(modelDir, version + ".info");
+    return new Path(modelDir,
+        (version == null ? NULL_MODEL_VERSION : version) + MODEL_INFO_SUFFIX);
   }
 
   private void serializeMap(FSDataOutputStream fos, Map<String, String> map)
       throws IOException {
-    ObjectOutput oo = new ObjectOutputStream(fos);
-    oo.writeObject(map);
-    oo.close();
+    try (FSDataOutputStream out = fos) {
+      InfoMapCodec.write(out, map);
+    }
   }
 
   private Map<String, String> deserializeMap(FSDataInputStream fis)
       throws IOException {
-    ObjectInput oi = new ObjectInputStream(fis);
-    Map<String, String> newMap;
-    try {
-      newMap = (Map<String, String>) oi.readObject();
-    } catch (ClassNotFoundException e) {
-      throw new IOException(e);
+    try (FSDataInputStream in = fis) {
+      return InfoMapCodec.read(in);
     }
-    return newMap;
   }
 
   private Path getJobInfoPath(String jobName, boolean create) throws IOException {
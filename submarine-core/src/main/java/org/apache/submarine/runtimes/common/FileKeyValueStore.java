@@ -0,0 +1,385 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An embedded, file-backed key-value store.
+ *
+ * All records are appended to a single log file, an in-memory hash index
+ * maps every live key to the position of its latest value, so a lookup is
+ * one positioned read of the local file. The index is rebuilt by scanning
+ * the log when the store is opened, a torn record at the tail (e.g. after a
+ * crash) is truncated.
+ *
+ * Several processes may share the same store: writes are serialized with a
+ * file lock and each process picks up records appended by others before it
+ * reads or writes. Dead records are dropped by {@link #compact()}.
+ */
+public class FileKeyValueStore implements Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(FileKeyValueStore.class);
+
+  static final String DATA_FILE = "data.log";
+  // crc, key length, value length
+  private static final int HEADER_SIZE = 12;
+  private static final int TOMBSTONE = -1;
+
+  private final File dataFile;
+  private final boolean syncOnWrite;
+  private FileChannel channel;
+  private Object fileKey;
+
+  // key -> {value offset, value length}
+  private final Map<String, long[]> index = new HashMap<>();
+  private long indexedLength = 0;
+  private long deadRecords = 0;
+
+  public FileKeyValueStore(File dir, boolean syncOnWrite) throws IOException {
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Failed to mkdirs for " + dir.getAbsolutePath());
+    }
+    this.dataFile = new File(dir, DATA_FILE);
+    this.syncOnWrite = syncOnWrite;
+    open();
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    fileKey = currentFileKey();
+    index.clear();
+    indexedLength = 0;
+    deadRecords = 0;
+    try (FileLock ignored = channel.lock()) {
+      catchUp(true);
+    }
+  }
+
+  public synchronized byte[] get(String key) throws IOException {
+    catchUp(false);
+    long[] location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) location[1]);
+    readFully(buffer, location[0]);
+    return buffer.array();
+  }
+
+  public synchronized boolean contains(String key) throws IOException {
+    catchUp(false);
+    return index.containsKey(key);
+  }
+
+  /**
+   * @return all live keys which start with given prefix, sorted.
+   */
+  public synchronized List<String> keys(String prefix) throws IOException {
+    catchUp(false);
+    List<String> keys = new ArrayList<>();
+    for (String key : index.keySet()) {
+      if (key.startsWith(prefix)) {
+        keys.add(key);
+      }
+    }
+    Collections.sort(keys);
+    return keys;
+  }
+
+  public void put(String key, byte[] value) throws IOException {
+    putAll(Collections.singletonMap(key, value));
+  }
+
+  /**
+   * Put all entries with one lock and one write, a null value deletes the
+   * key.
+   */
+  public synchronized void putAll(Map<String, byte[]> entries)
+      throws IOException {
+    try (FileLock ignored = lockCurrentFile()) {
+      catchUp(true);
+      append(entries);
+    }
+  }
+
+  /**
+   * Computes the entries to write from the current value of a key.
+   */
+  public interface Update {
+    /**
+     * @param current value of the key, null when it does not exist.
+     * @return entries to write with one append, a null value deletes the
+     *         key.
+     */
+    Map<String, byte[]> apply(byte[] current) throws IOException;
+  }
+
+  /**
+   * Read the value of given key and write the entries computed from it
+   * while holding the file lock, so a read-modify-write is atomic across
+   * processes sharing the store.
+   */
+  public synchronized void update(String key, Update update)
+      throws IOException {
+    try (FileLock ignored = lockCurrentFile()) {
+      catchUp(true);
+      byte[] current = null;
+      long[] location = index.get(key);
+      if (location != null) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) location[1]);
+        readFully(buffer, location[0]);
+        current = buffer.array();
+      }
+      append(update.apply(current));
+    }
+  }
+
+  /**
+   * Append entries at the end of the log, the caller holds the file lock
+   * and has caught up.
+   */
+  private void append(Map<String, byte[]> entries) throws IOException {
+    int size = 0;
+    List<byte[]> keys = new ArrayList<>(entries.size());
+    for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+      byte[] keyBytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+      keys.add(keyBytes);
+      size += HEADER_SIZE + keyBytes.length
+          + (e.getValue() == null ? 0 : e.getValue().length);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    List<long[]> relativeLocations = new ArrayList<>(entries.size());
+    int i = 0;
+    for (byte[] value : entries.values()) {
+      byte[] keyBytes = keys.get(i++);
+      int valueLength = value == null ? TOMBSTONE : value.length;
+      CRC32 crc = new CRC32();
+      crc.update(keyBytes);
+      if (value != null) {
+        crc.update(value);
+      }
+      buffer.putInt((int) crc.getValue());
+      buffer.putInt(keyBytes.length);
+      buffer.putInt(valueLength);
+      buffer.put(keyBytes);
+      relativeLocations.add(new long[] {buffer.position(), valueLength});
+      if (value != null) {
+        buffer.put(value);
+      }
+    }
+    buffer.flip();
+
+    long start = channel.size();
+    long offset = start;
+    while (buffer.hasRemaining()) {
+      offset += channel.write(buffer, offset);
+    }
+    if (syncOnWrite) {
+      channel.force(false);
+    }
+    i = 0;
+    for (String key : entries.keySet()) {
+      long[] location = relativeLocations.get(i++);
+      updateIndex(key, start + location[0], location[1]);
+    }
+    indexedLength = offset;
+  }
+
+  public void delete(String key) throws IOException {
+    putAll(Collections.singletonMap(key, (byte[]) null));
+  }
+
+  /**
+   * Rewrite the log with live records only.
+   */
+  public synchronized void compact() throws IOException {
+    try (FileLock ignored = lockCurrentFile()) {
+      catchUp(true);
+      if (deadRecords == 0) {
+        return;
+      }
+      File tmp = new File(dataFile.getParentFile(), DATA_FILE + ".compact");
+      long offset = 0;
+      try (FileChannel out = FileChannel.open(tmp.toPath(),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        for (Map.Entry<String, long[]> e : index.entrySet()) {
+          byte[] keyBytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+          ByteBuffer value = ByteBuffer.allocate((int) e.getValue()[1]);
+          readFully(value, e.getValue()[0]);
+          CRC32 crc = new CRC32();
+          crc.update(keyBytes);
+          crc.update(value.array());
+          ByteBuffer record = ByteBuffer.allocate(
+              HEADER_SIZE + keyBytes.length + value.capacity());
+          record.putInt((int) crc.getValue());
+          record.putInt(keyBytes.length);
+          record.putInt(value.capacity());
+          record.put(keyBytes);
+          record.put(value.array());
+          record.flip();
+          while (record.hasRemaining()) {
+            offset += out.write(record, offset);
+          }
+        }
+        out.force(true);
+      }
+      Files.move(tmp.toPath(), dataFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Compacted {}, dropped {} dead records", dataFile,
+          deadRecords);
+    }
+    // Lock of the old file is released, switch to the new one.
+    reopen();
+  }
+
+  public synchronized long getDeadRecords() {
+    return deadRecords;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Index records appended since last time, by this or other processes.
+   * @param locked whether the caller holds the file lock, only then a torn
+   *               tail record is truncated.
+   */
+  private void catchUp(boolean locked) throws IOException {
+    if (!locked && isReplaced()) {
+      reopen();
+    }
+
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (indexedLength < size) {
+      try {
+        header.clear();
+        readFully(header, indexedLength);
+        header.flip();
+        int crcValue = header.getInt();
+        int keyLength = header.getInt();
+        int valueLength = header.getInt();
+        if (keyLength < 0 || valueLength < TOMBSTONE
+            || indexedLength + HEADER_SIZE + keyLength
+            + Math.max(valueLength, 0) > size) {
+          throw new EOFException();
+        }
+        ByteBuffer body = ByteBuffer.allocate(
+            keyLength + Math.max(valueLength, 0));
+        readFully(body, indexedLength + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        if ((int) crc.getValue() != crcValue) {
+          throw new EOFException();
+        }
+        String key = new String(body.array(), 0, keyLength,
+            StandardCharsets.UTF_8);
+        updateIndex(key, indexedLength + HEADER_SIZE + keyLength,
+            valueLength);
+        indexedLength += body.capacity() + HEADER_SIZE;
+      } catch (EOFException e) {
+        if (locked) {
+          LOG.warn("Truncating torn record at offset {} of {}",
+              indexedLength, dataFile);
+          channel.truncate(indexedLength);
+        }
+        // Otherwise it is being written by another process right now.
+        return;
+      }
+    }
+  }
+
+  /**
+   * Lock the data file, making sure it was not replaced by a compaction of
+   * another process meanwhile.
+   */
+  private FileLock lockCurrentFile() throws IOException {
+    while (true) {
+      if (isReplaced()) {
+        reopen();
+      }
+      FileLock lock = channel.lock();
+      if (!isReplaced()) {
+        return lock;
+      }
+      lock.release();
+    }
+  }
+
+  private boolean isReplaced() throws IOException {
+    Object currentKey = currentFileKey();
+    return currentKey != null && !currentKey.equals(fileKey);
+  }
+
+  private Object currentFileKey() throws IOException {
+    return Files.readAttributes(dataFile.toPath(), BasicFileAttributes.class)
+        .fileKey();
+  }
+
+  private void reopen() throws IOException {
+    channel.close();
+    open();
+  }
+
+  private void updateIndex(String key, long valueOffset, long valueLength) {
+    long[] old;
+    if (valueLength == TOMBSTONE) {
+      old = index.remove(key);
+      deadRecords++;
+    } else {
+      old = index.put(key, new long[] {valueOffset, valueLength});
+    }
+    if (old != null) {
+      deadRecords++;
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      position += read;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary codec of job / model info maps.
+ *
+ * Layout: magic (int), format version (byte), number of entries (int), then
+ * key and value of every entry as length (int) prefixed UTF-8 bytes, a
+ * length of -1 stands for null.
+ *
+ * Info files written with Java serialization by older versions are still
+ * decoded, they are recognized by the stream header of Java serialization.
+ */
+public final class InfoMapCodec {
+  static final int MAGIC = 0x53424d49;
+  static final byte VERSION = 1;
+
+  // First two bytes of an ObjectOutputStream
+  private static final int JAVA_SERIALIZATION_MAGIC = 0xaced;
+
+  private InfoMapCodec() {
+  }
+
+  public static byte[] encode(Map<String, String> map) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(
+        estimateSize(map));
+    write(bos, map);
+    return bos.toByteArray();
+  }
+
+  public static void write(OutputStream os, Map<String, String> map)
+      throws IOException {
+    DataOutputStream out = new DataOutputStream(os);
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeInt(map.size());
+    for (Map.Entry<String, String> e : map.entrySet()) {
+      writeString(out, e.getKey());
+      writeString(out, e.getValue());
+    }
+    out.flush();
+  }
+
+  public static Map<String, String> decode(byte[] bytes) throws IOException {
+    if (bytes.length >= 2
+        && ((bytes[0] & 0xff) << 8 | (bytes[1] & 0xff))
+        == JAVA_SERIALIZATION_MAGIC) {
+      return decodeLegacy(bytes);
+    }
+
+    DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(bytes));
+    if (bytes.length < 4 || in.readInt() != MAGIC) {
+      throw new IOException("Not an encoded info map");
+    }
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported info map version=" + version);
+    }
+    int size = in.readInt();
+    Map<String, String> map = new HashMap<>(Math.max(16, size * 2));
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readString(in));
+    }
+    return map;
+  }
+
+  /**
+   * Read a map written by {@link #write} or by Java serialization, the
+   * stream is consumed to its end.
+   */
+  public static Map<String, String> read(InputStream in) throws IOException {
+    return decode(IOUtils.toByteArray(in));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, String> decodeLegacy(byte[] bytes)
+      throws IOException {
+    try (ObjectInputStream oi = new ObjectInputStream(
+        new ByteArrayInputStream(bytes))) {
+      return (Map<String, String>) oi.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s)
+      throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int estimateSize(Map<String, String> map) {
+    int size = 9;
+    for (Map.Entry<String, String> e : map.entrySet()) {
+      size += 8 + length(e.getKey()) + length(e.getValue());
+    }
+    return size;
+  }
+
+  private static int length(String s) {
+    return s == null ? 0 : s.length();
+  }
+}
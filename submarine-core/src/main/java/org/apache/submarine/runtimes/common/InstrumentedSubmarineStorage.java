@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.submarine.common.metrics.OperationMetrics;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures every call to a {@link SubmarineStorage}. When it wraps a
+ * {@link CachingSubmarineStorage}, the number of FileSystem operations per
+ * call shows what the cache saves.
+ */
+public class InstrumentedSubmarineStorage extends SubmarineStorage {
+  private final SubmarineStorage storage;
+  private final OperationMetrics metrics;
+
+  public InstrumentedSubmarineStorage(SubmarineStorage storage,
+      OperationMetrics metrics) {
+    this.storage = storage;
+    this.metrics = metrics;
+  }
+
+  public SubmarineStorage getUnderlyingStorage() {
+    return storage;
+  }
+
+  public OperationMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void addNewJob(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    metrics.measure("addNewJob", () -> {
+      storage.addNewJob(jobName, jobInfo);
+      return null;
+    });
+  }
+
+  @Override
+  public Map<String, String> getJobInfoByName(String jobName)
+      throws IOException {
+    return metrics.measure("getJobInfoByName",
+        () -> storage.getJobInfoByName(jobName));
+  }
+
+  @Override
+  public void addNewJobs(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    metrics.measure("addNewJobs", () -> {
+      storage.addNewJobs(jobInfos);
+      return null;
+    });
+  }
+
+  @Override
+  public Map<String, Map<String, String>> getJobInfos(
+      Collection<String> jobNames) throws IOException {
+    return metrics.measure("getJobInfos",
+        () -> storage.getJobInfos(jobNames));
+  }
+
+  @Override
+  public List<String> getJobNamesByInfo(String key, String value)
+      throws IOException {
+    return metrics.measure("getJobNamesByInfo",
+        () -> storage.getJobNamesByInfo(key, value));
+  }
+
+  @Override
+  public void addNewModel(String modelName, String version,
+      Map<String, String> modelInfo) throws IOException {
+    metrics.measure("addNewModel", () -> {
+      storage.addNewModel(modelName, version, modelInfo);
+      return null;
+    });
+  }
+
+  @Override
+  public Map<String, String> getModelInfoByName(String modelName,
+      String version) throws IOException {
+    return metrics.measure("getModelInfoByName",
+        () -> storage.getModelInfoByName(modelName, version));
+  }
+
+  @Override
+  public List<String> listModelVersions(String modelName)
+      throws IOException {
+    return metrics.measure("listModelVersions",
+        () -> storage.listModelVersions(modelName));
+  }
+
+  @Override
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    return metrics.measure("getLatestModelInfo",
+        () -> storage.getLatestModelInfo(modelName));
+  }
+}
@@ -0,0 +1,425 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Log-structured catalog of job records kept on a (remote) file system.
+ *
+ * Records are appended to immutable segment files. Every segment
+ * "seg-[id].data" has a sorted index "seg-[id].index" next to it, the index
+ * is written last and its presence commits the segment. A segment id is a
+ * sequence number followed by the id of its writer (host name and a random
+ * suffix). Each client numbers its segments after the highest sequence it
+ * has seen, so a record shadows every record of the same job its writer
+ * could have read. Records written concurrently by clients that have not
+ * seen each other are ordered by writer id.
+ *
+ * Index entries keep the id of the segment a record was first written to,
+ * records moved by a compaction keep their order against segments
+ * committed while it ran.
+ *
+ * Looking a job up costs one positioned read once the indexes are loaded,
+ * listing all jobs reads each segment once, sequentially. Segments are
+ * merged into one when there are more than the configured maximum.
+ */
+public class JobCatalog {
+  private static final Logger LOG = LoggerFactory.getLogger(JobCatalog.class);
+
+  private static final String SEGMENT_PREFIX = "seg-";
+  private static final String DATA_SUFFIX = ".data";
+  private static final String INDEX_SUFFIX = ".index";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int INDEX_MAGIC = 0x53424a43;
+
+  private final FileSystem fs;
+  private final Path catalogDir;
+  private final int maxSegments;
+  private final String writerId;
+
+  // job name -> location of its latest record
+  private final Map<String, Entry> index = new HashMap<>();
+  private final Set<String> loadedSegments = new HashSet<>();
+  // Highest segment sequence seen, -1 until the catalog is listed
+  private long lastSequence = -1;
+
+  public JobCatalog(FileSystem fs, Path catalogDir, int maxSegments) {
+    this.fs = fs;
+    this.catalogDir = catalogDir;
+    this.maxSegments = maxSegments;
+    this.writerId = getHostName() + "-"
+        + UUID.randomUUID().toString().substring(0, 8);
+  }
+
+  /**
+   * Add or replace a single job record.
+   */
+  public void put(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    putAll(Collections.singletonMap(jobName, jobInfo));
+  }
+
+  /**
+   * Add or replace job records, all of them are written into one segment.
+   */
+  public synchronized void putAll(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    if (jobInfos.isEmpty()) {
+      return;
+    }
+    if (lastSequence < 0) {
+      // Number the first segment after those already in the catalog
+      refresh(false);
+    }
+    String segment = newSegmentId();
+    writeSegment(segment, new TreeMap<>(jobInfos),
+        Collections.emptyMap());
+    LOG.debug("Wrote {} job record(s) to catalog segment {}",
+        jobInfos.size(), segment);
+
+    // Segments of other clients are counted once they are loaded
+    if (loadedSegments.size() > maxSegments) {
+      try {
+        compact();
+      } catch (IOException e) {
+        // Records are committed already, another client may be compacting.
+        LOG.warn("Failed to compact job catalog " + catalogDir, e);
+      }
+    }
+  }
+
+  /**
+   * Get a job record by name.
+   * @throws FileNotFoundException when the job is not in the catalog.
+   */
+  public synchronized Map<String, String> get(String jobName)
+      throws IOException {
+    Entry entry = index.get(jobName);
+    if (entry == null) {
+      // May be written by another client since we last looked.
+      refresh(false);
+      entry = index.get(jobName);
+    }
+    if (entry == null) {
+      throw new FileNotFoundException(
+          "Failed to find job=" + jobName + " in catalog " + catalogDir);
+    }
+
+    try {
+      return readRecord(entry);
+    } catch (FileNotFoundException e) {
+      // Segment was compacted away by another client, reload everything.
+      refresh(true);
+      entry = index.get(jobName);
+      if (entry == null) {
+        throw e;
+      }
+      return readRecord(entry);
+    }
+  }
+
+  /**
+   * Get records of given jobs with one listing of the catalog, each segment
+   * holding any of them is opened once.
+   * @return job name to job info of the jobs found in the catalog.
+   */
+  public synchronized Map<String, Map<String, String>> getAll(
+      Collection<String> jobNames) throws IOException {
+    refresh(false);
+    try {
+      return readRecords(jobNames);
+    } catch (FileNotFoundException e) {
+      // Segment was compacted away by another client, reload everything.
+      refresh(true);
+      return readRecords(jobNames);
+    }
+  }
+
+  /**
+   * Get all job records, each segment is read once sequentially.
+   * @return job name to job info, sorted by job name.
+   */
+  public synchronized Map<String, Map<String, String>> getAll()
+      throws IOException {
+    refresh(true);
+    Map<String, Map<String, String>> result = new TreeMap<>();
+    for (String segment : loadedSegments) {
+      try (FSDataInputStream in = fs.open(dataPath(segment))) {
+        while (true) {
+          String jobName;
+          try {
+            jobName = in.readUTF();
+          } catch (EOFException e) {
+            break;
+          }
+          byte[] payload = new byte[in.readInt()];
+          in.readFully(payload);
+
+          // A job is written at most once per segment
+          Entry entry = index.get(jobName);
+          if (entry != null && entry.segment.equals(segment)) {
+            result.put(jobName, InfoMapCodec.decode(payload));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Merge all committed segments into a single one.
+   */
+  public synchronized void compact() throws IOException {
+    refresh(true);
+    if (loadedSegments.size() <= 1) {
+      return;
+    }
+    List<String> oldSegments = new ArrayList<>(loadedSegments);
+    Map<String, Map<String, String>> all = getAll();
+    Map<String, String> origins = new HashMap<>();
+    for (String jobName : all.keySet()) {
+      origins.put(jobName, index.get(jobName).origin);
+    }
+
+    // Merged records keep their origin, segments committed concurrently by
+    // other clients are ordered against them as if nothing was merged.
+    String merged = newSegmentId();
+    writeSegment(merged, all, origins);
+
+    for (String segment : oldSegments) {
+      fs.delete(indexPath(segment), false);
+      fs.delete(dataPath(segment), false);
+      loadedSegments.remove(segment);
+    }
+    LOG.info("Compacted {} catalog segments into {}", oldSegments.size(),
+        merged);
+    refresh(true);
+  }
+
+  /**
+   * @param origins segment each record was first written to, records not
+   *                in it originate from this segment.
+   */
+  private void writeSegment(String segment,
+      Map<String, Map<String, String>> sortedJobInfos,
+      Map<String, String> origins) throws IOException {
+    Map<String, Entry> written = new TreeMap<>();
+    try (FSDataOutputStream out = fs.create(dataPath(segment), false)) {
+      for (Map.Entry<String, Map<String, String>> job
+          : sortedJobInfos.entrySet()) {
+        byte[] payload = InfoMapCodec.encode(job.getValue());
+        String origin = origins.get(job.getKey());
+        out.writeUTF(job.getKey());
+        out.writeInt(payload.length);
+        written.put(job.getKey(), new Entry(segment,
+            origin == null ? segment : origin, out.getPos(), payload.length));
+        out.write(payload);
+      }
+    }
+
+    Path tmpIndex = new Path(catalogDir, segment + INDEX_SUFFIX + TMP_SUFFIX);
+    try (FSDataOutputStream out = fs.create(tmpIndex, true)) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(written.size());
+      for (Map.Entry<String, Entry> e : written.entrySet()) {
+        out.writeUTF(e.getKey());
+        out.writeUTF(e.getValue().origin);
+        out.writeLong(e.getValue().offset);
+        out.writeInt(e.getValue().length);
+      }
+    }
+    if (!fs.rename(tmpIndex, indexPath(segment))) {
+      throw new IOException("Failed to commit catalog segment " + segment);
+    }
+
+    loadedSegments.add(segment);
+    for (Map.Entry<String, Entry> e : written.entrySet()) {
+      addEntry(e.getKey(), e.getValue());
+    }
+  }
+
+  private List<String> listSegments() throws IOException {
+    List<String> segments = new ArrayList<>();
+    if (!fs.exists(catalogDir)) {
+      return segments;
+    }
+    for (FileStatus status : fs.listStatus(catalogDir)) {
+      String name = status.getPath().getName();
+      if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(INDEX_SUFFIX)) {
+        segments.add(name.substring(0,
+            name.length() - INDEX_SUFFIX.length()));
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * Load indexes of segments written since last time, or of all segments
+   * when full is true.
+   */
+  private void refresh(boolean full) throws IOException {
+    List<String> segments = listSegments();
+    if (full) {
+      index.clear();
+      loadedSegments.clear();
+    } else if (!segments.containsAll(loadedSegments)) {
+      // Something got compacted, incremental load would miss records.
+      refresh(true);
+      return;
+    }
+
+    for (String segment : segments) {
+      lastSequence = Math.max(lastSequence, getSequence(segment));
+      if (loadedSegments.contains(segment)) {
+        continue;
+      }
+      try {
+        readIndex(segment);
+      } catch (FileNotFoundException e) {
+        // Removed by a concurrent compaction, its records are in the
+        // merged segment.
+        continue;
+      }
+      loadedSegments.add(segment);
+    }
+  }
+
+  private void readIndex(String segment) throws IOException {
+    try (FSDataInputStream in = fs.open(indexPath(segment))) {
+      if (in.readInt() != INDEX_MAGIC) {
+        throw new IOException("Corrupted catalog index " + indexPath(segment));
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String jobName = in.readUTF();
+        String origin = in.readUTF();
+        long offset = in.readLong();
+        int length = in.readInt();
+        addEntry(jobName, new Entry(segment, origin, offset, length));
+      }
+    }
+  }
+
+  private void addEntry(String jobName, Entry entry) {
+    Entry existing = index.get(jobName);
+    // Record of the newer origin wins
+    if (existing == null || existing.origin.compareTo(entry.origin) <= 0) {
+      index.put(jobName, entry);
+    }
+  }
+
+  private Map<String, Map<String, String>> readRecords(
+      Collection<String> jobNames) throws IOException {
+    Map<String, Map<String, Entry>> bySegment = new TreeMap<>();
+    for (String jobName : jobNames) {
+      Entry entry = index.get(jobName);
+      if (entry != null) {
+        bySegment.computeIfAbsent(entry.segment, k -> new HashMap<>())
+            .put(jobName, entry);
+      }
+    }
+    Map<String, Map<String, String>> result = new HashMap<>();
+    for (Map.Entry<String, Map<String, Entry>> segment
+        : bySegment.entrySet()) {
+      try (FSDataInputStream in = fs.open(dataPath(segment.getKey()))) {
+        for (Map.Entry<String, Entry> e : segment.getValue().entrySet()) {
+          byte[] payload = new byte[e.getValue().length];
+          in.readFully(e.getValue().offset, payload);
+          result.put(e.getKey(), InfoMapCodec.decode(payload));
+        }
+      }
+    }
+    return result;
+  }
+
+  private Map<String, String> readRecord(Entry entry) throws IOException {
+    byte[] payload = new byte[entry.length];
+    try (FSDataInputStream in = fs.open(dataPath(entry.segment))) {
+      in.readFully(entry.offset, payload);
+    }
+    return InfoMapCodec.decode(payload);
+  }
+
+  private String newSegmentId() {
+    lastSequence++;
+    return String.format("%s%019d-%s", SEGMENT_PREFIX, lastSequence,
+        writerId);
+  }
+
+  private static long getSequence(String segment) {
+    int end = segment.indexOf('-', SEGMENT_PREFIX.length());
+    try {
+      return Long.parseLong(segment.substring(SEGMENT_PREFIX.length(),
+          end < 0 ? segment.length() : end));
+    } catch (NumberFormatException e) {
+      LOG.warn("Unexpected catalog segment name " + segment);
+      return -1;
+    }
+  }
+
+  private static String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "localhost";
+    }
+  }
+
+  private Path dataPath(String segment) {
+    return new Path(catalogDir, segment + DATA_SUFFIX);
+  }
+
+  private Path indexPath(String segment) {
+    return new Path(catalogDir, segment + INDEX_SUFFIX);
+  }
+
+  private static class Entry {
+    private final String segment;
+    private final String origin;
+    private final long offset;
+    private final int length;
+
+    Entry(String segment, String origin, long offset, int length) {
+      this.segment = segment;
+      this.origin = origin;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,348 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.submarine.common.api.JobState;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, column oriented set of {@link JobHistoryRecord}s.
+ *
+ * Every field is kept in a primitive array indexed by row, strings are
+ * dictionary encoded. Aggregates only touch the columns they need and
+ * never materialize records, so they run over millions of rows in a few
+ * milliseconds.
+ */
+public class JobHistory {
+  private static final double MS_PER_HOUR = 3600 * 1000;
+  private static final byte NO_STATE = -1;
+
+  // job names and queues share one dictionary
+  private final String[] dictionary;
+  private final int size;
+  private final int[] jobName;
+  private final int[] queue;
+  private final long[] submitTime;
+  private final long[] finishTime;
+  private final byte[] state;
+  private final int[] numWorkers;
+  private final long[] workerVcores;
+  private final long[] workerMemoryMB;
+  private final long[] workerGpus;
+  private final int[] numPs;
+  private final long[] psVcores;
+  private final long[] psMemoryMB;
+  private final long[] psGpus;
+
+  private JobHistory(String[] dictionary, int size) {
+    this.dictionary = dictionary;
+    this.size = size;
+    jobName = new int[size];
+    queue = new int[size];
+    submitTime = new long[size];
+    finishTime = new long[size];
+    state = new byte[size];
+    numWorkers = new int[size];
+    workerVcores = new long[size];
+    workerMemoryMB = new long[size];
+    workerGpus = new long[size];
+    numPs = new int[size];
+    psVcores = new long[size];
+    psMemoryMB = new long[size];
+    psGpus = new long[size];
+  }
+
+  public static JobHistory of(List<JobHistoryRecord> records) {
+    Map<String, Integer> codes = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    int[] jobNames = new int[records.size()];
+    int[] queues = new int[records.size()];
+    for (int i = 0; i < records.size(); i++) {
+      jobNames[i] = encode(records.get(i).getJobName(), codes, dictionary);
+      queues[i] = encode(records.get(i).getQueue(), codes, dictionary);
+    }
+
+    JobHistory history = new JobHistory(
+        dictionary.toArray(new String[0]), records.size());
+    for (int i = 0; i < records.size(); i++) {
+      JobHistoryRecord record = records.get(i);
+      history.jobName[i] = jobNames[i];
+      history.queue[i] = queues[i];
+      history.submitTime[i] = record.getSubmitTime();
+      history.finishTime[i] = record.getFinishTime();
+      history.state[i] = record.getFinalState() == null ? NO_STATE
+          : (byte) record.getFinalState().ordinal();
+      history.numWorkers[i] = record.getNumWorkers();
+      history.workerVcores[i] = record.getWorkerVcores();
+      history.workerMemoryMB[i] = record.getWorkerMemoryMB();
+      history.workerGpus[i] = record.getWorkerGpus();
+      history.numPs[i] = record.getNumPs();
+      history.psVcores[i] = record.getPsVcores();
+      history.psMemoryMB[i] = record.getPsMemoryMB();
+      history.psGpus[i] = record.getPsGpus();
+    }
+    return history;
+  }
+
+  private static int encode(String value, Map<String, Integer> codes,
+      List<String> dictionary) {
+    if (value == null) {
+      return -1;
+    }
+    Integer code = codes.get(value);
+    if (code == null) {
+      code = dictionary.size();
+      codes.put(value, code);
+      dictionary.add(value);
+    }
+    return code;
+  }
+
+  /**
+   * Concatenate histories, rows keep their order.
+   */
+  public static JobHistory concat(List<JobHistory> histories) {
+    Map<String, Integer> codes = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    int size = 0;
+    List<int[]> remaps = new ArrayList<>(histories.size());
+    for (JobHistory history : histories) {
+      int[] remap = new int[history.dictionary.length];
+      for (int i = 0; i < remap.length; i++) {
+        remap[i] = encode(history.dictionary[i], codes, dictionary);
+      }
+      remaps.add(remap);
+      size += history.size;
+    }
+
+    JobHistory result = new JobHistory(
+        dictionary.toArray(new String[0]), size);
+    int offset = 0;
+    for (int h = 0; h < histories.size(); h++) {
+      JobHistory history = histories.get(h);
+      int[] remap = remaps.get(h);
+      int n = history.size;
+      for (int i = 0; i < n; i++) {
+        result.jobName[offset + i] = remap(remap, history.jobName[i]);
+        result.queue[offset + i] = remap(remap, history.queue[i]);
+      }
+      System.arraycopy(history.submitTime, 0, result.submitTime, offset, n);
+      System.arraycopy(history.finishTime, 0, result.finishTime, offset, n);
+      System.arraycopy(history.state, 0, result.state, offset, n);
+      System.arraycopy(history.numWorkers, 0, result.numWorkers, offset, n);
+      System.arraycopy(history.workerVcores, 0, result.workerVcores, offset,
+          n);
+      System.arraycopy(history.workerMemoryMB, 0, result.workerMemoryMB,
+          offset, n);
+      System.arraycopy(history.workerGpus, 0, result.workerGpus, offset, n);
+      System.arraycopy(history.numPs, 0, result.numPs, offset, n);
+      System.arraycopy(history.psVcores, 0, result.psVcores, offset, n);
+      System.arraycopy(history.psMemoryMB, 0, result.psMemoryMB, offset, n);
+      System.arraycopy(history.psGpus, 0, result.psGpus, offset, n);
+      offset += n;
+    }
+    return result;
+  }
+
+  private static int remap(int[] remap, int code) {
+    return code < 0 ? code : remap[code];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public JobHistoryRecord getRecord(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("row=" + row + ", size=" + size);
+    }
+    return new JobHistoryRecord()
+        .setJobName(lookup(jobName[row]))
+        .setQueue(lookup(queue[row]))
+        .setSubmitTime(submitTime[row])
+        .setFinishTime(finishTime[row])
+        .setFinalState(state[row] == NO_STATE ? null
+            : JobState.values()[state[row]])
+        .setWorkers(numWorkers[row], workerVcores[row], workerMemoryMB[row],
+            workerGpus[row])
+        .setPs(numPs[row], psVcores[row], psMemoryMB[row], psGpus[row]);
+  }
+
+  private String lookup(int code) {
+    return code < 0 ? null : dictionary[code];
+  }
+
+  /**
+   * GPU hours of jobs finished within [from, to), by queue. Jobs without
+   * queue are counted under null.
+   */
+  public Map<String, Double> getGpuHoursByQueue(long from, long to) {
+    // Indexed by dictionary code + 1, the first slot is for no queue
+    double[] gpuHours = new double[dictionary.length + 1];
+    boolean[] seen = new boolean[dictionary.length + 1];
+    for (int i = 0; i < size; i++) {
+      if (finishTime[i] >= from && finishTime[i] < to) {
+        long gpus = numWorkers[i] * workerGpus[i] + numPs[i] * psGpus[i];
+        gpuHours[queue[i] + 1] +=
+            gpus * (finishTime[i] - submitTime[i]) / MS_PER_HOUR;
+        seen[queue[i] + 1] = true;
+      }
+    }
+
+    Map<String, Double> result = new HashMap<>();
+    for (int code = 0; code < seen.length; code++) {
+      if (seen[code]) {
+        result.put(lookup(code - 1), gpuHours[code]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Number of jobs finished within [from, to), by final state.
+   */
+  public Map<JobState, Integer> countByState(long from, long to) {
+    int[] counts = new int[JobState.values().length];
+    for (int i = 0; i < size; i++) {
+      if (state[i] != NO_STATE && finishTime[i] >= from
+          && finishTime[i] < to) {
+        counts[state[i]]++;
+      }
+    }
+
+    Map<JobState, Integer> result = new EnumMap<>(JobState.class);
+    for (JobState jobState : JobState.values()) {
+      if (counts[jobState.ordinal()] > 0) {
+        result.put(jobState, counts[jobState.ordinal()]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Mean duration of jobs finished within [from, to), by queue. Jobs
+   * without queue are counted under null.
+   */
+  public Map<String, Long> getMeanDurationMsByQueue(long from, long to) {
+    long[] total = new long[dictionary.length + 1];
+    int[] count = new int[dictionary.length + 1];
+    for (int i = 0; i < size; i++) {
+      if (finishTime[i] >= from && finishTime[i] < to) {
+        total[queue[i] + 1] += finishTime[i] - submitTime[i];
+        count[queue[i] + 1]++;
+      }
+    }
+
+    Map<String, Long> result = new HashMap<>();
+    for (int code = 0; code < count.length; code++) {
+      if (count[code] > 0) {
+        result.put(lookup(code - 1), total[code] / count[code]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Write dictionary and columns, one column after the other.
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(dictionary.length);
+    for (String value : dictionary) {
+      writeString(out, value);
+    }
+    out.writeInt(size);
+    for (int[] column : Arrays.asList(jobName, queue, numWorkers, numPs)) {
+      for (int value : column) {
+        out.writeInt(value);
+      }
+    }
+    for (long[] column : Arrays.asList(submitTime, finishTime, workerVcores,
+        workerMemoryMB, workerGpus, psVcores, psMemoryMB, psGpus)) {
+      for (long value : column) {
+        out.writeLong(value);
+      }
+    }
+    // States are written by name, the byte column indexes this list
+    out.writeInt(JobState.values().length);
+    for (JobState jobState : JobState.values()) {
+      writeString(out, jobState.name());
+    }
+    out.write(state);
+  }
+
+  /**
+   * Read what was written by {@link #write}, columns are bulk copied.
+   */
+  static JobHistory read(ByteBuffer in) throws IOException {
+    String[] dictionary = new String[in.getInt()];
+    for (int i = 0; i < dictionary.length; i++) {
+      dictionary[i] = readString(in);
+    }
+    JobHistory history = new JobHistory(dictionary, in.getInt());
+    for (int[] column : Arrays.asList(history.jobName, history.queue,
+        history.numWorkers, history.numPs)) {
+      in.asIntBuffer().get(column);
+      in.position(in.position() + column.length * Integer.BYTES);
+    }
+    for (long[] column : Arrays.asList(history.submitTime,
+        history.finishTime, history.workerVcores, history.workerMemoryMB,
+        history.workerGpus, history.psVcores, history.psMemoryMB,
+        history.psGpus)) {
+      in.asLongBuffer().get(column);
+      in.position(in.position() + column.length * Long.BYTES);
+    }
+    byte[] ordinals = new byte[in.getInt()];
+    for (int i = 0; i < ordinals.length; i++) {
+      String name = readString(in);
+      try {
+        ordinals[i] = (byte) JobState.valueOf(name).ordinal();
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Unknown job state " + name
+            + " in job history");
+      }
+    }
+    in.get(history.state);
+    for (int i = 0; i < history.size; i++) {
+      if (history.state[i] != NO_STATE) {
+        history.state[i] = ordinals[history.state[i]];
+      }
+    }
+    return history;
+  }
+
+  static void writeString(DataOutputStream out, String value)
+      throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,188 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.submarine.common.api.JobState;
+
+import java.util.Map;
+
+/**
+ * A finished job as recorded in the {@link JobHistoryStore}.
+ *
+ * Resources are per container of a role, memory in MB. What is known at
+ * submission is kept in the job info until the job finished, see
+ * {@link JobHistoryRecorder}.
+ */
+public class JobHistoryRecord {
+  private String jobName;
+  private String queue;
+  private long submitTime;
+  private long finishTime;
+  private JobState finalState;
+  private int numWorkers;
+  private long workerVcores;
+  private long workerMemoryMB;
+  private long workerGpus;
+  private int numPs;
+  private long psVcores;
+  private long psMemoryMB;
+  private long psGpus;
+
+  public String getJobName() {
+    return jobName;
+  }
+
+  public JobHistoryRecord setJobName(String jobName) {
+    this.jobName = jobName;
+    return this;
+  }
+
+  public String getQueue() {
+    return queue;
+  }
+
+  public JobHistoryRecord setQueue(String queue) {
+    this.queue = queue;
+    return this;
+  }
+
+  public long getSubmitTime() {
+    return submitTime;
+  }
+
+  public JobHistoryRecord setSubmitTime(long submitTime) {
+    this.submitTime = submitTime;
+    return this;
+  }
+
+  public long getFinishTime() {
+    return finishTime;
+  }
+
+  public JobHistoryRecord setFinishTime(long finishTime) {
+    this.finishTime = finishTime;
+    return this;
+  }
+
+  public long getDurationMs() {
+    return finishTime - submitTime;
+  }
+
+  public JobState getFinalState() {
+    return finalState;
+  }
+
+  public JobHistoryRecord setFinalState(JobState finalState) {
+    this.finalState = finalState;
+    return this;
+  }
+
+  public int getNumWorkers() {
+    return numWorkers;
+  }
+
+  public long getWorkerVcores() {
+    return workerVcores;
+  }
+
+  public long getWorkerMemoryMB() {
+    return workerMemoryMB;
+  }
+
+  public long getWorkerGpus() {
+    return workerGpus;
+  }
+
+  public JobHistoryRecord setWorkers(int numWorkers, long vcores,
+      long memoryMB, long gpus) {
+    this.numWorkers = numWorkers;
+    this.workerVcores = vcores;
+    this.workerMemoryMB = memoryMB;
+    this.workerGpus = gpus;
+    return this;
+  }
+
+  public int getNumPs() {
+    return numPs;
+  }
+
+  public long getPsVcores() {
+    return psVcores;
+  }
+
+  public long getPsMemoryMB() {
+    return psMemoryMB;
+  }
+
+  public long getPsGpus() {
+    return psGpus;
+  }
+
+  public JobHistoryRecord setPs(int numPs, long vcores, long memoryMB,
+      long gpus) {
+    this.numPs = numPs;
+    this.psVcores = vcores;
+    this.psMemoryMB = memoryMB;
+    this.psGpus = gpus;
+    return this;
+  }
+
+  /**
+   * Put what is known at submission into given job info.
+   */
+  public void toJobInfo(Map<String, String> jobInfo) {
+    jobInfo.put(StorageKeyConstants.SUBMIT_TIME, String.valueOf(submitTime));
+    if (queue != null) {
+      jobInfo.put(StorageKeyConstants.QUEUE, queue);
+    }
+    jobInfo.put(StorageKeyConstants.WORKER_RESOURCES, String.format(
+        "%d,%d,%d,%d", numWorkers, workerVcores, workerMemoryMB, workerGpus));
+    jobInfo.put(StorageKeyConstants.PS_RESOURCES, String.format(
+        "%d,%d,%d,%d", numPs, psVcores, psMemoryMB, psGpus));
+  }
+
+  /**
+   * @return record of the job as it was submitted, without finish time and
+   *         final state. Null when the job info has no record.
+   */
+  public static JobHistoryRecord fromJobInfo(Map<String, String> jobInfo) {
+    String submitTime = jobInfo.get(StorageKeyConstants.SUBMIT_TIME);
+    if (submitTime == null) {
+      return null;
+    }
+    JobHistoryRecord record = new JobHistoryRecord()
+        .setJobName(jobInfo.get(StorageKeyConstants.JOB_NAME))
+        .setQueue(jobInfo.get(StorageKeyConstants.QUEUE))
+        .setSubmitTime(Long.parseLong(submitTime));
+    long[] workers = parseResources(
+        jobInfo.get(StorageKeyConstants.WORKER_RESOURCES));
+    record.setWorkers((int) workers[0], workers[1], workers[2], workers[3]);
+    long[] ps = parseResources(jobInfo.get(StorageKeyConstants.PS_RESOURCES));
+    record.setPs((int) ps[0], ps[1], ps[2], ps[3]);
+    return record;
+  }
+
+  private static long[] parseResources(String value) {
+    long[] resources = new long[4];
+    if (value != null) {
+      String[] parts = value.split(",");
+      for (int i = 0; i < resources.length && i < parts.length; i++) {
+        resources[i] = Long.parseLong(parts[i]);
+      }
+    }
+    return resources;
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.api.JobState;
+import org.apache.submarine.common.api.JobStatus;
+import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.apache.submarine.runtimes.RuntimeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adds a job to the {@link JobHistoryStore} wherever its final status is
+ * seen first: by a client waiting for the job, or by the garbage collector
+ * of staging areas.
+ *
+ * The job info tells whether a job was recorded already. Clients seeing it
+ * finish at the same time race for a claim file in the staging area of the
+ * job, created with overwrite off, so only one of them records it. The
+ * claim is named after the submit time, a job submitted again under the
+ * same name is recorded again.
+ */
+public class JobHistoryRecorder {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(JobHistoryRecorder.class);
+
+  private static final String CLAIM_PREFIX = "history-";
+  private static final String CLAIM_SUFFIX = ".recorded";
+
+  private final ClientContext clientContext;
+
+  public JobHistoryRecorder(ClientContext clientContext) {
+    this.clientContext = clientContext;
+  }
+
+  /**
+   * Record the job if given status is final. Jobs are skipped when the
+   * status doesn't tell when they finished, since the time they are seen
+   * finished may be much later. Failures are logged only, the history is
+   * informational.
+   */
+  public void recordIfFinal(String jobName, JobStatus status) {
+    if (status == null || !JobState.isFinal(status.getState())) {
+      return;
+    }
+    if (status.getFinishTime() <= 0) {
+      LOG.debug("Finish time of job {} is unknown, not recording it",
+          jobName);
+      return;
+    }
+    try {
+      RuntimeFactory runtimeFactory = clientContext.getRuntimeFactory();
+      JobHistoryStore historyStore = runtimeFactory.getJobHistoryStore();
+      if (historyStore == null) {
+        return;
+      }
+      SubmarineStorage storage = runtimeFactory.getSubmarineStorage();
+      Map<String, String> jobInfo = storage.getJobInfoByName(jobName);
+      JobHistoryRecord record = JobHistoryRecord.fromJobInfo(jobInfo);
+      if (record == null
+          || jobInfo.containsKey(StorageKeyConstants.HISTORY_RECORDED)) {
+        return;
+      }
+
+      RemoteDirectoryManager rdm = clientContext.getRemoteDirectoryManager();
+      FileSystem fs = rdm.getDefaultFileSystem();
+      Path claim = new Path(rdm.getJobStagingArea(jobName, false),
+          CLAIM_PREFIX + record.getSubmitTime() + CLAIM_SUFFIX);
+      try {
+        fs.create(claim, false).close();
+      } catch (FileAlreadyExistsException e) {
+        LOG.debug("Job {} is recorded by another client", jobName);
+        return;
+      }
+      try {
+        historyStore.add(record.setJobName(jobName)
+            .setFinishTime(status.getFinishTime())
+            .setFinalState(status.getState()));
+      } catch (IOException | RuntimeException e) {
+        // Let the next client which sees it finished try again
+        fs.delete(claim, false);
+        throw e;
+      }
+
+      Map<String, String> recorded = new HashMap<>(jobInfo);
+      recorded.put(StorageKeyConstants.HISTORY_RECORDED, "true");
+      storage.addNewJob(jobName, recorded);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to record history of job " + jobName, e);
+    }
+  }
+}
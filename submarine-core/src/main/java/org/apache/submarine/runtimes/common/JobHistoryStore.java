@@ -0,0 +1,335 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Append-only history of finished jobs kept on a (remote) file system, next
+ * to {@link SubmarineStorage}.
+ *
+ * Records are written to immutable block files "block-[id].col", each
+ * holding a {@link JobHistory} in columnar layout. A block becomes visible
+ * once it is renamed from its temporary name. When there are more than the
+ * configured maximum, the newest blocks are merged, as many as keep block
+ * sizes growing geometrically from the newest to the oldest one, so every
+ * record is rewritten a logarithmic number of times only. A merged block
+ * names the blocks it covers so readers racing with the merge don't count
+ * rows twice. Only one client merges at a time, guarded by a lock file.
+ */
+public class JobHistoryStore {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(JobHistoryStore.class);
+
+  private static final String BLOCK_PREFIX = "block-";
+  private static final String BLOCK_SUFFIX = ".col";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final String COMPACT_LOCK = "_compacting";
+  // A lock older than this is left over by a crashed client
+  private static final long COMPACT_LOCK_EXPIRY_MS = 10 * 60 * 1000;
+  private static final int MAGIC = 0x53424a48;
+  private static final byte VERSION = 1;
+
+  private final FileSystem fs;
+  private final Path historyDir;
+  private final int maxBlocks;
+
+  public JobHistoryStore(FileSystem fs, Path historyDir, int maxBlocks) {
+    this.fs = fs;
+    this.historyDir = historyDir;
+    this.maxBlocks = maxBlocks;
+  }
+
+  public void add(JobHistoryRecord record) throws IOException {
+    addAll(Collections.singletonList(record));
+  }
+
+  /**
+   * Append records, all of them are written into one block.
+   */
+  public synchronized void addAll(List<JobHistoryRecord> records)
+      throws IOException {
+    if (records.isEmpty()) {
+      return;
+    }
+    String block = writeBlock(newBlockId(), Collections.emptyList(),
+        JobHistory.of(records));
+    LOG.debug("Wrote {} job history record(s) to block {}", records.size(),
+        block);
+
+    if (listBlocks().size() > maxBlocks) {
+      try {
+        merge(false);
+      } catch (IOException e) {
+        // Records are committed already
+        LOG.warn("Failed to compact job history " + historyDir, e);
+      }
+    }
+  }
+
+  /**
+   * Read all records.
+   */
+  public synchronized JobHistory load() throws IOException {
+    Map<String, JobHistory> blocks;
+    try {
+      blocks = readBlocks(listBlocks());
+    } catch (FileNotFoundException e) {
+      // A block was merged and removed after listing, list again.
+      blocks = readBlocks(listBlocks());
+    }
+    return JobHistory.concat(new ArrayList<>(blocks.values()));
+  }
+
+  /**
+   * Merge all blocks into a single one, unless another client is merging
+   * right now.
+   */
+  public synchronized void compact() throws IOException {
+    merge(true);
+  }
+
+  /**
+   * @param all whether to merge all blocks, or only the newest ones until
+   *        there are no more than the maximum number of blocks.
+   */
+  private void merge(boolean all) throws IOException {
+    Path lock = new Path(historyDir, COMPACT_LOCK);
+    if (!acquireCompactLock(lock)) {
+      LOG.info("Job history {} is being compacted by another client",
+          historyDir);
+      return;
+    }
+    try {
+      while (true) {
+        Map<String, Long> existing = listBlockSizes();
+        // Blocks left over by a merge which crashed before deleting them
+        Set<String> covered = new HashSet<>();
+        for (String block : existing.keySet()) {
+          covered.addAll(readCovered(block));
+        }
+        List<String> live = new ArrayList<>(existing.keySet());
+        live.removeAll(covered);
+        if (live.size() <= (all ? 1 : maxBlocks)) {
+          for (String old : covered) {
+            fs.delete(blockPath(old), false);
+          }
+          return;
+        }
+
+        List<String> merged = all ? live : pickNewest(live, existing);
+        List<JobHistory> histories = new ArrayList<>(merged.size());
+        for (String old : merged) {
+          histories.add(readBlock(old));
+        }
+        String block = writeBlock(merged.get(merged.size() - 1) + "-c",
+            merged, JobHistory.concat(histories));
+        for (String old : merged) {
+          fs.delete(blockPath(old), false);
+        }
+        LOG.info("Compacted {} job history blocks into {}", merged.size(),
+            block);
+      }
+    } finally {
+      fs.delete(lock, false);
+    }
+  }
+
+  /**
+   * @return the newest blocks, as long as the next older block is no more
+   *         than twice as large as all of them together, at least two.
+   */
+  private static List<String> pickNewest(List<String> blocks,
+      Map<String, Long> sizes) {
+    int start = blocks.size() - 1;
+    long size = sizes.get(blocks.get(start));
+    while (start > 0 && sizes.get(blocks.get(start - 1)) <= 2 * size) {
+      start--;
+      size += sizes.get(blocks.get(start));
+    }
+    return blocks.subList(Math.min(start, blocks.size() - 2),
+        blocks.size());
+  }
+
+  /**
+   * Only an existing lock means another client is compacting, any other
+   * failure to create the lock is thrown.
+   */
+  private boolean acquireCompactLock(Path lock) throws IOException {
+    try {
+      fs.create(lock, false).close();
+      return true;
+    } catch (FileAlreadyExistsException e) {
+      FileStatus status;
+      try {
+        status = fs.getFileStatus(lock);
+      } catch (FileNotFoundException fnfe) {
+        // Released meanwhile, try with the next compaction
+        return false;
+      }
+      if (System.currentTimeMillis() - status.getModificationTime()
+          > COMPACT_LOCK_EXPIRY_MS) {
+        LOG.warn("Removing expired compaction lock {}", lock);
+        fs.delete(lock, false);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * @return blocks which are not covered by a merged block, by name in the
+   *         order they were written.
+   */
+  private Map<String, JobHistory> readBlocks(List<String> names)
+      throws IOException {
+    Map<String, JobHistory> blocks = new LinkedHashMap<>();
+    Set<String> covered = new HashSet<>();
+    for (String block : names) {
+      ByteBuffer in = readFully(blockPath(block));
+      checkHeader(in.getInt(), in.get(), block);
+      int numCovered = in.getInt();
+      for (int i = 0; i < numCovered; i++) {
+        covered.add(JobHistory.readString(in));
+      }
+      blocks.put(block, JobHistory.read(in));
+    }
+    blocks.keySet().removeAll(covered);
+    return blocks;
+  }
+
+  /**
+   * @return blocks covered by given block, read from its header only.
+   */
+  private List<String> readCovered(String block) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        fs.open(blockPath(block)))) {
+      checkHeader(in.readInt(), in.readByte(), block);
+      int numCovered = in.readInt();
+      List<String> covered = new ArrayList<>(numCovered);
+      for (int i = 0; i < numCovered; i++) {
+        byte[] name = new byte[in.readInt()];
+        in.readFully(name);
+        covered.add(new String(name, StandardCharsets.UTF_8));
+      }
+      return covered;
+    }
+  }
+
+  private JobHistory readBlock(String block) throws IOException {
+    ByteBuffer in = readFully(blockPath(block));
+    checkHeader(in.getInt(), in.get(), block);
+    int numCovered = in.getInt();
+    for (int i = 0; i < numCovered; i++) {
+      JobHistory.readString(in);
+    }
+    return JobHistory.read(in);
+  }
+
+  private void checkHeader(int magic, byte version, String block)
+      throws IOException {
+    if (magic != MAGIC || version != VERSION) {
+      throw new IOException("Corrupted job history block "
+          + blockPath(block));
+    }
+  }
+
+  private ByteBuffer readFully(Path path) throws IOException {
+    byte[] data = new byte[(int) fs.getFileStatus(path).getLen()];
+    try (FSDataInputStream in = fs.open(path)) {
+      in.readFully(0, data);
+    }
+    return ByteBuffer.wrap(data);
+  }
+
+  private String writeBlock(String block, List<String> covered,
+      JobHistory history) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeInt(covered.size());
+      for (String coveredBlock : covered) {
+        JobHistory.writeString(out, coveredBlock);
+      }
+      history.write(out);
+    }
+
+    Path tmp = new Path(historyDir, block + BLOCK_SUFFIX + TMP_SUFFIX);
+    try (FSDataOutputStream out = fs.create(tmp, true)) {
+      bytes.writeTo(out);
+    }
+    if (!fs.rename(tmp, blockPath(block))) {
+      throw new IOException("Failed to commit job history block " + block);
+    }
+    return block;
+  }
+
+  private List<String> listBlocks() throws IOException {
+    return new ArrayList<>(listBlockSizes().keySet());
+  }
+
+  /**
+   * @return block name to its length, in the order they were written.
+   */
+  private Map<String, Long> listBlockSizes() throws IOException {
+    Map<String, Long> blocks = new TreeMap<>();
+    if (!fs.exists(historyDir)) {
+      return blocks;
+    }
+    for (FileStatus status : fs.listStatus(historyDir)) {
+      String name = status.getPath().getName();
+      if (name.startsWith(BLOCK_PREFIX) && name.endsWith(BLOCK_SUFFIX)) {
+        blocks.put(name.substring(0, name.length() - BLOCK_SUFFIX.length()),
+            status.getLen());
+      }
+    }
+    return blocks;
+  }
+
+  private static String newBlockId() {
+    return String.format("%s%013d-%s", BLOCK_PREFIX,
+        System.currentTimeMillis(),
+        UUID.randomUUID().toString().substring(0, 8));
+  }
+
+  private Path blockPath(String block) {
+    return new Path(historyDir, block + BLOCK_SUFFIX);
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers shared by storages which keep reverse indexes of job infos.
+ *
+ * Paths are indexed and compared after {@link #normalize}, so the same
+ * path spelled differently is found. Stale index entries are removed when a
+ * job is added again with other values, but concurrent adds may still leave
+ * some behind, so candidates found in an index have to be checked against
+ * the job info with {@link #matches}.
+ */
+public final class JobIndexes {
+  private static final Set<String> PATH_KEYS = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(StorageKeyConstants.INPUT_PATH,
+          StorageKeyConstants.CHECKPOINT_PATH,
+          StorageKeyConstants.SAVED_MODEL_PATH)));
+
+  private JobIndexes() {
+  }
+
+  /**
+   * Check arguments of {@link SubmarineStorage#getJobNamesByInfo}.
+   */
+  public static void checkIndexed(String key, String value) {
+    if (!StorageKeyConstants.INDEXED_KEYS.contains(key)) {
+      throw new IllegalArgumentException("Job info " + key
+          + " is not indexed, indexed are "
+          + StorageKeyConstants.INDEXED_KEYS);
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("Value of job info " + key
+          + " must not be null");
+    }
+  }
+
+  /**
+   * @return fixed length name for an indexed value, which can be used in
+   *         paths whatever the value contains.
+   */
+  static String hash(String value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+          value.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param fs file system relative paths are qualified against, null to
+   *        only normalize the path itself.
+   * @return value as it is indexed, null when value is null.
+   */
+  public static String normalize(String key, String value, FileSystem fs) {
+    if (value == null || !PATH_KEYS.contains(key)) {
+      return value;
+    }
+    Path path;
+    try {
+      path = new Path(value);
+    } catch (IllegalArgumentException e) {
+      // Not a path
+      return value;
+    }
+    if (fs != null) {
+      try {
+        return fs.makeQualified(path).toString();
+      } catch (IllegalArgumentException e) {
+        // A path of another file system, already qualified
+      }
+    }
+    return path.toString();
+  }
+
+  static boolean matches(Map<String, String> jobInfo, String key,
+      String value, FileSystem fs) {
+    return jobInfo != null && normalize(key, value, fs).equals(
+        normalize(key, jobInfo.get(key), fs));
+  }
+
+  /**
+   * @return names of given jobs whose info has the value, sorted.
+   */
+  static List<String> filter(Map<String, Map<String, String>> jobInfos,
+      String key, String value, FileSystem fs) {
+    List<String> jobNames = new ArrayList<>();
+    for (Map.Entry<String, Map<String, String>> e : jobInfos.entrySet()) {
+      if (matches(e.getValue(), key, value, fs)) {
+        jobNames.add(e.getKey());
+      }
+    }
+    Collections.sort(jobNames);
+    return jobNames;
+  }
+}
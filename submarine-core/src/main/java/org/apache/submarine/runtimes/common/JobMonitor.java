@@ -57,10 +57,23 @@ public abstract class JobMonitor {
    * @param jobName
    * @throws IOException
    * @throws YarnException
-   * @throws SubmarineException
+   * @throws SubmarineException when job failed or was killed
    */
   public void waitTrainingFinal(String jobName)
       throws IOException, YarnException, SubmarineException {
+    checkTrainingSucceeded(waitTrainingFinalStatus(jobName).getState());
+  }
+
+  /**
+   * Continue wait and print status until job goes to final state, the job
+   * is added to the job history then.
+   * @param jobName name of job
+   * @return final status of job, whatever the state is
+   * @throws IOException
+   * @throws YarnException
+   */
+  public JobStatus waitTrainingFinalStatus(String jobName)
+      throws IOException, YarnException {
     // Wait 5 sec between each fetch.
     int waitIntervalSec = 5;
     JobStatus js;
@@ -70,12 +83,6 @@ public abstract class JobMonitor {
       js.nicePrint(System.err);
 
       if (JobState.isFinal(jobState)) {
-        if (jobState.equals(JobState.FAILED)) {
-          throw new SubmarineException("Job failed");
-        } else if (jobState.equals(JobState.KILLED)) {
-          throw new SubmarineException("Job killed");
-        }
-        LOG.info("Job exited with state=" + jobState);
         break;
       }
 
@@ -86,5 +93,20 @@ public abstract class JobMonitor {
       }
     }
     cleanup();
+    new JobHistoryRecorder(clientContext).recordIfFinal(jobName, js);
+    return js;
+  }
+
+  /**
+   * @throws SubmarineException when job failed or was killed
+   */
+  public static void checkTrainingSucceeded(JobState jobState)
+      throws SubmarineException {
+    if (jobState.equals(JobState.FAILED)) {
+      throw new SubmarineException("Job failed");
+    } else if (jobState.equals(JobState.KILLED)) {
+      throw new SubmarineException("Job killed");
+    }
+    LOG.info("Job exited with state=" + jobState);
   }
 }
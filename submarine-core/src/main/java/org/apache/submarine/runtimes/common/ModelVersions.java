@@ -0,0 +1,78 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Versions of a model in the order they were added, the last one is the
+ * latest. A null version (the default version of a model) is allowed.
+ */
+final class ModelVersions {
+  private static final int MAGIC = 0x53424d56;
+
+  private ModelVersions() {
+  }
+
+  /**
+   * @return versions with given version moved or added to the end.
+   */
+  static List<String> add(List<String> versions, String version) {
+    List<String> result = new ArrayList<>(versions.size() + 1);
+    for (String v : versions) {
+      if (!Objects.equals(v, version)) {
+        result.add(v);
+      }
+    }
+    result.add(version);
+    return result;
+  }
+
+  static byte[] encode(List<String> versions) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeInt(MAGIC);
+    out.writeInt(versions.size());
+    for (String version : versions) {
+      out.writeBoolean(version != null);
+      if (version != null) {
+        out.writeUTF(version);
+      }
+    }
+    out.flush();
+    return bos.toByteArray();
+  }
+
+  static List<String> decode(byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(bytes));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a model version index");
+    }
+    int size = in.readInt();
+    List<String> versions = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      versions.add(in.readBoolean() ? in.readUTF() : null);
+    }
+    return versions;
+  }
+}
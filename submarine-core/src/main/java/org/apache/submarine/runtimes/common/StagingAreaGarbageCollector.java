@@ -0,0 +1,499 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.yarn.exceptions.ApplicationNotFoundException;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.submarine.client.cli.CliConstants;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.api.JobState;
+import org.apache.submarine.common.api.JobStatus;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes staging areas of finished jobs, i.e. launch scripts, uploaded
+ * configs, localized files and keytabs.
+ *
+ * A job is collected once it is in a final state and nothing in its
+ * staging area was modified for the retention time. The retention can be
+ * overridden per job with
+ * {@link SubmarineConfiguration#GC_STAGING_RETENTION_MS}.[job name], a
+ * negative value keeps the staging area of the job. Jobs the scheduler
+ * doesn't know anymore are collected once their staging area is older than
+ * {@link SubmarineConfiguration#GC_UNKNOWN_RETENTION_MS}. Jobs whose status
+ * or info can't be retrieved for another reason are left alone.
+ *
+ * The job info and checkpoints are never deleted: "job.info", the default
+ * checkpoint folder and the checkpoint / saved model paths recorded in the
+ * job info are skipped.
+ *
+ * When all jobs are collected, entries of the shared upload cache of the
+ * current user which were not used for
+ * {@link SubmarineConfiguration#GC_SHARED_CACHE_RETENTION_MS} are deleted
+ * too.
+ *
+ * Jobs are processed in parallel, deletes are limited to the configured
+ * number per second to go easy on the NameNode.
+ */
+public class StagingAreaGarbageCollector {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(StagingAreaGarbageCollector.class);
+
+  private static final String JOB_INFO_FILE = "job.info";
+
+  private final ClientContext clientContext;
+  private final Configuration conf;
+  private long retentionMs;
+  private int concurrency;
+  private double maxDeletesPerSecond;
+  private boolean collectUnknown;
+  private long unknownRetentionMs;
+  private long sharedCacheRetentionMs;
+  private boolean dryRun = false;
+
+  public StagingAreaGarbageCollector(ClientContext clientContext) {
+    this.clientContext = clientContext;
+    this.conf = clientContext.getSubmarineConfig() == null
+        ? new Configuration(false) : clientContext.getSubmarineConfig();
+    this.retentionMs = conf.getLong(
+        SubmarineConfiguration.GC_STAGING_RETENTION_MS,
+        SubmarineConfiguration.DEFAULT_GC_STAGING_RETENTION_MS);
+    this.concurrency = conf.getInt(SubmarineConfiguration.GC_CONCURRENCY,
+        SubmarineConfiguration.DEFAULT_GC_CONCURRENCY);
+    this.maxDeletesPerSecond = conf.getDouble(
+        SubmarineConfiguration.GC_MAX_DELETES_PER_SECOND,
+        SubmarineConfiguration.DEFAULT_GC_MAX_DELETES_PER_SECOND);
+    this.collectUnknown = conf.getBoolean(
+        SubmarineConfiguration.GC_COLLECT_UNKNOWN,
+        SubmarineConfiguration.DEFAULT_GC_COLLECT_UNKNOWN);
+    this.unknownRetentionMs = conf.getLong(
+        SubmarineConfiguration.GC_UNKNOWN_RETENTION_MS,
+        SubmarineConfiguration.DEFAULT_GC_UNKNOWN_RETENTION_MS);
+    this.sharedCacheRetentionMs = conf.getLong(
+        SubmarineConfiguration.GC_SHARED_CACHE_RETENTION_MS,
+        SubmarineConfiguration.DEFAULT_GC_SHARED_CACHE_RETENTION_MS);
+  }
+
+  public StagingAreaGarbageCollector setRetentionMs(long retentionMs) {
+    this.retentionMs = retentionMs;
+    return this;
+  }
+
+  public StagingAreaGarbageCollector setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+    return this;
+  }
+
+  /**
+   * @param maxDeletesPerSecond zero or negative for no limit.
+   */
+  public StagingAreaGarbageCollector setMaxDeletesPerSecond(
+      double maxDeletesPerSecond) {
+    this.maxDeletesPerSecond = maxDeletesPerSecond;
+    return this;
+  }
+
+  /**
+   * Whether jobs the scheduler doesn't know anymore are treated as
+   * finished.
+   */
+  public StagingAreaGarbageCollector setCollectUnknown(
+      boolean collectUnknown) {
+    this.collectUnknown = collectUnknown;
+    return this;
+  }
+
+  /**
+   * @param unknownRetentionMs how long the staging area of a job the
+   *        scheduler doesn't know anymore must be unmodified before it is
+   *        collected, negative to keep them.
+   */
+  public StagingAreaGarbageCollector setUnknownRetentionMs(
+      long unknownRetentionMs) {
+    this.unknownRetentionMs = unknownRetentionMs;
+    return this;
+  }
+
+  /**
+   * @param sharedCacheRetentionMs how long an entry of the shared upload
+   *        cache must be unused before it is deleted, negative to keep
+   *        them.
+   */
+  public StagingAreaGarbageCollector setSharedCacheRetentionMs(
+      long sharedCacheRetentionMs) {
+    this.sharedCacheRetentionMs = sharedCacheRetentionMs;
+    return this;
+  }
+
+  /**
+   * Only report what would be deleted.
+   */
+  public StagingAreaGarbageCollector setDryRun(boolean dryRun) {
+    this.dryRun = dryRun;
+    return this;
+  }
+
+  /**
+   * Collect staging areas of all jobs under the user root folder, and
+   * unused entries of the shared upload cache.
+   */
+  public Result collectAll() throws IOException {
+    RemoteDirectoryManager rdm = clientContext.getRemoteDirectoryManager();
+    FileSystem fs = rdm.getDefaultFileSystem();
+    List<String> jobNames = new ArrayList<>();
+    for (FileStatus status : fs.listStatus(rdm.getUserRootFolder())) {
+      if (status.isDirectory()) {
+        jobNames.add(status.getPath().getName());
+      }
+    }
+    Result result = collect(jobNames);
+    collectSharedCache(result);
+    return result;
+  }
+
+  /**
+   * Delete entries of the shared upload cache of the current user which
+   * were not used for the retention time, they are touched on every use.
+   */
+  private void collectSharedCache(Result result) throws IOException {
+    if (sharedCacheRetentionMs < 0) {
+      return;
+    }
+    FileSystem fs =
+        clientContext.getRemoteDirectoryManager().getDefaultFileSystem();
+    String user = UserGroupInformation.getCurrentUser().getShortUserName();
+    Path userDir = new Path(fs.makeQualified(new Path(conf.get(
+        SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        SubmarineConfiguration.DEFAULT_LOCALIZATION_SHARED_CACHE_DIR))),
+        user);
+    FileStatus[] entries;
+    try {
+      if (!user.equals(fs.getFileStatus(userDir).getOwner())) {
+        LOG.warn("Not collecting shared cache dir {}, it is not owned by {}",
+            userDir, user);
+        return;
+      }
+      entries = fs.listStatus(userDir);
+    } catch (FileNotFoundException e) {
+      return;
+    }
+    RateLimiter rateLimiter = new RateLimiter(maxDeletesPerSecond);
+    long now = System.currentTimeMillis();
+    for (FileStatus entry : entries) {
+      if (!entry.isDirectory()
+          || now - entry.getModificationTime() < sharedCacheRetentionMs) {
+        continue;
+      }
+      Path path = fs.makeQualified(entry.getPath());
+      if (dryRun) {
+        LOG.info("Would delete {}", path);
+      } else {
+        rateLimiter.acquire();
+        if (!fs.delete(path, true) && fs.exists(path)) {
+          throw new IOException("Failed to delete " + path);
+        }
+        LOG.debug("Deleted {}", path);
+      }
+      result.addDeletedPath(path);
+    }
+  }
+
+  /**
+   * Collect staging areas of given jobs.
+   */
+  public Result collect(Collection<String> jobNames) throws IOException {
+    final Result result = new Result();
+    if (jobNames.isEmpty()) {
+      return result;
+    }
+    final RateLimiter rateLimiter = new RateLimiter(maxDeletesPerSecond);
+    final long now = System.currentTimeMillis();
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(concurrency, jobNames.size())),
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("submarine-gc-%d").build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final String jobName : jobNames) {
+        futures.add(executor.submit(() -> {
+          try {
+            collectJob(jobName, now, rateLimiter, result);
+          } catch (IOException | YarnException | RuntimeException e) {
+            LOG.warn("Failed to collect staging area of job=" + jobName, e);
+            result.addFailed(jobName);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while collecting");
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return result;
+  }
+
+  private void collectJob(String jobName, long now, RateLimiter rateLimiter,
+      Result result) throws IOException, YarnException {
+    long jobRetentionMs = conf.getLong(
+        SubmarineConfiguration.GC_STAGING_RETENTION_MS + "." + jobName,
+        retentionMs);
+    if (jobRetentionMs < 0) {
+      LOG.debug("Staging area of job={} is retained", jobName);
+      result.addSkipped(jobName);
+      return;
+    }
+
+    RemoteDirectoryManager rdm = clientContext.getRemoteDirectoryManager();
+    FileSystem fs = rdm.getDefaultFileSystem();
+    Path staging;
+    try {
+      staging = rdm.getJobStagingArea(jobName, false);
+    } catch (FileNotFoundException e) {
+      result.addSkipped(jobName);
+      return;
+    }
+    FileStatus[] children = fs.listStatus(staging);
+    long lastModified = fs.getFileStatus(staging).getModificationTime();
+    for (FileStatus child : children) {
+      lastModified = Math.max(lastModified, child.getModificationTime());
+    }
+    long age = now - lastModified;
+    if (age < jobRetentionMs) {
+      result.addSkipped(jobName);
+      return;
+    }
+    boolean finished;
+    try {
+      finished = isFinished(jobName, age);
+    } catch (IOException | YarnException | RuntimeException e) {
+      // Maybe the scheduler is just not reachable, the job may still run
+      LOG.warn("Failed to get status of job=" + jobName
+          + ", skipping it this time", e);
+      finished = false;
+    }
+    if (!finished) {
+      result.addSkipped(jobName);
+      return;
+    }
+
+    Set<Path> preserved = getPreservedPaths(fs, staging, jobName);
+    for (FileStatus child : children) {
+      Path path = fs.makeQualified(child.getPath());
+      if (isPreserved(path, preserved)) {
+        continue;
+      }
+      if (dryRun) {
+        LOG.info("Would delete {}", path);
+      } else {
+        rateLimiter.acquire();
+        if (!fs.delete(path, true) && fs.exists(path)) {
+          throw new IOException("Failed to delete " + path);
+        }
+        LOG.debug("Deleted {}", path);
+      }
+      result.addDeletedPath(path);
+    }
+    result.addCollected(jobName);
+  }
+
+  /**
+   * @param age time since the staging area of the job was last modified,
+   *        decides for jobs the scheduler doesn't know anymore.
+   * @throws IOException or YarnException when the status can't be
+   *         retrieved for another reason.
+   */
+  private boolean isFinished(String jobName, long age)
+      throws IOException, YarnException {
+    JobMonitor jobMonitor =
+        clientContext.getRuntimeFactory().getJobMonitorInstance();
+    JobStatus status;
+    try {
+      status = jobMonitor.getTrainingJobStatus(jobName);
+    } catch (ApplicationNotFoundException | FileNotFoundException e) {
+      LOG.debug("Status of job=" + jobName + " is unknown", e);
+      return collectUnknown
+          || (unknownRetentionMs >= 0 && age >= unknownRetentionMs);
+    }
+    if (status == null) {
+      return false;
+    }
+    // Jobs nobody waited for are added to the job history here
+    new JobHistoryRecorder(clientContext).recordIfFinal(jobName, status);
+    return JobState.isFinal(status.getState());
+  }
+
+  /**
+   * @throws IOException when the job info can't be read, a checkpoint or
+   *         saved model recorded in it might not be preserved then.
+   */
+  private Set<Path> getPreservedPaths(FileSystem fs, Path staging,
+      String jobName) throws IOException {
+    Set<Path> preserved = new HashSet<>();
+    preserved.add(fs.makeQualified(new Path(staging, JOB_INFO_FILE)));
+    preserved.add(fs.makeQualified(
+        new Path(staging, CliConstants.CHECKPOINT_PATH)));
+    Map<String, String> jobInfo;
+    try {
+      jobInfo = clientContext.getRuntimeFactory().getSubmarineStorage()
+          .getJobInfoByName(jobName);
+    } catch (FileNotFoundException e) {
+      LOG.debug("Job=" + jobName + " is not stored", e);
+      return preserved;
+    }
+    for (String key : new String[] {StorageKeyConstants.CHECKPOINT_PATH,
+        StorageKeyConstants.SAVED_MODEL_PATH}) {
+      String path = jobInfo.get(key);
+      if (path == null) {
+        continue;
+      }
+      try {
+        preserved.add(fs.makeQualified(new Path(path)));
+      } catch (IllegalArgumentException e) {
+        // A path of another file system, not in the staging area
+        LOG.debug("Skipping " + key + "=" + path + " of job=" + jobName, e);
+      }
+    }
+    return preserved;
+  }
+
+  /**
+   * Whether path is, or contains, a preserved path.
+   */
+  private static boolean isPreserved(Path path, Set<Path> preserved) {
+    String prefix = path.toString() + Path.SEPARATOR;
+    for (Path p : preserved) {
+      if (p.equals(path) || p.toString().startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Outcome of a collection.
+   */
+  public static class Result {
+    private final List<String> collected = new ArrayList<>();
+    private final List<String> skipped = new ArrayList<>();
+    private final List<String> failed = new ArrayList<>();
+    private final List<Path> deletedPaths = new ArrayList<>();
+
+    synchronized void addCollected(String jobName) {
+      collected.add(jobName);
+    }
+
+    synchronized void addSkipped(String jobName) {
+      skipped.add(jobName);
+    }
+
+    synchronized void addFailed(String jobName) {
+      failed.add(jobName);
+    }
+
+    synchronized void addDeletedPath(Path path) {
+      deletedPaths.add(path);
+    }
+
+    public synchronized List<String> getCollectedJobs() {
+      return sorted(collected);
+    }
+
+    public synchronized List<String> getSkippedJobs() {
+      return sorted(skipped);
+    }
+
+    public synchronized List<String> getFailedJobs() {
+      return sorted(failed);
+    }
+
+    public synchronized List<Path> getDeletedPaths() {
+      List<Path> paths = new ArrayList<>(deletedPaths);
+      paths.sort(Comparator.comparing(Path::toString));
+      return paths;
+    }
+
+    private static List<String> sorted(List<String> list) {
+      List<String> result = new ArrayList<>(list);
+      Collections.sort(result);
+      return result;
+    }
+  }
+
+  /**
+   * Hands out permits at a fixed rate, a non positive rate means no limit.
+   */
+  private static class RateLimiter {
+    private final long intervalNanos;
+    private long next = System.nanoTime();
+
+    RateLimiter(double permitsPerSecond) {
+      this.intervalNanos = permitsPerSecond <= 0 ? 0
+          : (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    void acquire() throws InterruptedIOException {
+      if (intervalNanos == 0) {
+        return;
+      }
+      long waitNanos;
+      synchronized (this) {
+        long now = System.nanoTime();
+        next = Math.max(next, now);
+        waitNanos = next - now;
+        next += intervalNanos;
+      }
+      if (waitNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting to delete");
+        }
+      }
+    }
+  }
+}
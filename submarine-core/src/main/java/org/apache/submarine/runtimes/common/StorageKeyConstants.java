@@ -14,6 +14,10 @@
 
 package org.apache.submarine.runtimes.common;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class StorageKeyConstants {
   public static final String JOB_NAME = "JOB_NAME";
   public static final String JOB_RUN_ARGS = "JOB_RUN_ARGS";
@@ -21,4 +25,18 @@ public class StorageKeyConstants {
   public static final String CHECKPOINT_PATH = "CHECKPOINT_PATH";
   public static final String INPUT_PATH = "INPUT_PATH";
   public static final String SAVED_MODEL_PATH = "SAVED_MODEL_PATH";
+  // Kept for the job history, see JobHistoryRecord#toJobInfo
+  public static final String SUBMIT_TIME = "SUBMIT_TIME";
+  public static final String QUEUE = "QUEUE";
+  public static final String WORKER_RESOURCES = "WORKER_RESOURCES";
+  public static final String PS_RESOURCES = "PS_RESOURCES";
+  public static final String HISTORY_RECORDED = "HISTORY_RECORDED";
+
+  /**
+   * Keys of job info which jobs can be looked up by, see
+   * {@link SubmarineStorage#getJobNamesByInfo(String, String)}.
+   */
+  public static final List<String> INDEXED_KEYS =
+      Collections.unmodifiableList(Arrays.asList(APPLICATION_ID,
+          INPUT_PATH, CHECKPOINT_PATH, SAVED_MODEL_PATH));
 }
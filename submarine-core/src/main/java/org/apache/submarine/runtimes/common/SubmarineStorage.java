@@ -15,6 +15,9 @@
 package org.apache.submarine.runtimes.common;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,10 +36,49 @@ public abstract class SubmarineStorage {
    * Get job info by job name.
    * @param jobName name of job
    * @return info of the job.
+   * @throws java.io.FileNotFoundException when the job is not stored.
    */
   public abstract Map<String, String> getJobInfoByName(String jobName)
       throws IOException;
 
+  /**
+   * Add new jobs in bulk, implementations may write them in parallel or in
+   * a single batch.
+   * @param jobInfos job name to info of the job.
+   */
+  public void addNewJobs(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    for (Map.Entry<String, Map<String, String>> e : jobInfos.entrySet()) {
+      addNewJob(e.getKey(), e.getValue());
+    }
+  }
+
+  /**
+   * Get infos of given jobs in bulk, fails if any of them can't be found.
+   * @param jobNames names of jobs
+   * @return job name to info of the job, in the order of given names.
+   */
+  public Map<String, Map<String, String>> getJobInfos(
+      Collection<String> jobNames) throws IOException {
+    Map<String, Map<String, String>> jobInfos = new LinkedHashMap<>();
+    for (String jobName : jobNames) {
+      jobInfos.put(jobName, getJobInfoByName(jobName));
+    }
+    return jobInfos;
+  }
+
+  /**
+   * Find jobs by value of an indexed job info.
+   * @param key one of {@link StorageKeyConstants#INDEXED_KEYS}.
+   * @param value value of the info.
+   * @return names of jobs whose info has given value, sorted. Empty when
+   *         there is no such job.
+   * @throws IllegalArgumentException when key is not indexed or value is
+   *         null.
+   */
+  public abstract List<String> getJobNamesByInfo(String key, String value)
+      throws IOException;
+
   /**
    * Add a new model
    * @param modelName name of model
@@ -54,4 +96,27 @@ public abstract class SubmarineStorage {
    */
   public abstract Map<String, String> getModelInfoByName(String modelName, String version)
       throws IOException;
+
+  /**
+   * List versions of a model.
+   * @param modelName name of model.
+   * @return versions in the order they were added, the latest one is the
+   *         last. Empty when the model doesn't exist.
+   */
+  public abstract List<String> listModelVersions(String modelName)
+      throws IOException;
+
+  /**
+   * Get info of the most recently added version of a model.
+   * @param modelName name of model.
+   * @return info of the model.
+   */
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    List<String> versions = listModelVersions(modelName);
+    if (versions.isEmpty()) {
+      throw new IOException("Failed to find, model=" + modelName);
+    }
+    return getModelInfoByName(modelName, versions.get(versions.size() - 1));
+  }
 }
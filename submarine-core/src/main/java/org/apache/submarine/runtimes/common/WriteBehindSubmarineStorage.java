@@ -0,0 +1,405 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue in front of another {@link SubmarineStorage}.
+ *
+ * A new job info is first written to a journal file on local disk and
+ * synced, then it is written to the underlying storage by a background
+ * thread, and the journal file is removed. Failed writes are retried.
+ *
+ * Every process journals into its own sub directory of the journal dir and
+ * holds a file lock in it while it runs. Journal files left by a process
+ * which is gone, e.g. one which exited before its queue was drained, are
+ * taken over and replayed when the storage is created. Directories which
+ * are still locked belong to running clients and are left alone.
+ *
+ * Pending job infos are served from memory of this process, other clients
+ * see them once they are flushed. Models are written through directly.
+ */
+public class WriteBehindSubmarineStorage extends SubmarineStorage {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(WriteBehindSubmarineStorage.class);
+
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final String LOCK_FILE = "lock";
+
+  private final SubmarineStorage storage;
+  private final File journalRoot;
+  // Journal files of this process
+  private final File journalDir;
+  private final FileChannel lockChannel;
+  private final long retryIntervalMs;
+  private final ScheduledExecutorService flusher;
+  private final AtomicLong sequence = new AtomicLong();
+
+  // job name -> its latest pending info, in the order they were added
+  private final Map<String, PendingJob> pending = new LinkedHashMap<>();
+  private boolean retryScheduled = false;
+
+  public WriteBehindSubmarineStorage(SubmarineStorage storage,
+      File journalRoot, long retryIntervalMs) throws IOException {
+    this.storage = storage;
+    this.journalRoot = journalRoot;
+    this.retryIntervalMs = retryIntervalMs;
+    if (!journalRoot.exists() && !journalRoot.mkdirs()) {
+      throw new IOException(
+          "Failed to mkdirs for " + journalRoot.getAbsolutePath());
+    }
+    // Locked before it gets its final name, so other clients never see it
+    // unlocked
+    String name = UUID.randomUUID().toString();
+    File tmpDir = new File(journalRoot, name + TMP_SUFFIX);
+    if (!tmpDir.mkdir()) {
+      throw new IOException(
+          "Failed to mkdir for " + tmpDir.getAbsolutePath());
+    }
+    this.lockChannel = FileChannel.open(new File(tmpDir, LOCK_FILE).toPath(),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    this.journalDir = new File(journalRoot, name);
+    try {
+      lockChannel.lock();
+      Files.move(tmpDir.toPath(), journalDir.toPath(),
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      lockChannel.close();
+      FileUtils.deleteQuietly(tmpDir);
+      throw e;
+    }
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("submarine-write-behind-%d").build());
+    // Retries left at close are replayed from the journal next time
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    this.flusher = executor;
+    takeOverJournals();
+    replay();
+  }
+
+  @Override
+  public void addNewJob(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    PendingJob job = new PendingJob(jobName, new HashMap<>(jobInfo),
+        writeJournal(jobName, jobInfo));
+    PendingJob old;
+    synchronized (this) {
+      old = pending.put(jobName, job);
+    }
+    if (old != null) {
+      // Superseded before it was flushed
+      FileUtils.deleteQuietly(old.journal);
+    }
+    flusher.execute(this::flushPending);
+  }
+
+  @Override
+  public Map<String, String> getJobInfoByName(String jobName)
+      throws IOException {
+    synchronized (this) {
+      PendingJob job = pending.get(jobName);
+      if (job != null) {
+        return new HashMap<>(job.info);
+      }
+    }
+    return storage.getJobInfoByName(jobName);
+  }
+
+  /**
+   * Jobs found in the underlying storage, corrected by pending job infos.
+   */
+  @Override
+  public List<String> getJobNamesByInfo(String key, String value)
+      throws IOException {
+    Set<String> jobNames =
+        new TreeSet<>(storage.getJobNamesByInfo(key, value));
+    synchronized (this) {
+      for (PendingJob job : pending.values()) {
+        if (JobIndexes.matches(job.info, key, value, null)) {
+          jobNames.add(job.name);
+        } else {
+          jobNames.remove(job.name);
+        }
+      }
+    }
+    return new ArrayList<>(jobNames);
+  }
+
+  @Override
+  public void addNewModel(String modelName, String version,
+      Map<String, String> modelInfo) throws IOException {
+    storage.addNewModel(modelName, version, modelInfo);
+  }
+
+  @Override
+  public Map<String, String> getModelInfoByName(String modelName,
+      String version) throws IOException {
+    return storage.getModelInfoByName(modelName, version);
+  }
+
+  @Override
+  public List<String> listModelVersions(String modelName)
+      throws IOException {
+    return storage.listModelVersions(modelName);
+  }
+
+  @Override
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    return storage.getLatestModelInfo(modelName);
+  }
+
+  public SubmarineStorage getUnderlyingStorage() {
+    return storage;
+  }
+
+  public synchronized int getPendingJobs() {
+    return pending.size();
+  }
+
+  /**
+   * Wait until all pending job infos are written to the underlying storage.
+   * @return true if nothing is pending anymore.
+   */
+  public synchronized boolean flush(long timeoutMs)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (!pending.isEmpty()) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
+    }
+    return true;
+  }
+
+  /**
+   * Flush with given timeout and stop the background thread, job infos
+   * which are still pending stay in the journal and are written by the
+   * next client which starts. A write in flight is not interrupted, it is
+   * waited for up to given timeout again, so it doesn't leave a partial
+   * job info behind.
+   */
+  public void close(long timeoutMs) throws InterruptedException {
+    boolean flushed = flush(timeoutMs);
+    if (!flushed) {
+      LOG.warn("{} job info(s) not written yet, they are kept in {} and "
+          + "will be written next time", getPendingJobs(), journalDir);
+    }
+    flusher.shutdown();
+    if (!flusher.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+      LOG.warn("A job info is still being written to the storage");
+    }
+    try {
+      // Releases the lock as well
+      lockChannel.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to unlock " + journalDir, e);
+    }
+    if (flushed) {
+      FileUtils.deleteQuietly(journalDir);
+    }
+  }
+
+  private void flushPending() {
+    List<PendingJob> jobs;
+    synchronized (this) {
+      jobs = new ArrayList<>(pending.values());
+    }
+    for (PendingJob job : jobs) {
+      try {
+        storage.addNewJob(job.name, job.info);
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("Failed to write info of job=" + job.name
+            + ", retry in " + retryIntervalMs + " ms", e);
+        scheduleRetry();
+        return;
+      }
+      complete(job);
+    }
+  }
+
+  private synchronized void scheduleRetry() {
+    if (!retryScheduled && !flusher.isShutdown()) {
+      retryScheduled = true;
+      flusher.schedule(() -> {
+        synchronized (this) {
+          retryScheduled = false;
+        }
+        flushPending();
+      }, retryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private synchronized void complete(PendingJob job) {
+    if (pending.get(job.name) == job) {
+      pending.remove(job.name);
+    }
+    FileUtils.deleteQuietly(job.journal);
+    notifyAll();
+  }
+
+  private File writeJournal(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeUTF(jobName);
+    InfoMapCodec.write(out, jobInfo);
+
+    // Sorts in the order of writes, also across restarts
+    String name = String.format("%013d-%06d", System.currentTimeMillis(),
+        sequence.incrementAndGet());
+    File tmp = new File(journalDir, name + TMP_SUFFIX);
+    File journal = new File(journalDir, name + JOURNAL_SUFFIX);
+    try (FileOutputStream fos = new FileOutputStream(tmp)) {
+      fos.write(bos.toByteArray());
+      fos.getChannel().force(true);
+    }
+    Files.move(tmp.toPath(), journal.toPath(),
+        StandardCopyOption.ATOMIC_MOVE);
+    return journal;
+  }
+
+  /**
+   * Move journal files of clients which are gone into the journal dir of
+   * this process.
+   */
+  private void takeOverJournals() throws IOException {
+    File[] dirs = journalRoot.listFiles(File::isDirectory);
+    if (dirs == null) {
+      throw new IOException(
+          "Failed to list " + journalRoot.getAbsolutePath());
+    }
+    for (File dir : dirs) {
+      if (dir.equals(journalDir) || dir.getName().endsWith(TMP_SUFFIX)) {
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(
+          new File(dir, LOCK_FILE).toPath(), StandardOpenOption.WRITE);
+           FileLock lock = tryLock(channel)) {
+        if (lock == null) {
+          // Its client is still running
+          continue;
+        }
+        File[] files = dir.listFiles();
+        if (files == null) {
+          continue;
+        }
+        for (File file : files) {
+          String name = file.getName();
+          if (name.endsWith(JOURNAL_SUFFIX)) {
+            // Keeps the write time first, so the order of writes is kept
+            String taken = name.substring(0,
+                name.length() - JOURNAL_SUFFIX.length())
+                + "-" + dir.getName() + JOURNAL_SUFFIX;
+            Files.move(file.toPath(), new File(journalDir, taken).toPath(),
+                StandardCopyOption.ATOMIC_MOVE);
+          }
+        }
+        FileUtils.deleteQuietly(dir);
+      } catch (NoSuchFileException e) {
+        // Taken over by another client meanwhile
+      }
+    }
+  }
+
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // Held by another storage of this process
+      return null;
+    }
+  }
+
+  private void replay() throws IOException {
+    File[] files = journalDir.listFiles();
+    if (files == null) {
+      throw new IOException("Failed to list " + journalDir.getAbsolutePath());
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      if (file.getName().endsWith(TMP_SUFFIX)) {
+        // Never committed, the job info was not acknowledged either
+        FileUtils.deleteQuietly(file);
+      } else if (file.getName().endsWith(JOURNAL_SUFFIX)) {
+        PendingJob job;
+        try (DataInputStream in = new DataInputStream(
+            new FileInputStream(file))) {
+          job = new PendingJob(in.readUTF(), InfoMapCodec.read(in), file);
+        } catch (IOException e) {
+          LOG.error("Skipping unreadable journal file " + file, e);
+          continue;
+        }
+        PendingJob old = pending.put(job.name, job);
+        if (old != null) {
+          FileUtils.deleteQuietly(old.journal);
+        }
+      }
+    }
+    if (!pending.isEmpty()) {
+      LOG.info("Replaying {} job info(s) from {}", pending.size(),
+          journalDir);
+      flusher.execute(this::flushPending);
+    }
+  }
+
+  private static class PendingJob {
+    private final String name;
+    private final Map<String, String> info;
+    private final File journal;
+
+    PendingJob(String name, Map<String, String> info, File journal) {
+      this.name = name;
+      this.info = info;
+      this.journal = journal;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.submarine.client.cli;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.submarine.client.cli.param.GcJobParameters;
+import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.conf.SubmarineLogs;
+import org.apache.submarine.runtimes.common.StagingAreaGarbageCollector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+
+public class TestGcJobCliParsing {
+  @Before
+  public void before() {
+    SubmarineLogs.verboseOff();
+  }
+
+  private GcJobCli createCli() {
+    return new GcJobCli(new MockClientContext()) {
+      @Override
+      protected StagingAreaGarbageCollector createGarbageCollector() {
+        // Verify parameters are applied, but don't touch any file
+        super.createGarbageCollector();
+        return new StagingAreaGarbageCollector(new MockClientContext()) {
+          @Override
+          public Result collectAll() {
+            return new Result();
+          }
+
+          @Override
+          public Result collect(Collection<String> jobNames) {
+            return new Result();
+          }
+        };
+      }
+    };
+  }
+
+  @Test
+  public void testPrintHelp() {
+    new GcJobCli(new MockClientContext()).printUsages();
+  }
+
+  @Test
+  public void testGcJob() throws Exception {
+    GcJobCli gcJobCli = createCli();
+    Assert.assertEquals(0, gcJobCli.run(new String[] {"--name", "my-job",
+        "--retention_ms", "1000", "--concurrency", "4",
+        "--max_deletes_per_second", "2.5", "--dry_run", "--include_unknown"}));
+    GcJobParameters parameters = gcJobCli.getParameters();
+    Assert.assertEquals("my-job", parameters.getName());
+    Assert.assertEquals(Long.valueOf(1000), parameters.getRetentionMs());
+    Assert.assertEquals(Integer.valueOf(4), parameters.getConcurrency());
+    Assert.assertEquals(2.5, parameters.getMaxDeletesPerSecond(), 0);
+    Assert.assertTrue(parameters.isDryRun());
+    Assert.assertTrue(parameters.isIncludeUnknown());
+  }
+
+  @Test
+  public void testGcAllJobsWithDefaults() throws Exception {
+    GcJobCli gcJobCli = createCli();
+    gcJobCli.run(new String[0]);
+    GcJobParameters parameters = gcJobCli.getParameters();
+    Assert.assertNull(parameters.getName());
+    Assert.assertNull(parameters.getRetentionMs());
+    Assert.assertFalse(parameters.isDryRun());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testBadConcurrency() throws Exception {
+    createCli().run(new String[] {"--concurrency", "0"});
+  }
+}
@@ -21,10 +21,13 @@ import org.apache.commons.cli.MissingArgumentException;
 import org.apache.commons.cli.ParseException;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.submarine.client.cli.param.Localization;
 import org.apache.submarine.client.cli.param.ParametersHolder;
 import org.apache.submarine.client.cli.param.runjob.RunJobParameters;
 import org.apache.submarine.client.cli.param.runjob.TensorFlowRunJobParameters;
 import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.api.JobState;
+import org.apache.submarine.common.api.JobStatus;
 import org.apache.submarine.common.conf.SubmarineLogs;
 import org.apache.submarine.runtimes.RuntimeFactory;
 import org.apache.submarine.runtimes.common.JobMonitor;
@@ -35,6 +38,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -63,6 +69,10 @@ public class TestRunJobCliParsingCommon {
         .thenReturn(ApplicationId.newInstance(1235L, 1));
 
     JobMonitor mockJobMonitor = mock(JobMonitor.class);
+    JobStatus finalStatus = new JobStatus();
+    finalStatus.setState(JobState.SUCCEEDED);
+    when(mockJobMonitor.waitTrainingFinalStatus(any(String.class)))
+        .thenReturn(finalStatus);
     SubmarineStorage storage = mock(SubmarineStorage.class);
     RuntimeFactory rtFactory = mock(RuntimeFactory.class);
 
@@ -126,4 +136,31 @@ public class TestRunJobCliParsingCommon {
             "--worker_resources", "memory=4g,vcores=2", "--tensorboard",
             "true", "--verbose", "--wait_job_finish"});
   }
+
+  @Test
+  public void testSharedLocalization() throws Exception {
+    RunJobCli runJobCli = new RunJobCli(getMockClientContext());
+
+    runJobCli.run(
+        new String[]{"--name", "my-job", "--docker_image", "tf-docker:1.1.0",
+            "--input_path", "hdfs://input", "--checkpoint_path",
+            "hdfs://output",
+            "--num_workers", "1", "--worker_launch_cmd", "python run-job.py",
+            "--worker_resources", "memory=4g,vcores=2",
+            "--localization", "hdfs:///user/yarn/corpus:/opt/corpus:rw:shared",
+            "--localization", "./mydir1:.:shared",
+            "--localization", "./mydir2:."});
+    List<Localization> localizations =
+        runJobCli.getRunJobParameters().getLocalizations();
+    assertEquals(3, localizations.size());
+    assertTrue(localizations.get(0).isShared());
+    assertEquals("hdfs:///user/yarn/corpus",
+        localizations.get(0).getRemoteUri());
+    assertEquals("/opt/corpus", localizations.get(0).getLocalPath());
+    assertEquals("rw", localizations.get(0).getMountPermission());
+    assertTrue(localizations.get(1).isShared());
+    assertEquals("./mydir1", localizations.get(1).getRemoteUri());
+    assertEquals(".", localizations.get(1).getLocalPath());
+    assertFalse(localizations.get(2).isShared());
+  }
 }
@@ -0,0 +1,100 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to size a tree of small files with {@link LocalDiskUsage} compared
+ * with FileUtil#getDU, which was used for local localizations before.
+ *
+ * Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.apache.submarine.common.fs.LocalDiskUsageBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalDiskUsageBenchmark {
+  @Param({"1000", "20000"})
+  private int files;
+
+  private File root;
+
+  @Setup
+  public void setup() throws IOException {
+    root = Files.createTempDirectory("du-benchmark").toFile();
+    // 20 files per directory, 10 directories per parent, like a virtualenv
+    for (int i = 0; i < files; i++) {
+      File dir = new File(root,
+          "d" + (i / 200) + File.separator + "s" + (i / 20 % 10));
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        throw new IOException("Failed to create " + dir);
+      }
+      Files.write(new File(dir, "f" + i).toPath(), new byte[i % 512]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(root);
+  }
+
+  @Benchmark
+  public long fileUtilGetDU() {
+    return FileUtil.getDU(root);
+  }
+
+  @Benchmark
+  public long parallelGetDU() {
+    return LocalDiskUsage.getDU(root, Long.MAX_VALUE);
+  }
+
+  @Benchmark
+  public long parallelGetDUWithLimit() {
+    // Limit crossed after about a tenth of the tree
+    return LocalDiskUsage.getDU(root, files * 256L / 10);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(LocalDiskUsageBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
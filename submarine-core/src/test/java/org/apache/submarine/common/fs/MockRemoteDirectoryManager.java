@@ -26,6 +26,7 @@ import org.apache.hadoop.fs.Path;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Objects;
 
 public class MockRemoteDirectoryManager implements RemoteDirectoryManager {
@@ -34,17 +35,10 @@ public class MockRemoteDirectoryManager implements RemoteDirectoryManager {
 
   private File jobDir = null;
   @Override
-  public Path getJobStagingArea(String jobName, boolean create)
+  public synchronized Path getJobStagingArea(String jobName, boolean create)
       throws IOException {
     Objects.requireNonNull(jobName, "Job name must not be null!");
-    if (jobsParentDir == null && create) {
-      jobsParentDir = new File(
-          "target/_staging_area_" + System.currentTimeMillis());
-      if (!jobsParentDir.mkdirs()) {
-        throw new IOException(
-            "Failed to mkdirs for" + jobsParentDir.getAbsolutePath());
-      }
-    }
+    getJobsParentDir(create);
 
     this.jobDir = new File(jobsParentDir.getAbsolutePath(), jobName);
     if (create && !jobDir.exists()) {
@@ -63,7 +57,7 @@ public class MockRemoteDirectoryManager implements RemoteDirectoryManager {
   }
 
   @Override
-  public Path getModelDir(String modelName, boolean create)
+  public synchronized Path getModelDir(String modelName, boolean create)
       throws IOException {
     if (modelParentDir == null && create) {
       modelParentDir = new File(
@@ -95,8 +89,29 @@ public class MockRemoteDirectoryManager implements RemoteDirectoryManager {
   }
 
   @Override
-  public Path getUserRootFolder() throws IOException {
-    return new Path("s3://generated_root_dir");
+  public void warmUpFileSystems(Collection<String> uris) {
+  }
+
+  /**
+   * Staging areas of all jobs are in the user root folder.
+   */
+  @Override
+  public synchronized Path getUserRootFolder() throws IOException {
+    return new Path(getJobsParentDir(true).getAbsolutePath());
+  }
+
+  private File getJobsParentDir(boolean create) throws IOException {
+    if (jobsParentDir == null) {
+      jobsParentDir = new File(
+          "target/_staging_area_" + System.nanoTime());
+    }
+    if (create && !jobsParentDir.exists()) {
+      if (!jobsParentDir.mkdirs()) {
+        throw new IOException(
+            "Failed to mkdirs for" + jobsParentDir.getAbsolutePath());
+      }
+    }
+    return jobsParentDir;
   }
 
   @Override
@@ -145,6 +160,13 @@ public class MockRemoteDirectoryManager implements RemoteDirectoryManager {
         getDefaultFileSystem().getConf());
   }
 
+  @Override
+  public void copyLocalToRemote(File localFile, Path remotePath)
+      throws IOException {
+    getDefaultFileSystem().copyFromLocalFile(
+        new Path(localFile.getAbsolutePath()), remotePath);
+  }
+
   @Override
   public boolean existsRemoteFile(Path uri) throws IOException {
     String fakeLocalFilePath = this.jobDir.getAbsolutePath()
@@ -167,4 +189,9 @@ public class MockRemoteDirectoryManager implements RemoteDirectoryManager {
     return 100 * 1024 * 1024;
   }
 
+  @Override
+  public long getRemoteFileSize(String uri, long limit) throws IOException {
+    return getRemoteFileSize(uri);
+  }
+
 }
@@ -0,0 +1,195 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.submarine.client.cli.CliConstants;
+import org.apache.submarine.common.ClientContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.security.PrivilegedExceptionAction;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDefaultRemoteDirectoryManager {
+  private static final AtomicInteger MKDIRS = new AtomicInteger();
+  private static final AtomicInteger GET_FILE_STATUS = new AtomicInteger();
+  private static volatile String workingDir;
+
+  /**
+   * Local file system counting calls, working dir is under target/.
+   */
+  public static class CountingFileSystem extends RawLocalFileSystem {
+    @Override
+    public URI getUri() {
+      return URI.create("counting:///");
+    }
+
+    @Override
+    public void initialize(URI uri, Configuration conf) throws IOException {
+      super.initialize(uri, conf);
+      setWorkingDirectory(new Path(workingDir));
+    }
+
+    // RawLocalFileSystem creates parents with nested mkdirs calls
+    private final ThreadLocal<Boolean> inMkdirs = new ThreadLocal<>();
+
+    @Override
+    public boolean mkdirs(Path f) throws IOException {
+      return mkdirs(f, FsPermission.getDirDefault());
+    }
+
+    @Override
+    public boolean mkdirs(Path f, FsPermission permission)
+        throws IOException {
+      if (inMkdirs.get() != null) {
+        return super.mkdirs(f, permission);
+      }
+      MKDIRS.incrementAndGet();
+      inMkdirs.set(true);
+      try {
+        return super.mkdirs(f, permission);
+      } finally {
+        inMkdirs.remove();
+      }
+    }
+
+    @Override
+    public FileStatus getFileStatus(Path f) throws IOException {
+      GET_FILE_STATUS.incrementAndGet();
+      return super.getFileStatus(f);
+    }
+  }
+
+  private RemoteDirectoryManager rdm;
+
+  @Before
+  public void setup() {
+    workingDir = new File("target/_rdm_" + System.nanoTime())
+        .getAbsolutePath();
+    Configuration conf = new Configuration();
+    conf.set("fs.defaultFS", "counting:///");
+    conf.set("fs.counting.impl", CountingFileSystem.class.getName());
+    conf.setBoolean("fs.counting.impl.disable.cache", true);
+    ClientContext clientContext = new ClientContext();
+    clientContext.setConfiguration(conf);
+    rdm = new DefaultRemoteDirectoryManager(clientContext);
+    MKDIRS.set(0);
+    GET_FILE_STATUS.set(0);
+  }
+
+  @Test
+  public void testDirectoriesAreCreatedOnce() throws IOException {
+    Path checkpointDir = rdm.getJobCheckpointDir("job1", true);
+    // What every component of a job asks for
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(checkpointDir.getParent(),
+          rdm.getJobStagingArea("job1", true));
+      Assert.assertEquals(checkpointDir,
+          rdm.getJobCheckpointDir("job1", true));
+      rdm.getUserRootFolder();
+    }
+    Assert.assertEquals(1, MKDIRS.get());
+    Assert.assertEquals(0, GET_FILE_STATUS.get());
+
+    Assert.assertEquals(new Path("counting:///" + workingDir
+        + "/submarine/jobs/job1/staging/" + CliConstants.CHECKPOINT_PATH),
+        checkpointDir);
+    Assert.assertTrue(new File(workingDir,
+        "submarine/jobs/job1/staging/" + CliConstants.CHECKPOINT_PATH)
+        .isDirectory());
+
+    rdm.getJobStagingArea("job2", true);
+    Assert.assertEquals(2, MKDIRS.get());
+  }
+
+  @Test
+  public void testNotCreated() throws IOException {
+    try {
+      rdm.getJobStagingArea("job1", false);
+      Assert.fail("Staging area of job1 doesn't exist");
+    } catch (FileNotFoundException e) {
+      // Expected
+    }
+    Assert.assertFalse(new File(workingDir, "submarine").exists());
+    Assert.assertEquals(0, MKDIRS.get());
+
+    Assert.assertTrue(
+        new File(workingDir, "submarine/jobs/job1/staging").mkdirs());
+    Path staging = rdm.getJobStagingArea("job1", false);
+    Assert.assertEquals("staging", staging.getName());
+    // Known to exist from now on
+    int getFileStatus = GET_FILE_STATUS.get();
+    Assert.assertEquals(staging, rdm.getJobStagingArea("job1", false));
+    Assert.assertEquals(getFileStatus, GET_FILE_STATUS.get());
+  }
+
+  @Test
+  public void testModelDirIsQualified() throws IOException {
+    Path modelDir = rdm.getModelDir("model1", true);
+    Assert.assertEquals(new Path("counting:///" + workingDir
+        + "/submarine/models/model1"), modelDir);
+    Assert.assertEquals(modelDir, rdm.getModelDir("model1", false));
+  }
+
+  @Test
+  public void testFileSystemsAreKept() throws IOException {
+    // Caching is disabled for the scheme, FileSystem.get would create new
+    FileSystem first = rdm.getFileSystemByUri("counting:///a/b");
+    Assert.assertSame(first, rdm.getFileSystemByUri("counting:///c"));
+    Assert.assertSame(rdm.getDefaultFileSystem(),
+        rdm.getFileSystemByUri("/local/path"));
+  }
+
+  @Test
+  public void testFileSystemsAreKeptPerUser() throws Exception {
+    FileSystem mine = rdm.getFileSystemByUri("counting:///a");
+    UserGroupInformation other =
+        UserGroupInformation.createRemoteUser("other");
+    PrivilegedExceptionAction<FileSystem> getFileSystem =
+        () -> rdm.getFileSystemByUri("counting:///a");
+    FileSystem others = other.doAs(getFileSystem);
+    Assert.assertNotSame(mine, others);
+    Assert.assertSame(others, other.doAs(getFileSystem));
+    Assert.assertSame(mine, rdm.getFileSystemByUri("counting:///b"));
+  }
+
+  @Test
+  public void testWarmUpFileSystems() throws Exception {
+    rdm.warmUpFileSystems(Arrays.asList("counting:///a", "counting:///b",
+        "/local/path", "not a uri"));
+    long deadline = System.currentTimeMillis() + 10000;
+    while (GET_FILE_STATUS.get() == 0
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    // Once per scheme and authority
+    Thread.sleep(100);
+    Assert.assertEquals(1, GET_FILE_STATUS.get());
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class TestFileSizeWalker {
+  private File root;
+  private FileSystem localFs;
+
+  @Before
+  public void setup() throws IOException {
+    root = new File("target/_size_walker_" + System.nanoTime());
+    localFs = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+    for (int i = 0; i < 10; i++) {
+      File file = new File(root, "dir" + (i % 3) + "/file" + i);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), new byte[100]);
+    }
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(root);
+  }
+
+  @Test
+  public void testFullSize() throws IOException {
+    Assert.assertFalse(FileSizeWalker.hasCheapContentSummary(localFs));
+    Assert.assertEquals(1000, FileSizeWalker.getSize(localFs,
+        new Path(root.getAbsolutePath()), Long.MAX_VALUE));
+    Assert.assertEquals(1000, FileSizeWalker.getSize(localFs,
+        new Path(root.getAbsolutePath()), 1000));
+  }
+
+  @Test
+  public void testStopsAtLimit() throws IOException {
+    long size = FileSizeWalker.getSize(localFs,
+        new Path(root.getAbsolutePath()), 250);
+    // Stops at the first file crossing the limit
+    Assert.assertEquals(300, size);
+  }
+
+  @Test
+  public void testSingleFile() throws IOException {
+    Assert.assertEquals(100, FileSizeWalker.getSize(localFs,
+        new Path(new File(root, "dir0/file0").getAbsolutePath()), 0));
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class TestLocalDiskUsage {
+  private File root;
+
+  @Before
+  public void setup() throws IOException {
+    root = new File("target/_local_du_" + System.nanoTime());
+    for (int i = 0; i < 50; i++) {
+      File file = new File(root, "a" + (i % 5) + "/b" + (i % 3) + "/f" + i);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), new byte[i]);
+    }
+    Files.createSymbolicLink(new File(root, "link").toPath(),
+        new File(root, "a0").getAbsoluteFile().toPath());
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(root);
+  }
+
+  @Test
+  public void testSameAsGetDU() {
+    long expected = FileUtil.getDU(root);
+    Assert.assertEquals(49 * 50 / 2, expected);
+    Assert.assertEquals(expected,
+        LocalDiskUsage.getDU(root, Long.MAX_VALUE));
+    Assert.assertEquals(expected,
+        LocalDiskUsage.getDU(root, Long.MAX_VALUE, 1));
+  }
+
+  @Test
+  public void testStopsAtLimit() {
+    long size = LocalDiskUsage.getDU(root, 10, 1);
+    Assert.assertTrue(size > 10);
+    Assert.assertTrue(size < 49 * 50 / 2);
+  }
+
+  @Test
+  public void testFile() {
+    Assert.assertEquals(7,
+        LocalDiskUsage.getDU(new File(root, "a2/b1/f7"), 0));
+    Assert.assertEquals(0,
+        LocalDiskUsage.getDU(new File(root, "missing"), 0));
+  }
+}
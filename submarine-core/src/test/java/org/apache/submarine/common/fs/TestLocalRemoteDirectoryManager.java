@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class TestLocalRemoteDirectoryManager {
+  private File root;
+  private RemoteDirectoryManager rdm;
+
+  @Before
+  public void setup() {
+    root = new File("target/TestLocalRemoteDirectoryManager")
+        .getAbsoluteFile();
+    FileUtil.fullyDelete(root);
+    ClientContext context = new ClientContext();
+    context.getSubmarineConfig().set(
+        SubmarineConfiguration.REMOTE_DIRECTORY_MANAGER_CLASS,
+        LocalRemoteDirectoryManager.class.getName());
+    context.getSubmarineConfig().set(
+        SubmarineConfiguration.LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT,
+        root.getPath());
+    rdm = context.getRemoteDirectoryManager();
+  }
+
+  @After
+  public void cleanup() {
+    FileUtil.fullyDelete(root);
+  }
+
+  @Test
+  public void testStagingAreaIsUnderRoot() throws IOException {
+    Assert.assertTrue(rdm instanceof LocalRemoteDirectoryManager);
+    Path staging = rdm.getJobStagingArea("job", true);
+    File stagingDir = new File(staging.toUri());
+    Assert.assertTrue(stagingDir.isDirectory());
+    Assert.assertTrue(stagingDir.getPath().startsWith(root.getPath()));
+  }
+
+  @Test
+  public void testCopyRemoteToLocalLinksFiles() throws IOException {
+    File remoteDir = new File(root, "model");
+    writeFile(new File(remoteDir, "a"), "a");
+    writeFile(new File(remoteDir, "sub/b"), "b");
+    File localDir = new File(root, "local");
+
+    Assert.assertTrue(rdm.copyRemoteToLocal(
+        remoteDir.toURI().toString(), localDir.getPath()));
+
+    Assert.assertTrue(Files.isSameFile(new File(remoteDir, "a").toPath(),
+        new File(localDir, "a").toPath()));
+    Assert.assertTrue(Files.isSameFile(new File(remoteDir, "sub/b").toPath(),
+        new File(localDir, "sub/b").toPath()));
+  }
+
+  @Test
+  public void testCopyLocalToRemoteCopiesFiles() throws IOException {
+    File localFile = new File(root, "keytab");
+    writeFile(localFile, "secret");
+    Path staging = rdm.getJobStagingArea("job", true);
+    Path remotePath = new Path(staging, localFile.getName());
+
+    rdm.copyLocalToRemote(localFile, remotePath);
+
+    File remoteFile = new File(remotePath.toUri());
+    Assert.assertEquals("secret", new String(
+        Files.readAllBytes(remoteFile.toPath()), StandardCharsets.UTF_8));
+    Assert.assertFalse(Files.isSameFile(localFile.toPath(),
+        remoteFile.toPath()));
+    Assert.assertFalse(new File(remoteFile.getParentFile(),
+        ".keytab.crc").exists());
+  }
+
+  private static void writeFile(File file, String content)
+      throws IOException {
+    Files.createDirectories(Paths.get(file.getParent()));
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class TestParallelCopier {
+  private File root;
+  private FileSystem localFs;
+
+  @Before
+  public void setup() throws IOException {
+    root = new File("target/_parallel_copier_" + System.nanoTime());
+    localFs = FileSystem.getLocal(new Configuration());
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(root);
+  }
+
+  private byte[] write(File file, int size) throws IOException {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content);
+    return content;
+  }
+
+  @Test
+  public void testCopyDirectory() throws IOException {
+    File src = new File(root, "src");
+    byte[] big = write(new File(src, "big.bin"), 10000);
+    byte[] small = write(new File(src, "sub/small.bin"), 10);
+    write(new File(src, "sub/empty.bin"), 0);
+    Assert.assertTrue(new File(src, "emptyDir").mkdirs());
+
+    File dst = new File(root, "dst");
+    ParallelCopier.CopyStats stats = new ParallelCopier(4, 1024).copy(
+        localFs, new Path(src.getAbsolutePath()), dst);
+
+    Assert.assertArrayEquals(big,
+        Files.readAllBytes(new File(dst, "big.bin").toPath()));
+    Assert.assertArrayEquals(small,
+        Files.readAllBytes(new File(dst, "sub/small.bin").toPath()));
+    Assert.assertEquals(0, new File(dst, "sub/empty.bin").length());
+    Assert.assertTrue(new File(dst, "emptyDir").isDirectory());
+
+    Assert.assertEquals(3, stats.getFiles());
+    // 10 ranges of the big file plus the small one
+    Assert.assertEquals(11, stats.getChunks());
+    Assert.assertEquals(10010, stats.getBytes());
+  }
+
+  @Test
+  public void testCopyFile() throws IOException {
+    File src = new File(root, "file.bin");
+    byte[] content = write(src, 5000);
+
+    File dst = new File(root, "copy.bin");
+    new ParallelCopier(2, 1000).copy(localFs,
+        new Path(src.getAbsolutePath()), dst);
+    Assert.assertArrayEquals(content, Files.readAllBytes(dst.toPath()));
+  }
+}
@@ -0,0 +1,264 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.common.fs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.util.Progressable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class TestResumableUploader {
+  private File dir;
+  private File src;
+  private Path dst;
+  private FlakyFileSystem fs;
+
+  /**
+   * Local file system which fails writes to temporary upload files once
+   * the given number of bytes was written, can silently flip a written
+   * byte, and counts how often they are read.
+   */
+  private static class FlakyFileSystem extends RawLocalFileSystem {
+    private long failAfter = Long.MAX_VALUE;
+    private long corruptAt = -1;
+    private long written;
+    private int opened;
+    private boolean truncateLater;
+
+    @Override
+    public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+      if (f.getName().endsWith(".uploading")) {
+        opened++;
+      }
+      return super.open(f, bufferSize);
+    }
+
+    @Override
+    public boolean truncate(Path f, long newLength) throws IOException {
+      // Like HDFS in the middle of a block, cut later by block recovery
+      return !truncateLater && super.truncate(f, newLength);
+    }
+
+    @Override
+    public FSDataOutputStream create(Path f, boolean overwrite,
+        int bufferSize, short replication, long blockSize,
+        Progressable progress) throws IOException {
+      return wrap(f, super.create(f, overwrite, bufferSize, replication,
+          blockSize, progress));
+    }
+
+    @Override
+    public FSDataOutputStream append(Path f, int bufferSize,
+        Progressable progress) throws IOException {
+      return wrap(f, super.append(f, bufferSize, progress));
+    }
+
+    private FSDataOutputStream wrap(Path f, FSDataOutputStream out)
+        throws IOException {
+      if (!f.getName().endsWith(".uploading")) {
+        return out;
+      }
+      OutputStream counting = new FilterOutputStream(out) {
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          for (int i = 0; i < len; i++) {
+            if (written >= failAfter) {
+              failAfter = Long.MAX_VALUE;
+              throw new IOException("Injected failure");
+            }
+            if (written == corruptAt) {
+              corruptAt = -1;
+              out.write(b[off + i] ^ 0xff);
+            } else {
+              out.write(b[off + i]);
+            }
+            written++;
+          }
+        }
+      };
+      return new FSDataOutputStream(counting, null);
+    }
+  }
+
+  @Before
+  public void setup() throws IOException {
+    dir = new File("target/TestResumableUploader").getAbsoluteFile();
+    FileUtil.fullyDelete(dir);
+    Assert.assertTrue(dir.mkdirs());
+    src = new File(dir, "src.zip");
+    byte[] content = new byte[3500];
+    new Random(0).nextBytes(content);
+    Files.write(src.toPath(), content);
+    dst = new Path(new File(dir, "dst.zip").toURI());
+    fs = new FlakyFileSystem();
+    Configuration conf = new Configuration();
+    conf.setLong("fs.local.block.size", 500);
+    fs.initialize(URI.create("file:///"), conf);
+  }
+
+  @After
+  public void cleanup() {
+    FileUtil.fullyDelete(dir);
+  }
+
+  @Test
+  public void testUpload() throws IOException {
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+  }
+
+  @Test
+  public void testCorruptedChunkWithoutFailuresIsUploadedAgain()
+      throws IOException {
+    fs.corruptAt = 1500;
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+    Assert.assertTrue(fs.opened > 0);
+    // Upload went on from the corrupted chunk
+    Assert.assertEquals(3500 + 2500, fs.written);
+  }
+
+  @Test
+  public void testChunksAreAlignedToBlockSize() throws IOException {
+    fs.getConf().setLong("fs.local.block.size", 1500);
+    fs.failAfter = 2500;
+    try {
+      new ResumableUploader(1000, 0).upload(src, fs, dst);
+      Assert.fail("Upload should fail");
+    } catch (IOException e) {
+      Assert.assertEquals("Injected failure", e.getMessage());
+    }
+
+    fs.written = 0;
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+    // One chunk of 1500 bytes was kept
+    Assert.assertEquals(2000, fs.written);
+  }
+
+  @Test
+  public void testUploadStartsOverWhenTruncateIsNotDone()
+      throws IOException {
+    fs.failAfter = 1200;
+    fs.truncateLater = true;
+    new ResumableUploader(1000, 1).upload(src, fs, dst);
+    assertUploaded();
+    Assert.assertEquals(1200 + 3500, fs.written);
+  }
+
+  @Test
+  public void testUploadEmptyFile() throws IOException {
+    Files.write(src.toPath(), new byte[0]);
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+  }
+
+  @Test
+  public void testFailedUploadIsResumed() throws IOException {
+    fs.failAfter = 2500;
+    try {
+      new ResumableUploader(1000, 0).upload(src, fs, dst);
+      Assert.fail("Upload should fail");
+    } catch (IOException e) {
+      Assert.assertEquals("Injected failure", e.getMessage());
+    }
+    Assert.assertFalse(new File(dst.toUri()).exists());
+    Assert.assertTrue(new File(dir, ".dst.zip.upload-manifest").exists());
+
+    fs.written = 0;
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+    // Two chunks were kept
+    Assert.assertEquals(1500, fs.written);
+  }
+
+  @Test
+  public void testFailedChunkIsRetried() throws IOException {
+    fs.failAfter = 1200;
+    new ResumableUploader(1000, 1).upload(src, fs, dst);
+    assertUploaded();
+    Assert.assertEquals(3500 + 200, fs.written);
+  }
+
+  @Test
+  public void testCorruptedChunkIsUploadedAgain() throws IOException {
+    fs.failAfter = 2500;
+    try {
+      new ResumableUploader(1000, 0).upload(src, fs, dst);
+      Assert.fail("Upload should fail");
+    } catch (IOException e) {
+      // Expected
+    }
+    try (RandomAccessFile tmp = new RandomAccessFile(
+        new File(dir, ".dst.zip.uploading"), "rw")) {
+      tmp.seek(10);
+      int b = tmp.read();
+      tmp.seek(10);
+      tmp.write(b ^ 0xff);
+    }
+
+    fs.opened = 0;
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+    Assert.assertTrue(fs.opened > 0);
+  }
+
+  @Test
+  public void testChangedSourceIsUploadedFromStart() throws IOException {
+    fs.failAfter = 2500;
+    try {
+      new ResumableUploader(1000, 0).upload(src, fs, dst);
+      Assert.fail("Upload should fail");
+    } catch (IOException e) {
+      // Expected
+    }
+    byte[] content = new byte[3000];
+    new Random(1).nextBytes(content);
+    Files.write(src.toPath(), content);
+
+    fs.written = 0;
+    new ResumableUploader(1000, 0).upload(src, fs, dst);
+    assertUploaded();
+    Assert.assertEquals(3000, fs.written);
+  }
+
+  private void assertUploaded() throws IOException {
+    Assert.assertArrayEquals(Files.readAllBytes(src.toPath()),
+        Files.readAllBytes(new File(dst.toUri()).toPath()));
+    Assert.assertFalse(new File(dir, ".dst.zip.uploading").exists());
+    Assert.assertFalse(new File(dir, ".dst.zip.upload-manifest").exists());
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.common.metrics;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestOperationMetrics {
+  /**
+   * Local file system does not count operations, this one counts listStatus.
+   */
+  public static class CountingFileSystem extends RawLocalFileSystem {
+    @Override
+    public String getScheme() {
+      return "countingfs";
+    }
+
+    @Override
+    public FileStatus[] listStatus(Path f) throws IOException {
+      statistics.incrementReadOps(1);
+      return super.listStatus(f);
+    }
+  }
+
+  @Test
+  public void testMeasure() throws IOException {
+    OperationMetrics metrics = new OperationMetrics("test");
+    Assert.assertNull(metrics.get("op"));
+    for (int i = 0; i < 10; i++) {
+      final int value = i;
+      Assert.assertEquals(value, (int) metrics.measure("op", () -> value));
+    }
+    try {
+      metrics.measure("op", () -> {
+        throw new IOException("failure");
+      });
+      Assert.fail("Exception should be passed through");
+    } catch (IOException e) {
+      Assert.assertEquals("failure", e.getMessage());
+    }
+
+    OperationMetrics.OperationStats stats = metrics.get("op");
+    Assert.assertEquals(11, stats.getCount());
+    Assert.assertEquals(1, stats.getErrors());
+    Assert.assertTrue(stats.getTotalNanos() > 0);
+    Assert.assertTrue(metrics.report().contains("op: count=11 errors=1"));
+  }
+
+  @Test
+  public void testFileSystemOpsOfOtherThreadsAreCounted() throws Exception {
+    File dir = Files.createTempDirectory("metrics").toFile();
+    CountingFileSystem fs = new CountingFileSystem();
+    fs.initialize(URI.create("countingfs:///"), new Configuration());
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      OperationMetrics metrics = new OperationMetrics("test");
+      metrics.measure("op", () -> {
+        Future<?> future = pool.submit(() -> {
+          fs.listStatus(new Path(dir.getAbsolutePath()));
+          return null;
+        });
+        try {
+          return future.get();
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      });
+      Assert.assertTrue(metrics.get("op").getFileSystemOps() > 0);
+    } finally {
+      pool.shutdownNow();
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    OperationMetrics.OperationStats stats =
+        new OperationMetrics.OperationStats();
+    Assert.assertEquals(0, stats.getPercentileMicros(0.5));
+    // 90 calls of 10us, 10 calls of 5ms
+    for (int i = 0; i < 90; i++) {
+      stats.record(10 * 1000, 1, false);
+    }
+    for (int i = 0; i < 10; i++) {
+      stats.record(5 * 1000 * 1000, 3, false);
+    }
+    Assert.assertEquals(15, stats.getPercentileMicros(0.5));
+    Assert.assertEquals(15, stats.getPercentileMicros(0.9));
+    Assert.assertEquals(8191, stats.getPercentileMicros(0.99));
+    Assert.assertEquals(120, stats.getFileSystemOps());
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link InfoMapCodec} compared with Java serialization, which
+ * was used for job.info and model info files before.
+ *
+ * Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.apache.submarine.runtimes.common.InfoMapCodecBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InfoMapCodecBenchmark {
+  @Param({"8", "64"})
+  private int entries;
+
+  private Map<String, String> map;
+  private byte[] encoded;
+  private byte[] serialized;
+
+  @Setup
+  public void setup() throws IOException {
+    map = new HashMap<>();
+    for (int i = 0; i < entries; i++) {
+      map.put("key_" + i, "hdfs://default/user/submarine/jobs/" + i);
+    }
+    encoded = InfoMapCodec.encode(map);
+    serialized = javaSerialize(map);
+  }
+
+  @Benchmark
+  public byte[] encodeCodec() throws IOException {
+    return InfoMapCodec.encode(map);
+  }
+
+  @Benchmark
+  public Map<String, String> decodeCodec() throws IOException {
+    return InfoMapCodec.decode(encoded);
+  }
+
+  @Benchmark
+  public byte[] encodeJavaSerialization() throws IOException {
+    return javaSerialize(map);
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public Map<String, String> decodeJavaSerialization()
+      throws IOException, ClassNotFoundException {
+    try (ObjectInputStream oi = new ObjectInputStream(
+        new ByteArrayInputStream(serialized))) {
+      return (Map<String, String>) oi.readObject();
+    }
+  }
+
+  private static byte[] javaSerialize(Map<String, String> map)
+      throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(map);
+    }
+    return bos.toByteArray();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(InfoMapCodecBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
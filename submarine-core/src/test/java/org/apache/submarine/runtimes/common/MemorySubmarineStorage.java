@@ -18,8 +18,14 @@
 
 package org.apache.submarine.runtimes.common;
 
+import org.apache.submarine.common.ClientContext;
+
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class MemorySubmarineStorage extends SubmarineStorage {
@@ -27,6 +33,12 @@ public class MemorySubmarineStorage extends SubmarineStorage {
   private Map<String, Map<String, Map<String, String>>> modelsInfo =
       new HashMap<>();
 
+  public MemorySubmarineStorage() {
+  }
+
+  public MemorySubmarineStorage(ClientContext clientContext) {
+  }
+
   @Override
   public synchronized void addNewJob(String jobName, Map<String, String> jobInfo)
       throws IOException {
@@ -38,17 +50,26 @@ public class MemorySubmarineStorage extends SubmarineStorage {
       throws IOException {
     Map<String, String> info = jobsInfo.get(jobName);
     if (info == null) {
-      throw new IOException("Failed to find job=" + jobName);
+      throw new FileNotFoundException("Failed to find job=" + jobName);
     }
     return info;
   }
 
+  @Override
+  public synchronized List<String> getJobNamesByInfo(String key,
+      String value) throws IOException {
+    JobIndexes.checkIndexed(key, value);
+    return JobIndexes.filter(jobsInfo, key, value, null);
+  }
+
   @Override
   public synchronized void addNewModel(String modelName, String version,
                                        Map<String, String> modelInfo) throws IOException {
     if (!modelsInfo.containsKey(modelName)) {
-      modelsInfo.put(modelName, new HashMap<>());
+      modelsInfo.put(modelName, new LinkedHashMap<>());
     }
+    // Keep versions in the order they were added
+    modelsInfo.get(modelName).remove(version);
     modelsInfo.get(modelName).put(version, modelInfo);
   }
 
@@ -71,4 +92,23 @@ public class MemorySubmarineStorage extends SubmarineStorage {
 
     return info;
   }
+
+  @Override
+  public synchronized List<String> listModelVersions(String modelName)
+      throws IOException {
+    if (!modelsInfo.containsKey(modelName)) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(modelsInfo.get(modelName).keySet());
+  }
+
+  @Override
+  public synchronized Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    List<String> versions = listModelVersions(modelName);
+    if (versions.isEmpty()) {
+      throw new IOException("Failed to find, model=" + modelName);
+    }
+    return getModelInfoByName(modelName, versions.get(versions.size() - 1));
+  }
 }
@@ -0,0 +1,47 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Job and model info maps shared by the {@link SubmarineStorage} tests.
+ */
+public final class StorageTestUtils {
+
+  private StorageTestUtils() {
+  }
+
+  public static Map<String, String> getMap(String prefix) {
+    Map<String, String> map = new HashMap<>();
+    map.put(prefix + "1", "1");
+    map.put(prefix + "2", "2");
+    map.put(prefix + "3", "3");
+    map.put(prefix + "4", "4");
+    return map;
+  }
+
+  /**
+   * Same as {@link #getMap(String)}, plus a key mapped to null, which
+   * storages have to keep apart from a missing key.
+   */
+  public static Map<String, String> getMapWithNullValue(String prefix) {
+    Map<String, String> map = getMap(prefix);
+    map.put(prefix + "null", null);
+    return map;
+  }
+}
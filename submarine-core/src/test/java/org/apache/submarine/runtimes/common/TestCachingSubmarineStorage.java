@@ -0,0 +1,254 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMap;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TestCachingSubmarineStorage {
+  private SubmarineStorage underlying;
+  private long now;
+
+  @Before
+  public void setup() {
+    underlying = spy(new MemorySubmarineStorage());
+    now = 0;
+  }
+
+  private CachingSubmarineStorage createStorage(int maxEntries, long ttlMs) {
+    return new CachingSubmarineStorage(underlying, maxEntries, ttlMs) {
+      @Override
+      long now() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void testReadThroughAndInvalidate() throws IOException {
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    storage.addNewJob("job1", getMap("job1"));
+    storage.addNewModel("model1", "1.0", getMap("model1"));
+
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(getMap("model1"),
+        storage.getModelInfoByName("model1", "1.0"));
+    Assert.assertEquals(getMap("model1"),
+        storage.getModelInfoByName("model1", "1.0"));
+    verify(underlying, times(1)).getJobInfoByName("job1");
+    verify(underlying, times(1)).getModelInfoByName("model1", "1.0");
+    Assert.assertEquals(2, storage.getHits());
+    Assert.assertEquals(2, storage.getMisses());
+
+    // Callers may modify what they get back
+    storage.getJobInfoByName("job1").clear();
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+
+    storage.addNewJob("job1", getMap("job1_new"));
+    Assert.assertEquals(getMap("job1_new"), storage.getJobInfoByName("job1"));
+    verify(underlying, times(2)).getJobInfoByName("job1");
+  }
+
+  @Test
+  public void testExpiry() throws IOException {
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    storage.addNewJob("job1", getMap("job1"));
+    storage.getJobInfoByName("job1");
+    now += TimeUnit.MILLISECONDS.toNanos(999);
+    storage.getJobInfoByName("job1");
+    verify(underlying, times(1)).getJobInfoByName("job1");
+    now += TimeUnit.MILLISECONDS.toNanos(2);
+    storage.getJobInfoByName("job1");
+    verify(underlying, times(2)).getJobInfoByName("job1");
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    CachingSubmarineStorage storage = createStorage(2, 1000);
+    for (int i = 0; i < 3; i++) {
+      storage.addNewJob("job" + i, getMap("job" + i));
+    }
+    storage.getJobInfoByName("job0");
+    storage.getJobInfoByName("job1");
+    // job0 is the most recently used one, job1 gets evicted
+    storage.getJobInfoByName("job0");
+    storage.getJobInfoByName("job2");
+    Assert.assertEquals(2, storage.size());
+
+    storage.getJobInfoByName("job0");
+    verify(underlying, times(1)).getJobInfoByName("job0");
+    storage.getJobInfoByName("job1");
+    verify(underlying, times(2)).getJobInfoByName("job1");
+  }
+
+  @Test
+  public void testBulkReadOnlyLoadsMisses() throws IOException {
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    Map<String, Map<String, String>> jobInfos = new HashMap<>();
+    jobInfos.put("job1", getMap("job1"));
+    jobInfos.put("job2", getMap("job2"));
+    storage.addNewJobs(jobInfos);
+    storage.getJobInfoByName("job1");
+
+    Map<String, Map<String, String>> read =
+        storage.getJobInfos(Arrays.asList("job2", "job1"));
+    Assert.assertEquals(Arrays.asList("job2", "job1"),
+        new ArrayList<>(read.keySet()));
+    Assert.assertEquals(getMap("job1"), read.get("job1"));
+    Assert.assertEquals(getMap("job2"), read.get("job2"));
+    verify(underlying).getJobInfos(Collections.singletonList("job2"));
+    verify(underlying, times(1)).getJobInfoByName("job1");
+  }
+
+  @Test
+  public void testLatestModelIsInvalidated() throws IOException {
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    Assert.assertEquals(getMap("model1_1.0"),
+        storage.getLatestModelInfo("model1"));
+    Assert.assertEquals(getMap("model1_1.0"),
+        storage.getLatestModelInfo("model1"));
+    verify(underlying, times(1)).getLatestModelInfo("model1");
+
+    storage.addNewModel("model1", "2.0", getMap("model1_2.0"));
+    Assert.assertEquals(getMap("model1_2.0"),
+        storage.getLatestModelInfo("model1"));
+    Assert.assertEquals(Arrays.asList("1.0", "2.0"),
+        storage.listModelVersions("model1"));
+  }
+
+  @Test
+  public void testLoadRacingAnAddIsNotCached() throws IOException {
+    final CachingSubmarineStorage[] caching = new CachingSubmarineStorage[1];
+    underlying = new MemorySubmarineStorage() {
+      private boolean raced;
+
+      @Override
+      public Map<String, String> getJobInfoByName(String jobName)
+          throws IOException {
+        Map<String, String> info = super.getJobInfoByName(jobName);
+        if (!raced) {
+          // Another client updates the job while this read is in flight
+          raced = true;
+          caching[0].addNewJob(jobName, getMap("job1_new"));
+        }
+        return info;
+      }
+    };
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    caching[0] = storage;
+    storage.addNewJob("job1", getMap("job1"));
+
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(0, storage.size());
+    Assert.assertEquals(getMap("job1_new"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(getMap("job1_new"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(1, storage.getHits());
+  }
+
+  @Test
+  public void testVersionNamedNullIsNotTheDefault() throws IOException {
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    storage.addNewModel("model1", null, getMap("model1_default"));
+    storage.addNewModel("model1", "null", getMap("model1_null"));
+    Assert.assertEquals(getMap("model1_default"),
+        storage.getModelInfoByName("model1", null));
+    Assert.assertEquals(getMap("model1_null"),
+        storage.getModelInfoByName("model1", "null"));
+    Assert.assertEquals(getMap("model1_default"),
+        storage.getModelInfoByName("model1", null));
+  }
+
+  @Test
+  public void testDefaultVersionAndVersionNamedNullAreBothInvalidated()
+      throws IOException {
+    // Like the FS based storage, keep both in the same place
+    underlying = spy(new MemorySubmarineStorage() {
+      @Override
+      public synchronized void addNewModel(String modelName, String version,
+          Map<String, String> modelInfo) throws IOException {
+        super.addNewModel(modelName, null, modelInfo);
+      }
+
+      @Override
+      public synchronized Map<String, String> getModelInfoByName(
+          String modelName, String version) throws IOException {
+        return super.getModelInfoByName(modelName, null);
+      }
+    });
+    CachingSubmarineStorage storage = createStorage(10, 1000);
+    storage.addNewModel("model1", null, getMap("model1_default"));
+    Assert.assertEquals(getMap("model1_default"),
+        storage.getModelInfoByName("model1", null));
+    Assert.assertEquals(getMap("model1_default"),
+        storage.getModelInfoByName("model1", "null"));
+
+    storage.addNewModel("model1", "null", getMap("model1_null"));
+    Assert.assertEquals(getMap("model1_null"),
+        storage.getModelInfoByName("model1", null));
+    storage.addNewModel("model1", null, getMap("model1_default_new"));
+    Assert.assertEquals(getMap("model1_default_new"),
+        storage.getModelInfoByName("model1", "null"));
+  }
+
+  @Test
+  public void testPendingLoadsDontTakeCapacity() throws IOException {
+    final CachingSubmarineStorage[] caching = new CachingSubmarineStorage[1];
+    underlying = new MemorySubmarineStorage() {
+      @Override
+      public Map<String, String> getJobInfoByName(String jobName)
+          throws IOException {
+        if (jobName.equals("job0")) {
+          // Other jobs are loaded while this load is in flight
+          caching[0].getJobInfoByName("job1");
+          caching[0].getJobInfoByName("job2");
+        }
+        return super.getJobInfoByName(jobName);
+      }
+    };
+    CachingSubmarineStorage storage = createStorage(2, 1000);
+    caching[0] = storage;
+    for (int i = 0; i < 3; i++) {
+      storage.addNewJob("job" + i, getMap("job" + i));
+    }
+    storage.getJobInfoByName("job0");
+    // job1 was the eldest once job0 got cached
+    Assert.assertEquals(2, storage.size());
+    long misses = storage.getMisses();
+    storage.getJobInfoByName("job0");
+    storage.getJobInfoByName("job2");
+    Assert.assertEquals(misses, storage.getMisses());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingJobIsNotCached() throws IOException {
+    createStorage(10, 1000).getJobInfoByName("job1");
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.runtimes.RuntimeFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMap;
+
+public class TestEmbeddedSubmarineStorage {
+  private MockClientContext clientContext;
+
+  @Before
+  public void setup() {
+    clientContext = new MockClientContext();
+    clientContext.getSubmarineConfig().set(
+        SubmarineConfiguration.EMBEDDED_STORAGE_DIR,
+        new File("target/_embedded_storage_" + System.nanoTime())
+            .getAbsolutePath());
+    clientContext.getSubmarineConfig().set(
+        SubmarineConfiguration.STORAGE_CLASS,
+        EmbeddedSubmarineStorageImpl.class.getName());
+  }
+
+  private RuntimeFactory createRuntimeFactory() {
+    return new RuntimeFactory(clientContext) {
+      @Override
+      protected JobSubmitter internalCreateJobSubmitter() {
+        return null;
+      }
+
+      @Override
+      protected JobMonitor internalCreateJobMonitor() {
+        return null;
+      }
+    };
+  }
+
+  @Test
+  public void testStorageOps() throws IOException {
+    SubmarineStorage storage = createRuntimeFactory().getSubmarineStorage();
+    Assert.assertTrue(storage instanceof EmbeddedSubmarineStorageImpl);
+    storage.addNewJob("job1", getMap("job1"));
+    storage.addNewJob("job2", new HashMap<>());
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    storage.addNewModel("model1", null, getMap("model1_default"));
+    ((EmbeddedSubmarineStorageImpl) storage).close();
+
+    // create a new storage and read it back.
+    storage = createRuntimeFactory().getSubmarineStorage();
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(new HashMap<>(), storage.getJobInfoByName("job2"));
+    Assert.assertEquals(getMap("model1_1.0"),
+        storage.getModelInfoByName("model1", "1.0"));
+    Assert.assertEquals(getMap("model1_default"),
+        storage.getModelInfoByName("model1", null));
+  }
+
+  @Test(expected = IOException.class)
+  public void testGetNonExistingJob() throws IOException {
+    createRuntimeFactory().getSubmarineStorage().getJobInfoByName("job1");
+  }
+
+  @Test
+  public void testBulkOps() throws IOException {
+    SubmarineStorage storage = createRuntimeFactory().getSubmarineStorage();
+    Map<String, Map<String, String>> jobInfos = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      jobInfos.put("job" + i, getMap("job" + i));
+    }
+    storage.addNewJobs(jobInfos);
+
+    Map<String, Map<String, String>> read =
+        storage.getJobInfos(Arrays.asList("job3", "job0", "job9"));
+    Assert.assertEquals(Arrays.asList("job3", "job0", "job9"),
+        new ArrayList<>(read.keySet()));
+    Assert.assertEquals(getMap("job3"), read.get("job3"));
+    Assert.assertEquals(getMap("job9"), read.get("job9"));
+  }
+
+  @Test
+  public void testGetJobNamesByInfo() throws IOException {
+    SubmarineStorage storage = createRuntimeFactory().getSubmarineStorage();
+    Map<String, String> jobInfo = getMap("job1");
+    jobInfo.put(StorageKeyConstants.SAVED_MODEL_PATH, "hdfs://models/m1");
+    storage.addNewJob("job1", jobInfo);
+    storage.addNewJob("job2", jobInfo);
+    storage.addNewJob("job3", getMap("job3"));
+    Assert.assertEquals(Arrays.asList("job1", "job2"),
+        storage.getJobNamesByInfo(StorageKeyConstants.SAVED_MODEL_PATH,
+            "hdfs://models/m1"));
+
+    // Index entry of job1 is removed, paths are normalized
+    storage.addNewJob("job1", getMap("job1"));
+    Assert.assertEquals(Arrays.asList("job2"),
+        storage.getJobNamesByInfo(StorageKeyConstants.SAVED_MODEL_PATH,
+            "hdfs://models//m1/"));
+  }
+
+  @Test
+  public void testModelVersions() throws IOException {
+    SubmarineStorage storage = createRuntimeFactory().getSubmarineStorage();
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    storage.addNewModel("model1", null, getMap("model1_default"));
+    storage.addNewModel("model1", "2.0", getMap("model1_2.0"));
+    Assert.assertEquals(Arrays.asList("1.0", null, "2.0"),
+        storage.listModelVersions("model1"));
+    Assert.assertEquals(getMap("model1_2.0"),
+        storage.getLatestModelInfo("model1"));
+    Assert.assertTrue(storage.listModelVersions("model2").isEmpty());
+  }
+}
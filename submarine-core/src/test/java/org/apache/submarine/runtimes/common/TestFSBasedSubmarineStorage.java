@@ -14,28 +14,32 @@
 
 package org.apache.submarine.runtimes.common;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
 import org.apache.submarine.common.fs.MockRemoteDirectoryManager;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMap;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 public class TestFSBasedSubmarineStorage {
-  private Map<String, String> getMap(String prefix) {
-    Map<String, String> map = new HashMap<>();
-    map.put(prefix + "1", "1");
-    map.put(prefix + "2", "2");
-    map.put(prefix + "3", "3");
-    map.put(prefix + "4", "4");
-    return map;
-  }
-
   private void compareMap(Map<String, String> map1, Map<String, String> map2) {
     Assert.assertEquals(map1.size(), map2.size());
     for (String k : map1.keySet()) {
@@ -70,4 +74,387 @@ public class TestFSBasedSubmarineStorage {
     compareMap(getMap("model1_2.0.0"), storage.getModelInfoByName("model1", "2.0.0"));
     compareMap(getMap("model2_1.0"), storage.getModelInfoByName("model2", "1.0"));
   }
+
+  @Test
+  public void testStorageOpsWithJobCatalog() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    Configuration conf = new Configuration(false);
+    conf.setBoolean(SubmarineConfiguration.JOB_CATALOG_ENABLED, true);
+    conf.set(SubmarineConfiguration.JOB_CATALOG_DIR, new File(
+        "target/_catalog_" + System.currentTimeMillis()).getAbsolutePath());
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    when(clientContext.getSubmarineConfig()).thenReturn(conf);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewJob("job1", getMap("job1"));
+    storage.addNewJob("job2", getMap("job2"));
+    storage.addNewJob("job3", new HashMap<>());
+
+    // create a new storage and read it back.
+    storage = new FSBasedSubmarineStorageImpl(clientContext);
+    compareMap(getMap("job1"), storage.getJobInfoByName("job1"));
+    compareMap(getMap("job2"), storage.getJobInfoByName("job2"));
+    compareMap(new HashMap<>(), storage.getJobInfoByName("job3"));
+
+    Map<String, Map<String, String>> all = storage.getAllJobInfos();
+    Assert.assertEquals(3, all.size());
+    compareMap(getMap("job2"), all.get("job2"));
+  }
+
+  @Test
+  public void testJobsStoredBeforeJobCatalog() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    Configuration conf = new Configuration(false);
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    when(clientContext.getSubmarineConfig()).thenReturn(conf);
+    new FSBasedSubmarineStorageImpl(clientContext)
+        .addNewJob("old-job", getMap("old-job"));
+
+    conf.setBoolean(SubmarineConfiguration.JOB_CATALOG_ENABLED, true);
+    conf.set(SubmarineConfiguration.JOB_CATALOG_DIR, new File(
+        "target/_catalog_" + System.nanoTime()).getAbsolutePath());
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewJob("new-job", getMap("new-job"));
+
+    compareMap(getMap("old-job"), storage.getJobInfoByName("old-job"));
+    compareMap(getMap("new-job"), storage.getJobInfoByName("new-job"));
+    try {
+      storage.getJobInfoByName("missing-job");
+      Assert.fail("Missing job should not be found");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("in catalog"));
+    }
+  }
+
+  @Test
+  public void testAllJobInfosWithJobCatalogOverExistingJobs()
+      throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    Configuration conf = new Configuration(false);
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    when(clientContext.getSubmarineConfig()).thenReturn(conf);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewJob("old-job", getMap("old-job"));
+    storage.addNewJob("updated-job", getMap("updated-job"));
+
+    conf.setBoolean(SubmarineConfiguration.JOB_CATALOG_ENABLED, true);
+    conf.set(SubmarineConfiguration.JOB_CATALOG_DIR, new File(
+        "target/_catalog_" + System.nanoTime()).getAbsolutePath());
+    storage = new FSBasedSubmarineStorageImpl(clientContext);
+    storage.addNewJob("updated-job", getMap("updated-job-v2"));
+    storage.addNewJob("new-job", getMap("new-job"));
+
+    Map<String, Map<String, String>> all = storage.getAllJobInfos();
+    Assert.assertEquals(Arrays.asList("new-job", "old-job", "updated-job"),
+        new ArrayList<>(all.keySet()));
+    compareMap(getMap("old-job"), all.get("old-job"));
+    compareMap(getMap("updated-job-v2"), all.get("updated-job"));
+    compareMap(getMap("new-job"), all.get("new-job"));
+  }
+
+  @Test
+  public void testReadLegacyJobInfo() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+
+    // job.info written by older versions with Java serialization
+    Path jobInfoPath = new Path(
+        remoteDirectoryManager.getJobStagingArea("legacy-job", true),
+        "job.info");
+    try (ObjectOutputStream oos = new ObjectOutputStream(
+        remoteDirectoryManager.getDefaultFileSystem().create(jobInfoPath))) {
+      oos.writeObject(new HashMap<>(getMap("legacy")));
+    }
+
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    compareMap(getMap("legacy"), storage.getJobInfoByName("legacy-job"));
+  }
+
+  @Test
+  public void testBulkOps() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    Configuration conf = new Configuration(false);
+    conf.setInt(SubmarineConfiguration.STORAGE_FS_BULK_THREADS, 4);
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    when(clientContext.getSubmarineConfig()).thenReturn(conf);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+
+    Map<String, Map<String, String>> jobInfos = new HashMap<>();
+    List<String> jobNames = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      jobInfos.put("bulk-job" + i, getMap("job" + i));
+      jobNames.add("bulk-job" + i);
+    }
+    storage.addNewJobs(jobInfos);
+
+    Collections.reverse(jobNames);
+    storage = new FSBasedSubmarineStorageImpl(clientContext);
+    Map<String, Map<String, String>> read = storage.getJobInfos(jobNames);
+    Assert.assertEquals(jobNames, new ArrayList<>(read.keySet()));
+    for (String jobName : jobNames) {
+      compareMap(jobInfos.get(jobName), read.get(jobName));
+    }
+
+    try {
+      storage.getJobInfos(Arrays.asList("bulk-job1", "bulk-job-missing"));
+      Assert.fail("Reading a missing job should fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private Map<String, String> getJobInfo(String applicationId,
+      String inputPath) {
+    Map<String, String> map = new HashMap<>();
+    map.put(StorageKeyConstants.APPLICATION_ID, applicationId);
+    map.put(StorageKeyConstants.INPUT_PATH, inputPath);
+    return map;
+  }
+
+  @Test
+  public void testGetJobNamesByInfo() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    Configuration conf = new Configuration(false);
+    conf.setBoolean(SubmarineConfiguration.JOB_INDEX_ENABLED, true);
+    File indexDir = new File("target/_job_index_" + System.nanoTime());
+    conf.set(SubmarineConfiguration.JOB_INDEX_DIR, indexDir.getAbsolutePath());
+    conf.setBoolean(SubmarineConfiguration.JOB_CATALOG_ENABLED, true);
+    conf.set(SubmarineConfiguration.JOB_CATALOG_DIR, new File(
+        "target/_catalog_" + System.nanoTime()).getAbsolutePath());
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    when(clientContext.getSubmarineConfig()).thenReturn(conf);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewJob("job1", getJobInfo("app_1", "hdfs://data/a"));
+    storage.addNewJob("job2", getJobInfo("app_2", "hdfs://data/a"));
+    Map<String, Map<String, String>> jobInfos = new HashMap<>();
+    jobInfos.put("job3", getJobInfo("app_3", "hdfs://data/b"));
+    jobInfos.put("job4", getJobInfo("app_4", "hdfs://data/a"));
+    storage.addNewJobs(jobInfos);
+    // job2 moves to another input, its old index entry is removed
+    storage.addNewJob("job2", getJobInfo("app_2", "hdfs://data/b"));
+    File inputIndex = new File(indexDir, StorageKeyConstants.INPUT_PATH);
+    Assert.assertFalse(new File(new File(inputIndex,
+        JobIndexes.hash("hdfs://data/a")), "job2").exists());
+    Assert.assertTrue(new File(new File(inputIndex,
+        JobIndexes.hash("hdfs://data/b")), "job2").exists());
+
+    storage = new FSBasedSubmarineStorageImpl(clientContext);
+    Assert.assertEquals(Arrays.asList("job1", "job4"), storage
+        .getJobNamesByInfo(StorageKeyConstants.INPUT_PATH, "hdfs://data/a"));
+    Assert.assertEquals(Arrays.asList("job2", "job3"), storage
+        .getJobNamesByInfo(StorageKeyConstants.INPUT_PATH, "hdfs://data/b"));
+    // Paths are normalized
+    Assert.assertEquals(Arrays.asList("job2", "job3"), storage
+        .getJobNamesByInfo(StorageKeyConstants.INPUT_PATH, "hdfs://data//b/"));
+    Assert.assertEquals(Collections.singletonList("job3"), storage
+        .getJobNamesByInfo(StorageKeyConstants.APPLICATION_ID, "app_3"));
+    Assert.assertTrue(storage.getJobNamesByInfo(
+        StorageKeyConstants.APPLICATION_ID, "app_5").isEmpty());
+
+    // Without index, all job infos in the catalog are scanned
+    conf.setBoolean(SubmarineConfiguration.JOB_INDEX_ENABLED, false);
+    storage = new FSBasedSubmarineStorageImpl(clientContext);
+    Assert.assertEquals(Arrays.asList("job2", "job3"), storage
+        .getJobNamesByInfo(StorageKeyConstants.INPUT_PATH, "hdfs://data/b"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetJobNamesByNonIndexedInfo() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.getJobNamesByInfo(StorageKeyConstants.JOB_NAME, "job1");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetJobNamesByNullValue() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.getJobNamesByInfo(StorageKeyConstants.INPUT_PATH, null);
+  }
+
+  @Test
+  public void testModelVersions() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewModel("model1", "2.0", getMap("model1_2.0"));
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    storage.addNewModel("model1", null, getMap("model1_default"));
+    storage.addNewModel("model1", "3.0", getMap("model1_3.0"));
+    storage.addNewModel("model2", "1.0", getMap("model2_1.0"));
+
+    storage = new FSBasedSubmarineStorageImpl(clientContext);
+    Assert.assertEquals(Arrays.asList("2.0", "1.0", null, "3.0"),
+        storage.listModelVersions("model1"));
+    compareMap(getMap("model1_3.0"), storage.getLatestModelInfo("model1"));
+    compareMap(getMap("model2_1.0"), storage.getLatestModelInfo("model2"));
+    Assert.assertTrue(storage.listModelVersions("model3").isEmpty());
+
+    // Adding an existing version again makes it the latest
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0_new"));
+    Assert.assertEquals(Arrays.asList("2.0", null, "3.0", "1.0"),
+        storage.listModelVersions("model1"));
+    compareMap(getMap("model1_1.0_new"), storage.getLatestModelInfo("model1"));
+  }
+
+  @Test
+  public void testModelVersionsWithoutIndex() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    storage.addNewModel("model1", "2.0", getMap("model1_2.0"));
+
+    // Model written by an older version, without version index
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    Path modelDir = remoteDirectoryManager.getModelDir("model1", false);
+    fs.delete(new Path(modelDir, "_versions"), false);
+    fs.delete(new Path(modelDir, "_latest"), false);
+    fs.setTimes(new Path(modelDir, "1.0.info"), 1000L, -1);
+    fs.setTimes(new Path(modelDir, "2.0.info"), 2000L, -1);
+
+    Assert.assertEquals(Arrays.asList("1.0", "2.0"),
+        storage.listModelVersions("model1"));
+    compareMap(getMap("model1_2.0"), storage.getLatestModelInfo("model1"));
+
+    // Index is rebuilt with next added version
+    storage.addNewModel("model1", "0.9", getMap("model1_0.9"));
+    Assert.assertTrue(fs.exists(new Path(modelDir, "_versions")));
+    Assert.assertEquals(Arrays.asList("1.0", "2.0", "0.9"),
+        storage.listModelVersions("model1"));
+  }
+
+  @Test
+  public void testModelVersionsAreAddedUnderLock() throws Exception {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+
+    // Another client is updating the version index
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    Path lock = new Path(
+        remoteDirectoryManager.getModelDir("model1", false), "_versions.lock");
+    fs.create(lock, false).close();
+    FSBasedSubmarineStorageImpl other = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    Thread adder = new Thread(() -> {
+      try {
+        other.addNewModel("model1", "2.0", getMap("model1_2.0"));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    adder.start();
+    adder.join(500);
+    Assert.assertTrue(adder.isAlive());
+    Assert.assertEquals(Collections.singletonList("1.0"),
+        storage.listModelVersions("model1"));
+
+    fs.delete(lock, false);
+    adder.join(10000);
+    Assert.assertFalse(adder.isAlive());
+    Assert.assertFalse(fs.exists(lock));
+    Assert.assertEquals(Arrays.asList("1.0", "2.0"),
+        storage.listModelVersions("model1"));
+
+    // A lock left over by a crashed client expires
+    fs.create(lock, false).close();
+    fs.setTimes(lock, System.currentTimeMillis() - 3600 * 1000L, -1);
+    storage.addNewModel("model1", "3.0", getMap("model1_3.0"));
+    Assert.assertEquals(Arrays.asList("1.0", "2.0", "3.0"),
+        storage.listModelVersions("model1"));
+  }
+
+  @Test
+  public void testLatestModelDoesNotReadVersionIndex() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    storage.addNewModel("model1", null, getMap("model1_default"));
+
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    Path modelDir = remoteDirectoryManager.getModelDir("model1", false);
+    fs.create(new Path(modelDir, "_versions"), true).close();
+    compareMap(getMap("model1_default"), storage.getLatestModelInfo("model1"));
+  }
+
+  @Test(timeout = 10000)
+  public void testFailureToCreateModelVersionLockIsThrown()
+      throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    FileSystem fs = spy(remoteDirectoryManager.getDefaultFileSystem());
+    MockRemoteDirectoryManager spyManager = spy(remoteDirectoryManager);
+    when(spyManager.getDefaultFileSystem()).thenReturn(fs);
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(spyManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    Path lock = new Path(
+        spyManager.getModelDir("model1", true), "_versions.lock");
+    doThrow(new IOException("Quota exceeded")).when(fs).create(lock, false);
+    try {
+      storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+      Assert.fail("Failure to create the lock should be thrown");
+    } catch (IOException e) {
+      Assert.assertEquals("Quota exceeded", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testNullModelVersionIsReserved() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewModel("model1", null, getMap("model1_default"));
+    try {
+      storage.addNewModel("model1", "null", getMap("model1_null"));
+      Assert.fail("Version \"null\" should be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    compareMap(getMap("model1_default"),
+        storage.getModelInfoByName("model1", null));
+    Assert.assertEquals(Collections.singletonList(null),
+        storage.listModelVersions("model1"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testGetLatestOfNonExistingModel() throws IOException {
+    MockRemoteDirectoryManager remoteDirectoryManager = new MockRemoteDirectoryManager();
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(remoteDirectoryManager);
+    FSBasedSubmarineStorageImpl storage = new FSBasedSubmarineStorageImpl(
+        clientContext);
+    storage.addNewModel("model1", "1.0", getMap("model1_1.0"));
+    storage.getLatestModelInfo("model2");
+  }
 }
@@ -0,0 +1,134 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestFileKeyValueStore {
+  private File storeDir;
+
+  @Before
+  public void setup() {
+    storeDir = new File("target/_kv_store_" + System.nanoTime());
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String string(byte[] b) {
+    return b == null ? null : new String(b, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testPutGetDelete() throws IOException {
+    try (FileKeyValueStore store = new FileKeyValueStore(storeDir, false)) {
+      store.put("a", bytes("1"));
+      store.put("b", bytes("2"));
+      store.put("a", bytes("3"));
+      store.put("empty", new byte[0]);
+      store.delete("b");
+      Assert.assertEquals("3", string(store.get("a")));
+      Assert.assertNull(store.get("b"));
+      Assert.assertEquals(0, store.get("empty").length);
+    }
+
+    // reopen and rebuild the index from the log
+    try (FileKeyValueStore store = new FileKeyValueStore(storeDir, false)) {
+      Assert.assertEquals("3", string(store.get("a")));
+      Assert.assertNull(store.get("b"));
+      Assert.assertTrue(store.contains("empty"));
+      Assert.assertEquals(Arrays.asList("a", "empty"), store.keys(""));
+    }
+  }
+
+  @Test
+  public void testSharedBetweenInstances() throws IOException {
+    try (FileKeyValueStore writer = new FileKeyValueStore(storeDir, true);
+         FileKeyValueStore reader = new FileKeyValueStore(storeDir, true)) {
+      Assert.assertNull(reader.get("a"));
+      writer.put("a", bytes("1"));
+      Assert.assertEquals("1", string(reader.get("a")));
+
+      Map<String, byte[]> batch = new HashMap<>();
+      batch.put("m/1", bytes("x"));
+      batch.put("m/2", bytes("y"));
+      reader.putAll(batch);
+      Assert.assertEquals(Arrays.asList("m/1", "m/2"), writer.keys("m/"));
+
+      // compaction replaces the file, the other instance has to notice
+      writer.put("a", bytes("2"));
+      writer.compact();
+      Assert.assertEquals(0, writer.getDeadRecords());
+      Assert.assertEquals("2", string(reader.get("a")));
+      reader.put("b", bytes("3"));
+      Assert.assertEquals("3", string(writer.get("b")));
+    }
+  }
+
+  @Test
+  public void testUpdateReadsWritesOfOtherInstances() throws IOException {
+    try (FileKeyValueStore first = new FileKeyValueStore(storeDir, false);
+         FileKeyValueStore second = new FileKeyValueStore(storeDir, false)) {
+      // both instances have indexed the key before the updates
+      Assert.assertNull(first.get("counter"));
+      Assert.assertNull(second.get("counter"));
+      FileKeyValueStore.Update increment = current -> {
+        int value = current == null ? 0 : Integer.parseInt(string(current));
+        Map<String, byte[]> entries = new HashMap<>();
+        entries.put("counter", bytes(String.valueOf(value + 1)));
+        entries.put("log/" + value, new byte[0]);
+        return entries;
+      };
+      first.update("counter", increment);
+      second.update("counter", increment);
+      first.update("counter", increment);
+      Assert.assertEquals("3", string(second.get("counter")));
+      Assert.assertEquals(Arrays.asList("log/0", "log/1", "log/2"),
+          second.keys("log/"));
+    }
+  }
+
+  @Test
+  public void testTornTailIsTruncated() throws IOException {
+    try (FileKeyValueStore store = new FileKeyValueStore(storeDir, false)) {
+      store.put("a", bytes("1"));
+      store.put("b", bytes("2"));
+    }
+    File dataFile = new File(storeDir, FileKeyValueStore.DATA_FILE);
+    try (RandomAccessFile raf = new RandomAccessFile(dataFile, "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+
+    try (FileKeyValueStore store = new FileKeyValueStore(storeDir, false)) {
+      Assert.assertEquals("1", string(store.get("a")));
+      Assert.assertNull(store.get("b"));
+      store.put("c", bytes("3"));
+    }
+    try (FileKeyValueStore store = new FileKeyValueStore(storeDir, false)) {
+      Assert.assertEquals("3", string(store.get("c")));
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestInfoMapCodec {
+  private Map<String, String> getMap() {
+    Map<String, String> map = new HashMap<>();
+    map.put("app_id", "application_1562000000000_0001");
+    map.put("input_path", "hdfs://default/user/你好/input");
+    map.put("empty", "");
+    map.put("null_value", null);
+    map.put(null, "null_key");
+    return map;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Assert.assertEquals(getMap(),
+        InfoMapCodec.decode(InfoMapCodec.encode(getMap())));
+    Assert.assertEquals(new HashMap<>(),
+        InfoMapCodec.decode(InfoMapCodec.encode(new HashMap<>())));
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    InfoMapCodec.write(bos, getMap());
+    Assert.assertEquals(getMap(), InfoMapCodec.read(
+        new ByteArrayInputStream(bos.toByteArray())));
+  }
+
+  @Test
+  public void testDecodeJavaSerializedMap() throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(getMap());
+    }
+    Assert.assertEquals(getMap(), InfoMapCodec.decode(bos.toByteArray()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeUnknownVersion() throws IOException {
+    byte[] bytes = InfoMapCodec.encode(getMap());
+    bytes[4] = InfoMapCodec.VERSION + 1;
+    InfoMapCodec.decode(bytes);
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeGarbage() throws IOException {
+    InfoMapCodec.decode(new byte[] {1, 2, 3});
+  }
+}
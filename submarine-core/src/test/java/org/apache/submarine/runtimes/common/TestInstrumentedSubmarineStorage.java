@@ -0,0 +1,75 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.metrics.OperationMetrics;
+import org.apache.submarine.runtimes.RuntimeFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMap;
+
+public class TestInstrumentedSubmarineStorage {
+  @Test
+  public void testMeasuresCalls() throws IOException {
+    OperationMetrics metrics = new OperationMetrics("storage");
+    SubmarineStorage storage = new InstrumentedSubmarineStorage(
+        new MemorySubmarineStorage(), metrics);
+    storage.addNewJob("job1", getMap("job1"));
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+    try {
+      storage.getJobInfoByName("job2");
+      Assert.fail("Reading a missing job should fail");
+    } catch (IOException e) {
+      // expected
+    }
+
+    Assert.assertEquals(1, metrics.get("addNewJob").getCount());
+    Assert.assertEquals(3, metrics.get("getJobInfoByName").getCount());
+    Assert.assertEquals(1, metrics.get("getJobInfoByName").getErrors());
+    Assert.assertNull(metrics.get("addNewModel"));
+  }
+
+  @Test
+  public void testEnabledByConfiguration() {
+    MockClientContext clientContext = new MockClientContext();
+    clientContext.getSubmarineConfig().set(
+        SubmarineConfiguration.STORAGE_CLASS,
+        MemorySubmarineStorage.class.getName());
+    clientContext.getSubmarineConfig().setBoolean(
+        SubmarineConfiguration.STORAGE_INSTRUMENTATION_ENABLED, true);
+    RuntimeFactory runtimeFactory = new RuntimeFactory(clientContext) {
+      @Override
+      protected JobSubmitter internalCreateJobSubmitter() {
+        return null;
+      }
+
+      @Override
+      protected JobMonitor internalCreateJobMonitor() {
+        return null;
+      }
+    };
+    SubmarineStorage storage = runtimeFactory.getSubmarineStorage();
+    Assert.assertTrue(storage instanceof InstrumentedSubmarineStorage);
+    Assert.assertTrue(((InstrumentedSubmarineStorage) storage)
+        .getUnderlyingStorage() instanceof MemorySubmarineStorage);
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMapWithNullValue;
+
+public class TestJobCatalog {
+  private FileSystem fs;
+  private Path catalogDir;
+
+  @Before
+  public void setup() throws IOException {
+    fs = FileSystem.getLocal(new Configuration());
+    catalogDir = new Path(new File(
+        "target/_job_catalog_" + System.nanoTime()).getAbsolutePath());
+    fs.mkdirs(catalogDir);
+  }
+
+  private int countIndexFiles() throws IOException {
+    int count = 0;
+    for (FileStatus status : fs.listStatus(catalogDir)) {
+      if (status.getPath().getName().endsWith(".index")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testPutAndGet() throws IOException {
+    JobCatalog catalog = new JobCatalog(fs, catalogDir, 100);
+    catalog.put("job1", getMapWithNullValue("job1"));
+    Map<String, Map<String, String>> jobs = new HashMap<>();
+    jobs.put("job2", getMapWithNullValue("job2"));
+    jobs.put("job3", getMapWithNullValue("job3"));
+    catalog.putAll(jobs);
+    // Overwrite job1
+    catalog.put("job1", getMapWithNullValue("job1_new"));
+
+    // read back with a fresh catalog
+    catalog = new JobCatalog(fs, catalogDir, 100);
+    Assert.assertEquals(getMapWithNullValue("job1_new"), catalog.get("job1"));
+    Assert.assertEquals(getMapWithNullValue("job2"), catalog.get("job2"));
+    Assert.assertEquals(getMapWithNullValue("job3"), catalog.get("job3"));
+
+    Map<String, Map<String, String>> all = catalog.getAll();
+    Assert.assertEquals(3, all.size());
+    Assert.assertEquals(getMapWithNullValue("job1_new"), all.get("job1"));
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testGetNonExistingJob() throws IOException {
+    JobCatalog catalog = new JobCatalog(fs, catalogDir, 100);
+    catalog.put("job1", getMapWithNullValue("job1"));
+    catalog.get("job2");
+  }
+
+  @Test
+  public void testSeesJobsOfOtherClients() throws IOException {
+    JobCatalog reader = new JobCatalog(fs, catalogDir, 100);
+    JobCatalog writer = new JobCatalog(fs, catalogDir, 100);
+    writer.put("job1", getMapWithNullValue("job1"));
+    Assert.assertEquals(getMapWithNullValue("job1"), reader.get("job1"));
+    writer.put("job2", getMapWithNullValue("job2"));
+    Assert.assertEquals(getMapWithNullValue("job2"), reader.get("job2"));
+  }
+
+  @Test
+  public void testGetAllOfGivenJobs() throws IOException {
+    JobCatalog catalog = new JobCatalog(fs, catalogDir, 100);
+    catalog.put("job1", getMapWithNullValue("job1"));
+    catalog.put("job2", getMapWithNullValue("job2"));
+    catalog.put("job3", getMapWithNullValue("job3"));
+
+    JobCatalog reader = new JobCatalog(fs, catalogDir, 100);
+    Map<String, Map<String, String>> jobs =
+        reader.getAll(Arrays.asList("job3", "job1", "job-missing"));
+    Assert.assertEquals(2, jobs.size());
+    Assert.assertEquals(getMapWithNullValue("job1"), jobs.get("job1"));
+    Assert.assertEquals(getMapWithNullValue("job3"), jobs.get("job3"));
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    JobCatalog catalog = new JobCatalog(fs, catalogDir, 3);
+    for (int i = 0; i < 10; i++) {
+      catalog.put("job" + i, getMapWithNullValue("job" + i));
+    }
+    catalog.put("job0", getMapWithNullValue("job0_new"));
+    Assert.assertTrue(countIndexFiles() <= 4);
+
+    JobCatalog reader = new JobCatalog(fs, catalogDir, 3);
+    reader.compact();
+    Assert.assertEquals(1, countIndexFiles());
+    Assert.assertEquals(getMapWithNullValue("job0_new"), reader.get("job0"));
+    for (int i = 1; i < 10; i++) {
+      Assert.assertEquals(getMapWithNullValue("job" + i), reader.get("job" + i));
+    }
+    // Segments read by the first catalog are gone, it has to reload
+    Assert.assertEquals(getMapWithNullValue("job5"), catalog.get("job5"));
+    Assert.assertEquals(10, catalog.getAll().size());
+  }
+
+  @Test
+  public void testCompactionDoesNotShadowLaterRecords() throws IOException {
+    JobCatalog writer = new JobCatalog(fs, catalogDir, 100);
+    writer.put("job0", getMapWithNullValue("job0"));
+    JobCatalog other = new JobCatalog(fs, catalogDir, 100);
+    for (int i = 1; i < 5; i++) {
+      other.put("job" + i, getMapWithNullValue("job" + i));
+    }
+    new JobCatalog(fs, catalogDir, 100).compact();
+    Assert.assertEquals(1, countIndexFiles());
+
+    // Numbered before the merged segment, the writer has not seen it
+    writer.put("job0", getMapWithNullValue("job0_new"));
+    JobCatalog reader = new JobCatalog(fs, catalogDir, 100);
+    Assert.assertEquals(getMapWithNullValue("job0_new"), reader.get("job0"));
+    Assert.assertEquals(5, reader.getAll().size());
+  }
+}
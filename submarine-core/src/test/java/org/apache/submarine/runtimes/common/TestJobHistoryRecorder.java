@@ -0,0 +1,131 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.api.JobState;
+import org.apache.submarine.common.api.JobStatus;
+import org.apache.submarine.common.fs.MockRemoteDirectoryManager;
+import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.apache.submarine.runtimes.RuntimeFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestJobHistoryRecorder {
+  private SubmarineStorage storage;
+  private JobHistoryStore historyStore;
+  private RemoteDirectoryManager rdm;
+  private JobHistoryRecorder recorder;
+
+  @Before
+  public void setup() throws IOException {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    historyStore = new JobHistoryStore(fs, new Path(new File(
+        "target/_job_history_" + System.nanoTime()).getAbsolutePath()), 10);
+    storage = new MemorySubmarineStorage();
+    RuntimeFactory runtimeFactory = mock(RuntimeFactory.class);
+    when(runtimeFactory.getSubmarineStorage()).thenReturn(storage);
+    when(runtimeFactory.getJobHistoryStore()).thenReturn(historyStore);
+    ClientContext clientContext = mock(ClientContext.class);
+    when(clientContext.getRuntimeFactory()).thenReturn(runtimeFactory);
+    rdm = new MockRemoteDirectoryManager();
+    when(clientContext.getRemoteDirectoryManager()).thenReturn(rdm);
+    recorder = new JobHistoryRecorder(clientContext);
+  }
+
+  private JobStatus getStatus(JobState state) {
+    JobStatus status = new JobStatus();
+    status.setState(state);
+    status.setFinishTime(5000L);
+    return status;
+  }
+
+  private void addJob(String jobName) throws IOException {
+    Map<String, String> jobInfo = new HashMap<>();
+    jobInfo.put(StorageKeyConstants.JOB_NAME, jobName);
+    new JobHistoryRecord().setQueue("q1").setSubmitTime(1000L)
+        .setWorkers(2, 4, 8192, 1).setPs(1, 2, 4096, 0).toJobInfo(jobInfo);
+    storage.addNewJob(jobName, jobInfo);
+    rdm.getJobStagingArea(jobName, true);
+  }
+
+  @Test
+  public void testFinishedJobIsRecordedOnce() throws IOException {
+    addJob("job1");
+
+    recorder.recordIfFinal("job1", getStatus(JobState.RUNNING));
+    Assert.assertEquals(0, historyStore.load().size());
+
+    recorder.recordIfFinal("job1", getStatus(JobState.FAILED));
+    recorder.recordIfFinal("job1", getStatus(JobState.FAILED));
+    JobHistory history = historyStore.load();
+    Assert.assertEquals(1, history.size());
+    JobHistoryRecord record = history.getRecord(0);
+    Assert.assertEquals("job1", record.getJobName());
+    Assert.assertEquals("q1", record.getQueue());
+    Assert.assertEquals(1000L, record.getSubmitTime());
+    Assert.assertEquals(5000L, record.getFinishTime());
+    Assert.assertEquals(JobState.FAILED, record.getFinalState());
+    Assert.assertEquals(2, record.getNumWorkers());
+    Assert.assertEquals(1, record.getWorkerGpus());
+    Assert.assertEquals(4096, record.getPsMemoryMB());
+  }
+
+  @Test
+  public void testJobSubmittedWithoutHistoryIsNotRecorded()
+      throws IOException {
+    Map<String, String> jobInfo = new HashMap<>();
+    jobInfo.put(StorageKeyConstants.JOB_NAME, "job1");
+    storage.addNewJob("job1", jobInfo);
+    recorder.recordIfFinal("job1", getStatus(JobState.SUCCEEDED));
+    Assert.assertEquals(0, historyStore.load().size());
+  }
+
+  @Test
+  public void testJobClaimedByAnotherClientIsNotRecorded()
+      throws IOException {
+    addJob("job1");
+    // Another client has seen it finish and is recording it
+    rdm.getDefaultFileSystem().create(new Path(
+        rdm.getJobStagingArea("job1", false), "history-1000.recorded"))
+        .close();
+    recorder.recordIfFinal("job1", getStatus(JobState.FAILED));
+    Assert.assertEquals(0, historyStore.load().size());
+  }
+
+  @Test
+  public void testJobWithoutFinishTimeIsNotRecorded() throws IOException {
+    addJob("job1");
+    JobStatus status = getStatus(JobState.SUCCEEDED);
+    status.setFinishTime(0);
+    recorder.recordIfFinal("job1", status);
+    Assert.assertEquals(0, historyStore.load().size());
+    recorder.recordIfFinal("job1", getStatus(JobState.SUCCEEDED));
+    Assert.assertEquals(1, historyStore.load().size());
+  }
+}
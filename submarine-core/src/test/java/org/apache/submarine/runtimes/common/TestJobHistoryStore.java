@@ -0,0 +1,174 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.submarine.common.api.JobState;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TestJobHistoryStore {
+  private static final long HOUR = 3600 * 1000L;
+
+  private FileSystem fs;
+  private Path historyDir;
+
+  @Before
+  public void setup() throws IOException {
+    fs = FileSystem.getLocal(new Configuration());
+    historyDir = new Path(new File(
+        "target/_job_history_" + System.nanoTime()).getAbsolutePath());
+    fs.mkdirs(historyDir);
+  }
+
+  private JobHistoryRecord getRecord(String jobName, String queue,
+      long finishTime, long hours, int workers, long gpus, JobState state) {
+    return new JobHistoryRecord()
+        .setJobName(jobName)
+        .setQueue(queue)
+        .setSubmitTime(finishTime - hours * HOUR)
+        .setFinishTime(finishTime)
+        .setFinalState(state)
+        .setWorkers(workers, 4, 8192, gpus)
+        .setPs(1, 2, 4096, 0);
+  }
+
+  private int countBlocks() throws IOException {
+    int count = 0;
+    for (FileStatus status : fs.listStatus(historyDir)) {
+      if (status.getPath().getName().endsWith(".col")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testAddAndLoad() throws IOException {
+    JobHistoryStore store = new JobHistoryStore(fs, historyDir, 100);
+    store.add(getRecord("job1", "q1", 10 * HOUR, 2, 2, 1,
+        JobState.SUCCEEDED));
+    store.addAll(Arrays.asList(
+        getRecord("job2", "q2", 20 * HOUR, 1, 4, 2, JobState.FAILED),
+        getRecord("job3", null, 30 * HOUR, 3, 1, 0, JobState.KILLED)));
+
+    JobHistory history = new JobHistoryStore(fs, historyDir, 100).load();
+    Assert.assertEquals(3, history.size());
+    JobHistoryRecord record = history.getRecord(1);
+    Assert.assertEquals("job2", record.getJobName());
+    Assert.assertEquals("q2", record.getQueue());
+    Assert.assertEquals(HOUR, record.getDurationMs());
+    Assert.assertEquals(JobState.FAILED, record.getFinalState());
+    Assert.assertEquals(4, record.getNumWorkers());
+    Assert.assertEquals(8192, record.getWorkerMemoryMB());
+    Assert.assertEquals(2, record.getWorkerGpus());
+    Assert.assertEquals(1, record.getNumPs());
+    Assert.assertEquals(2, record.getPsVcores());
+    Assert.assertNull(history.getRecord(2).getQueue());
+  }
+
+  @Test
+  public void testAggregates() throws IOException {
+    JobHistoryStore store = new JobHistoryStore(fs, historyDir, 100);
+    store.addAll(Arrays.asList(
+        getRecord("job1", "q1", 10 * HOUR, 2, 2, 1, JobState.SUCCEEDED),
+        getRecord("job2", "q1", 20 * HOUR, 1, 4, 2, JobState.FAILED),
+        getRecord("job3", "q2", 30 * HOUR, 3, 1, 0, JobState.SUCCEEDED),
+        getRecord("job4", "q2", 40 * HOUR, 1, 1, 1, JobState.SUCCEEDED)));
+
+    JobHistory history = store.load();
+    Map<String, Double> gpuHours =
+        history.getGpuHoursByQueue(0, 35 * HOUR);
+    Assert.assertEquals(2, gpuHours.size());
+    Assert.assertEquals(2 * 2 + 1 * 8, gpuHours.get("q1"), 0.001);
+    Assert.assertEquals(0, gpuHours.get("q2"), 0.001);
+
+    Map<JobState, Integer> counts = history.countByState(15 * HOUR, Long.MAX_VALUE);
+    Assert.assertEquals(2, counts.get(JobState.SUCCEEDED).intValue());
+    Assert.assertEquals(1, counts.get(JobState.FAILED).intValue());
+    Assert.assertNull(counts.get(JobState.KILLED));
+
+    Map<String, Long> durations =
+        history.getMeanDurationMsByQueue(0, Long.MAX_VALUE);
+    Assert.assertEquals(3 * HOUR / 2, durations.get("q1").longValue());
+    Assert.assertEquals(2 * HOUR, durations.get("q2").longValue());
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    JobHistoryStore store = new JobHistoryStore(fs, historyDir, 3);
+    List<String> jobNames = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      store.add(getRecord("job" + i, "q" + (i % 2), (i + 1) * HOUR, 1, 1, 1,
+          JobState.SUCCEEDED));
+      jobNames.add("job" + i);
+    }
+    Assert.assertTrue(countBlocks() <= 3);
+
+    store.compact();
+    Assert.assertEquals(1, countBlocks());
+    JobHistory history = new JobHistoryStore(fs, historyDir, 3).load();
+    Assert.assertEquals(10, history.size());
+    List<String> read = new ArrayList<>();
+    for (int i = 0; i < history.size(); i++) {
+      read.add(history.getRecord(i).getJobName());
+    }
+    Assert.assertEquals(jobNames, read);
+    Assert.assertEquals(5, history.getGpuHoursByQueue(0, Long.MAX_VALUE)
+        .get("q1"), 0.001);
+  }
+
+  @Test
+  public void testAddOnlyMergesNewestBlocks() throws IOException {
+    JobHistoryStore store = new JobHistoryStore(fs, historyDir, 4);
+    List<String> jobNames = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      store.add(getRecord("job" + i, "q1", (i + 1) * HOUR, 1, 1, 1,
+          JobState.SUCCEEDED));
+      jobNames.add("job" + i);
+    }
+    Assert.assertTrue(countBlocks() <= 4);
+    // Blocks are not all merged into one, older ones are larger
+    Assert.assertTrue(countBlocks() > 1);
+    Map<String, Long> sizes = new TreeMap<>();
+    for (FileStatus status : fs.listStatus(historyDir)) {
+      if (status.getPath().getName().endsWith(".col")) {
+        sizes.put(status.getPath().getName(), status.getLen());
+      }
+    }
+    List<Long> ordered = new ArrayList<>(sizes.values());
+    Assert.assertTrue(ordered.get(0) > ordered.get(ordered.size() - 1));
+
+    JobHistory history = new JobHistoryStore(fs, historyDir, 4).load();
+    List<String> read = new ArrayList<>();
+    for (int i = 0; i < history.size(); i++) {
+      read.add(history.getRecord(i).getJobName());
+    }
+    Assert.assertEquals(jobNames, read);
+  }
+}
@@ -0,0 +1,260 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.yarn.exceptions.ApplicationNotFoundException;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.submarine.client.cli.CliConstants;
+import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.api.JobState;
+import org.apache.submarine.common.api.JobStatus;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.fs.MockRemoteDirectoryManager;
+import org.apache.submarine.runtimes.RuntimeFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestStagingAreaGarbageCollector {
+  private static final long OLD = System.currentTimeMillis() - 3600 * 1000;
+
+  private MockClientContext clientContext;
+  private MockRemoteDirectoryManager rdm;
+  private FileSystem fs;
+  private JobMonitor jobMonitor;
+  private SubmarineStorage storage;
+  private Path sharedCacheDir;
+
+  @Before
+  public void setup() throws IOException, YarnException {
+    rdm = new MockRemoteDirectoryManager() {
+      @Override
+      public Path getUserRootFolder() throws IOException {
+        return getJobStagingArea("root-probe", true).getParent();
+      }
+    };
+    fs = rdm.getDefaultFileSystem();
+    clientContext = new MockClientContext();
+    clientContext.setRemoteDirectoryMgr(rdm);
+    sharedCacheDir = fs.makeQualified(new Path(new File(
+        "target/_shared_cache_" + System.nanoTime()).getAbsolutePath()));
+    clientContext.getSubmarineConfig().set(
+        SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        sharedCacheDir.toString());
+
+    jobMonitor = mock(JobMonitor.class);
+    storage = new MemorySubmarineStorage();
+    RuntimeFactory runtimeFactory = mock(RuntimeFactory.class);
+    when(runtimeFactory.getJobMonitorInstance()).thenReturn(jobMonitor);
+    when(runtimeFactory.getSubmarineStorage()).thenReturn(storage);
+    clientContext.setRuntimeFactory(runtimeFactory);
+    // Probe folder has no status
+    when(jobMonitor.getTrainingJobStatus("root-probe")).thenThrow(
+        new ApplicationNotFoundException("unknown job"));
+  }
+
+  private Path createStagingArea(String jobName, JobState state)
+      throws IOException, YarnException {
+    Path staging = rdm.getJobStagingArea(jobName, true);
+    for (String name : new String[] {"job.info", "run-worker.sh",
+        "core-site.xml", "my.keytab"}) {
+      fs.create(new Path(staging, name)).close();
+      fs.setTimes(new Path(staging, name), OLD, -1);
+    }
+    Path checkpoint = new Path(staging, CliConstants.CHECKPOINT_PATH);
+    fs.mkdirs(checkpoint);
+    fs.setTimes(checkpoint, OLD, -1);
+    fs.setTimes(staging, OLD, -1);
+
+    JobStatus status = new JobStatus();
+    status.setState(state);
+    when(jobMonitor.getTrainingJobStatus(jobName)).thenReturn(status);
+    return staging;
+  }
+
+  private void assertCollected(Path staging) throws IOException {
+    Assert.assertTrue(fs.exists(new Path(staging, "job.info")));
+    Assert.assertTrue(fs.exists(
+        new Path(staging, CliConstants.CHECKPOINT_PATH)));
+    Assert.assertFalse(fs.exists(new Path(staging, "run-worker.sh")));
+    Assert.assertFalse(fs.exists(new Path(staging, "my.keytab")));
+  }
+
+  private void assertNotCollected(Path staging) throws IOException {
+    Assert.assertTrue(fs.exists(new Path(staging, "run-worker.sh")));
+    Assert.assertTrue(fs.exists(new Path(staging, "my.keytab")));
+  }
+
+  @Test
+  public void testCollectFinishedJobs() throws Exception {
+    Path succeeded = createStagingArea("succeeded", JobState.SUCCEEDED);
+    Path failed = createStagingArea("failed", JobState.FAILED);
+    Path running = createStagingArea("running", JobState.RUNNING);
+
+    StagingAreaGarbageCollector.Result result =
+        new StagingAreaGarbageCollector(clientContext)
+            .setRetentionMs(60 * 1000)
+            .setConcurrency(2)
+            .setMaxDeletesPerSecond(1000)
+            .collectAll();
+    Assert.assertEquals(Arrays.asList("failed", "succeeded"),
+        result.getCollectedJobs());
+    Assert.assertEquals(Arrays.asList("root-probe", "running"),
+        result.getSkippedJobs());
+    Assert.assertEquals(6, result.getDeletedPaths().size());
+    assertCollected(succeeded);
+    assertCollected(failed);
+    assertNotCollected(running);
+  }
+
+  @Test
+  public void testRetention() throws Exception {
+    Path recent = createStagingArea("recent", JobState.SUCCEEDED);
+    fs.setTimes(new Path(recent, "run-worker.sh"),
+        System.currentTimeMillis(), -1);
+    Path kept = createStagingArea("kept", JobState.SUCCEEDED);
+    Path old = createStagingArea("old", JobState.KILLED);
+
+    clientContext.getSubmarineConfig().setLong(
+        SubmarineConfiguration.GC_STAGING_RETENTION_MS + ".kept", -1);
+    StagingAreaGarbageCollector.Result result =
+        new StagingAreaGarbageCollector(clientContext)
+            .setRetentionMs(60 * 1000)
+            .collect(Arrays.asList("recent", "kept", "old"));
+    Assert.assertEquals(Collections.singletonList("old"),
+        result.getCollectedJobs());
+    assertNotCollected(recent);
+    assertNotCollected(kept);
+    assertCollected(old);
+  }
+
+  @Test
+  public void testCheckpointInJobInfoIsPreserved() throws Exception {
+    Path staging = createStagingArea("job1", JobState.SUCCEEDED);
+    Path models = new Path(staging, "models");
+    fs.mkdirs(new Path(models, "v1"));
+    fs.setTimes(models, OLD, -1);
+    fs.setTimes(staging, OLD, -1);
+    Map<String, String> jobInfo = new HashMap<>();
+    jobInfo.put(StorageKeyConstants.SAVED_MODEL_PATH,
+        new Path(models, "v1").toString());
+    storage.addNewJob("job1", jobInfo);
+
+    new StagingAreaGarbageCollector(clientContext).setRetentionMs(0)
+        .collect(Collections.singletonList("job1"));
+    assertCollected(staging);
+    Assert.assertTrue(fs.exists(new Path(models, "v1")));
+  }
+
+  @Test
+  public void testDryRunAndUnknownJobs() throws Exception {
+    Path staging = createStagingArea("unknown", JobState.SUCCEEDED);
+    when(jobMonitor.getTrainingJobStatus("unknown")).thenThrow(
+        new ApplicationNotFoundException("unknown job"));
+
+    StagingAreaGarbageCollector gc =
+        new StagingAreaGarbageCollector(clientContext).setRetentionMs(0);
+    Assert.assertTrue(gc.collect(Collections.singletonList("unknown"))
+        .getCollectedJobs().isEmpty());
+
+    // Old enough to be collected without a status
+    gc.setUnknownRetentionMs(60 * 1000).setDryRun(true);
+    Assert.assertEquals(Collections.singletonList("unknown"),
+        gc.collect(Collections.singletonList("unknown")).getCollectedJobs());
+    gc.setUnknownRetentionMs(-1);
+    Assert.assertTrue(gc.collect(Collections.singletonList("unknown"))
+        .getCollectedJobs().isEmpty());
+
+    gc.setCollectUnknown(true);
+    StagingAreaGarbageCollector.Result result =
+        gc.collect(Collections.singletonList("unknown"));
+    Assert.assertEquals(3, result.getDeletedPaths().size());
+    assertNotCollected(staging);
+
+    gc.setDryRun(false).collect(Collections.singletonList("unknown"));
+    assertCollected(staging);
+  }
+
+  @Test
+  public void testJobWithFailingStatusIsSkipped() throws Exception {
+    Path staging = createStagingArea("job1", JobState.SUCCEEDED);
+    when(jobMonitor.getTrainingJobStatus("job1")).thenThrow(
+        new YarnException("ResourceManager is not reachable"));
+
+    StagingAreaGarbageCollector.Result result =
+        new StagingAreaGarbageCollector(clientContext).setRetentionMs(0)
+            .setCollectUnknown(true).setUnknownRetentionMs(0)
+            .collect(Collections.singletonList("job1"));
+    Assert.assertEquals(Collections.singletonList("job1"),
+        result.getSkippedJobs());
+    assertNotCollected(staging);
+  }
+
+  @Test
+  public void testJobWithFailingInfoIsNotCollected() throws Exception {
+    Path staging = createStagingArea("job1", JobState.SUCCEEDED);
+    SubmarineStorage failing = mock(SubmarineStorage.class);
+    when(failing.getJobInfoByName("job1")).thenThrow(
+        new IOException("NameNode is in safe mode"));
+    when(clientContext.getRuntimeFactory().getSubmarineStorage())
+        .thenReturn(failing);
+
+    StagingAreaGarbageCollector.Result result =
+        new StagingAreaGarbageCollector(clientContext).setRetentionMs(0)
+            .collect(Collections.singletonList("job1"));
+    Assert.assertEquals(Collections.singletonList("job1"),
+        result.getFailedJobs());
+    assertNotCollected(staging);
+  }
+
+  @Test
+  public void testUnusedSharedCacheEntriesAreCollected() throws Exception {
+    Path userDir = new Path(sharedCacheDir,
+        UserGroupInformation.getCurrentUser().getShortUserName());
+    Path unused = new Path(userDir, "unused-hash");
+    Path used = new Path(userDir, "used-hash");
+    for (Path entry : new Path[] {unused, used}) {
+      fs.create(new Path(entry, "model.zip")).close();
+    }
+    fs.setTimes(unused, OLD, -1);
+
+    StagingAreaGarbageCollector gc =
+        new StagingAreaGarbageCollector(clientContext)
+            .setSharedCacheRetentionMs(60 * 1000).setDryRun(true);
+    Assert.assertEquals(Collections.singletonList(unused),
+        gc.collectAll().getDeletedPaths());
+    Assert.assertTrue(fs.exists(unused));
+
+    gc.setSharedCacheRetentionMs(-1).setDryRun(false).collectAll();
+    Assert.assertTrue(fs.exists(unused));
+
+    gc.setSharedCacheRetentionMs(60 * 1000).collectAll();
+    Assert.assertFalse(fs.exists(unused));
+    Assert.assertTrue(fs.exists(used));
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+
+package org.apache.submarine.runtimes.common;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMap;
+
+public class TestWriteBehindSubmarineStorage {
+  private File journalDir;
+  private WriteBehindSubmarineStorage storage;
+
+  @Before
+  public void setup() {
+    journalDir = new File("target/_journal_" + System.nanoTime());
+  }
+
+  @After
+  public void cleanup() throws InterruptedException {
+    if (storage != null) {
+      storage.close(0);
+    }
+  }
+
+  private int countJournalFiles() {
+    return FileUtils.listFiles(journalDir, new String[] {"journal"}, true)
+        .size();
+  }
+
+  @Test
+  public void testWriteBehind() throws Exception {
+    MemorySubmarineStorage underlying = new MemorySubmarineStorage();
+    storage = new WriteBehindSubmarineStorage(underlying, journalDir, 10);
+    storage.addNewJob("job1", getMap("job1"));
+    storage.addNewJob("job2", getMap("job2"));
+    Assert.assertEquals(getMap("job1"), storage.getJobInfoByName("job1"));
+
+    Assert.assertTrue(storage.flush(10000));
+    Assert.assertEquals(getMap("job1"), underlying.getJobInfoByName("job1"));
+    Assert.assertEquals(getMap("job2"), underlying.getJobInfoByName("job2"));
+    Assert.assertEquals(0, countJournalFiles());
+  }
+
+  @Test
+  public void testRetryAndReplay() throws Exception {
+    final CountDownLatch failures = new CountDownLatch(3);
+    MemorySubmarineStorage failing = new MemorySubmarineStorage() {
+      @Override
+      public synchronized void addNewJob(String jobName,
+          Map<String, String> jobInfo) throws IOException {
+        failures.countDown();
+        throw new IOException("Injected failure");
+      }
+    };
+    storage = new WriteBehindSubmarineStorage(failing, journalDir, 10);
+    storage.addNewJob("job1", getMap("job1"));
+    storage.addNewJob("job2", getMap("job2"));
+    storage.addNewJob("job1", getMap("job1_new"));
+    failures.await();
+    Assert.assertEquals(getMap("job1_new"), storage.getJobInfoByName("job1"));
+    Assert.assertEquals(2, storage.getPendingJobs());
+    Assert.assertEquals(2, countJournalFiles());
+    storage.close(0);
+
+    // Next process picks up what was left in the journal
+    MemorySubmarineStorage underlying = new MemorySubmarineStorage();
+    storage = new WriteBehindSubmarineStorage(underlying, journalDir, 10);
+    Assert.assertTrue(storage.flush(10000));
+    Assert.assertEquals(getMap("job1_new"),
+        underlying.getJobInfoByName("job1"));
+    Assert.assertEquals(getMap("job2"), underlying.getJobInfoByName("job2"));
+    Assert.assertEquals(0, countJournalFiles());
+  }
+
+  @Test
+  public void testJournalOfRunningClientIsNotReplayed() throws Exception {
+    final CountDownLatch failures = new CountDownLatch(1);
+    MemorySubmarineStorage failing = new MemorySubmarineStorage() {
+      @Override
+      public synchronized void addNewJob(String jobName,
+          Map<String, String> jobInfo) throws IOException {
+        failures.countDown();
+        throw new IOException("Injected failure");
+      }
+    };
+    storage = new WriteBehindSubmarineStorage(failing, journalDir, 10);
+    storage.addNewJob("job1", getMap("job1"));
+    failures.await();
+
+    // A concurrent client leaves the journal of the running one alone
+    MemorySubmarineStorage underlying = new MemorySubmarineStorage();
+    WriteBehindSubmarineStorage other =
+        new WriteBehindSubmarineStorage(underlying, journalDir, 10);
+    Assert.assertEquals(0, other.getPendingJobs());
+    other.close(0);
+    Assert.assertEquals(1, countJournalFiles());
+    Assert.assertEquals(1, journalDir.list().length);
+
+    // Once it is gone, its journal is taken over
+    storage.close(0);
+    storage = new WriteBehindSubmarineStorage(underlying, journalDir, 10);
+    Assert.assertTrue(storage.flush(10000));
+    Assert.assertEquals(getMap("job1"), underlying.getJobInfoByName("job1"));
+    Assert.assertEquals(0, countJournalFiles());
+  }
+
+  @Test
+  public void testCloseDoesNotInterruptWrite() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch written = new CountDownLatch(1);
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    MemorySubmarineStorage slow = new MemorySubmarineStorage() {
+      @Override
+      public synchronized void addNewJob(String jobName,
+          Map<String, String> jobInfo) throws IOException {
+        started.countDown();
+        try {
+          Thread.sleep(500);
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+        }
+        super.addNewJob(jobName, jobInfo);
+        written.countDown();
+      }
+    };
+    storage = new WriteBehindSubmarineStorage(slow, journalDir, 10);
+    storage.addNewJob("job1", getMap("job1"));
+    started.await();
+    storage.close(0);
+    storage = null;
+
+    Assert.assertTrue(written.await(10, TimeUnit.SECONDS));
+    Assert.assertFalse(interrupted.get());
+    Assert.assertEquals(getMap("job1"), slow.getJobInfoByName("job1"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testGetNonExistingJob() throws IOException {
+    storage = new WriteBehindSubmarineStorage(new MemorySubmarineStorage(),
+        journalDir, 10);
+    storage.getJobInfoByName("job1");
+  }
+}
@@ -17,10 +17,8 @@ import com.linkedin.tony.TonyClient;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.submarine.common.ClientContext;
 import org.apache.submarine.runtimes.RuntimeFactory;
-import org.apache.submarine.runtimes.common.FSBasedSubmarineStorageImpl;
 import org.apache.submarine.runtimes.common.JobMonitor;
 import org.apache.submarine.runtimes.common.JobSubmitter;
-import org.apache.submarine.runtimes.common.SubmarineStorage;
 
 /**
  * Implementation of RuntimeFactory with Tony Runtime
@@ -47,9 +45,4 @@ public class TonyRuntimeFactory extends RuntimeFactory {
   protected JobMonitor internalCreateJobMonitor() {
     return monitor;
   }
-
-  @Override
-  protected SubmarineStorage internalCreateSubmarineStorage() {
-    return new FSBasedSubmarineStorageImpl(super.clientContext);
-  }
 }
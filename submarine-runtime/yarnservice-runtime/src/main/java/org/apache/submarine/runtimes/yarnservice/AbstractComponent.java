@@ -131,8 +131,9 @@ public abstract class AbstractComponent {
         remoteDirectoryManager.getJobStagingArea(parameters.getName(), true);
 
     String destScriptFileName = getScriptFileName(role);
+    // Generated per job, may hold secrets of the job
     fsOperations.uploadToRemoteFileAndLocalizeToContainerWorkDir(stagingDir,
-        localScriptFile, destScriptFileName, component);
+        localScriptFile, destScriptFileName, component, false);
 
     return "./" + destScriptFileName;
   }
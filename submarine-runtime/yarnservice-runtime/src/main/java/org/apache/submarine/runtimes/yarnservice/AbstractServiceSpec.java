@@ -90,6 +90,15 @@ public abstract class AbstractServiceSpec implements ServiceSpec {
     return new ServiceWrapper(serviceSpec);
   }
 
+  /**
+   * Components upload their files in the background, wait for all of them
+   * once the spec is complete.
+   */
+  protected ServiceWrapper awaitUploads(ServiceWrapper serviceWrapper)
+      throws IOException {
+    fsOperations.awaitUploads();
+    return serviceWrapper;
+  }
 
   // Handle worker and primary_worker.
   protected void addWorkerComponents(ServiceWrapper serviceWrapper,
@@ -17,17 +17,20 @@
 package org.apache.submarine.runtimes.yarnservice;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.yarn.service.api.records.Component;
 import org.apache.hadoop.yarn.service.api.records.ConfigFile;
 import org.apache.submarine.common.ClientContext;
 import org.apache.submarine.common.conf.SubmarineConfiguration;
 import org.apache.submarine.common.conf.SubmarineLogs;
+import org.apache.submarine.common.fs.LocalDiskUsage;
 import org.apache.submarine.common.fs.RemoteDirectoryManager;
 import org.apache.submarine.utils.ZipUtilities;
 import org.slf4j.Logger;
@@ -36,31 +39,49 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashSet;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contains methods to perform file system operations. Almost all of the methods
  * are regular non-static methods as the operations are performed with the help
  * of a {@link RemoteDirectoryManager} instance passed in as a constructor
  * dependency. Please note that some operations require to read config settings
- * as well, so that we have Submarine and YARN config objects as dependencies as
- * well.
+ * as well, so that we have the Submarine config object as a dependency as
+ * well. Files go to the default file system of the remote directory manager,
+ * which isn't necessarily the one of the YARN config.
  */
 public class FileSystemOperations {
   private static final Logger LOG =
       LoggerFactory.getLogger(FileSystemOperations.class);
   private final Configuration submarineConfig;
-  private final Configuration yarnConfig;
 
-  private Set<Path> uploadedFiles = new HashSet<>();
+  // Staging path -> upload, failed ones are kept until they are awaited
+  private final Map<Path, CompletableFuture<Path>> uploads =
+      new ConcurrentHashMap<>();
+  private final Queue<PendingConfigFile> pendingConfigFiles =
+      new ConcurrentLinkedQueue<>();
   private RemoteDirectoryManager remoteDirectoryManager;
+  private SharedUploadCache sharedCache;
+  private ExecutorService uploadExecutor;
 
   public FileSystemOperations(ClientContext clientContext) {
     this.remoteDirectoryManager = clientContext.getRemoteDirectoryManager();
     this.submarineConfig = clientContext.getSubmarineConfig();
-    this.yarnConfig = clientContext.getYarnConfig();
   }
 
   /**
@@ -74,16 +95,41 @@ public class FileSystemOperations {
       throws IOException {
     //Append original modification time and size to zip file name
     String suffix;
+    if (remoteDirectoryManager.isRemote(remoteDir)) {
+      FileStatus status =
+          remoteDirectoryManager.getRemoteFileStatus(new Path(remoteDir));
+      suffix = getVersionSuffix(status.getModificationTime(),
+          remoteDirectoryManager.getRemoteFileSize(remoteDir));
+    } else {
+      File localDir = new File(remoteDir);
+      suffix = getVersionSuffix(localDir.lastModified(), localDir.length());
+    }
+    return downloadAndZip(remoteDir, zipFileName, doZip, suffix);
+  }
+
+  /**
+   * Same as {@link #downloadAndZip(String, String, boolean)}, with the
+   * suffix of the zip file name already known so the remote uri isn't
+   * looked at again.
+   * @param suffix see {@link #getVersionSuffix(long, long)}
+   */
+  public String downloadAndZip(String remoteDir, String zipFileName,
+      boolean doZip, String suffix) throws IOException {
+    return downloadAndZip(remoteDir, zipFileName, doZip, suffix, false);
+  }
+
+  /**
+   * @param deterministic whether the zip goes to the shared cache, so the
+   *                      same content must give the same zip.
+   */
+  public String downloadAndZip(String remoteDir, String zipFileName,
+      boolean doZip, String suffix, boolean deterministic)
+      throws IOException {
     String srcDir = remoteDir;
     String zipDirPath =
         System.getProperty("java.io.tmpdir") + "/" + zipFileName;
     boolean needDeleteTempDir = false;
     if (remoteDirectoryManager.isRemote(remoteDir)) {
-      //Append original modification time and size to zip file name
-      FileStatus status =
-          remoteDirectoryManager.getRemoteFileStatus(new Path(remoteDir));
-      suffix = "_" + status.getModificationTime()
-          + "-" + remoteDirectoryManager.getRemoteFileSize(remoteDir);
       // Download them to temp dir
       boolean downloaded =
           remoteDirectoryManager.copyRemoteToLocal(remoteDir, zipDirPath);
@@ -94,17 +140,13 @@ public class FileSystemOperations {
       LOG.info("Downloaded remote: {} to local: {}", remoteDir, zipDirPath);
       srcDir = zipDirPath;
       needDeleteTempDir = true;
-    } else {
-      File localDir = new File(remoteDir);
-      suffix = "_" + localDir.lastModified()
-          + "-" + localDir.length();
     }
     if (!doZip) {
       return srcDir;
     }
     // zip a local dir
-    String zipFileUri =
-        ZipUtilities.zipDir(srcDir, zipDirPath + suffix + ".zip");
+    String zipFileUri = ZipUtilities.zipDir(srcDir,
+        zipDirPath + suffix + ".zip", deterministic);
     // delete downloaded temp dir
     if (needDeleteTempDir) {
       deleteFiles(srcDir);
@@ -112,6 +154,13 @@ public class FileSystemOperations {
     return zipFileUri;
   }
 
+  /**
+   * Suffix of zip file names made of original modification time and size.
+   */
+  public static String getVersionSuffix(long modificationTime, long size) {
+    return "_" + modificationTime + "-" + size;
+  }
+
   public void deleteFiles(String localUri) {
     boolean success = FileUtil.fullyDelete(new File(localUri));
     if (!success) {
@@ -124,28 +173,113 @@ public class FileSystemOperations {
   public void uploadToRemoteFileAndLocalizeToContainerWorkDir(Path stagingDir,
       String fileToUpload, String destFilename, Component comp)
       throws IOException {
-    Path uploadedFilePath = uploadToRemoteFile(stagingDir, fileToUpload);
-    locateRemoteFileToContainerWorkDir(destFilename, comp, uploadedFilePath);
+    uploadToRemoteFileAndLocalizeToContainerWorkDir(stagingDir, fileToUpload,
+        destFilename, comp, true);
   }
 
-  private void locateRemoteFileToContainerWorkDir(String destFilename,
-      Component comp, Path uploadedFilePath)
-      throws IOException {
-    FileSystem fs = FileSystem.get(yarnConfig);
+  /**
+   * Upload a file in the background and add it to the files of the
+   * component, the source of the file is filled in by
+   * {@link #awaitUploads()}.
+   * @param shareable see {@link #uploadToRemoteFile(Path, String, boolean)}
+   */
+  public void uploadToRemoteFileAndLocalizeToContainerWorkDir(Path stagingDir,
+      String fileToUpload, String destFilename, Component comp,
+      boolean shareable) throws IOException {
+    CompletableFuture<Path> upload =
+        startUpload(stagingDir, fileToUpload, shareable);
+    // Added right away to keep the order of files
+    ConfigFile configFile = new ConfigFile().destFile(destFilename)
+        .type(ConfigFile.TypeEnum.STATIC);
+    comp.getConfiguration().getFiles().add(configFile);
+    pendingConfigFiles.add(
+        new PendingConfigFile(upload, upload, configFile, true));
+  }
 
-    FileStatus fileStatus = fs.getFileStatus(uploadedFilePath);
-    LOG.info("Uploaded file path = " + fileStatus.getPath());
+  /**
+   * Upload a file in the background for a file already added to the
+   * service, its source is filled in by {@link #awaitUploads()} as the
+   * path in the staging dir, like {@link #uploadToRemoteFile} returns it.
+   * @param shareable see {@link #uploadToRemoteFile(Path, String, boolean)}
+   * @param deleteAfterUpload whether the local file is a temporary one,
+   *                          which is deleted once the upload is done.
+   */
+  public void uploadToRemoteFileAsync(Path stagingDir, String fileToUpload,
+      ConfigFile configFile, boolean shareable, boolean deleteAfterUpload)
+      throws IOException {
+    CompletableFuture<Path> upload =
+        startUpload(stagingDir, fileToUpload, shareable);
+    CompletableFuture<Path> done = upload;
+    if (deleteAfterUpload) {
+      done = upload.whenComplete((path, e) -> deleteFiles(fileToUpload));
+    }
+    pendingConfigFiles.add(
+        new PendingConfigFile(upload, done, configFile, false));
+  }
 
-    // Set it to component's files list
-    comp.getConfiguration().getFiles().add(new ConfigFile().srcFile(
-        fileStatus.getPath().toUri().toString()).destFile(destFilename)
-        .type(ConfigFile.TypeEnum.STATIC));
+  /**
+   * Wait for all uploads started so far, and fill in the sources of the
+   * files added to components.
+   * @throws IOException of the first failed upload.
+   */
+  public void awaitUploads() throws IOException {
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    PendingConfigFile pending;
+    while ((pending = pendingConfigFiles.poll()) != null) {
+      Path uploadedFilePath;
+      try {
+        // The upload in the map, so a failed one is removed from it
+        uploadedFilePath = waitForUpload(pending.upload);
+      } finally {
+        // Local temp files are deleted by then
+        pending.done.handle((path, e) -> path).join();
+      }
+      if (pending.qualify) {
+        uploadedFilePath = fs.makeQualified(uploadedFilePath);
+      }
+      LOG.info("Uploaded file path = " + uploadedFilePath);
+      pending.configFile.setSrcFile(uploadedFilePath.toUri().toString());
+    }
+    for (Future<Path> upload : uploads.values()) {
+      waitForUpload(upload);
+    }
   }
 
   public Path uploadToRemoteFile(Path stagingDir, String fileToUpload) throws
       IOException {
-    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    return uploadToRemoteFile(stagingDir, fileToUpload, true);
+  }
+
+  /**
+   * @param shareable whether the file may go to the shared cache, when it
+   *                  is enabled. Must be false for secrets like keytabs
+   *                  and for generated files like launch scripts, which
+   *                  are always put into the staging dir.
+   */
+  public Path uploadToRemoteFile(Path stagingDir, String fileToUpload,
+      boolean shareable) throws IOException {
+    return waitForUpload(
+        uploadToRemoteFileAsync(stagingDir, fileToUpload, shareable));
+  }
+
+  public Future<Path> uploadToRemoteFileAsync(Path stagingDir,
+      String fileToUpload) throws IOException {
+    return uploadToRemoteFileAsync(stagingDir, fileToUpload, true);
+  }
 
+  /**
+   * Same as {@link #uploadToRemoteFile(Path, String, boolean)}, the upload
+   * runs on a bounded pool of threads. A file is uploaded once per staging
+   * dir, asking again returns the same future. A failed upload is tried
+   * again only after its failure was awaited.
+   */
+  public Future<Path> uploadToRemoteFileAsync(Path stagingDir,
+      String fileToUpload, boolean shareable) throws IOException {
+    return startUpload(stagingDir, fileToUpload, shareable);
+  }
+
+  private CompletableFuture<Path> startUpload(Path stagingDir,
+      String fileToUpload, boolean shareable) throws IOException {
     // Upload to remote FS under staging area
     File localFile = new File(fileToUpload);
     if (!localFile.exists()) {
@@ -153,46 +287,253 @@ public class FileSystemOperations {
           "Trying to upload file=" + localFile.getAbsolutePath()
               + " to remote, but couldn't find local file.");
     }
-    String filename = new File(fileToUpload).getName();
+    Path uploadedFilePath = new Path(stagingDir, localFile.getName());
+    return uploads.computeIfAbsent(uploadedFilePath,
+        path -> CompletableFuture.supplyAsync(() -> {
+          try {
+            return upload(localFile, path, shareable);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+        }, getUploadExecutor()));
+  }
 
-    Path uploadedFilePath = new Path(stagingDir, filename);
-    if (!uploadedFiles.contains(uploadedFilePath)) {
-      if (SubmarineLogs.isVerbose()) {
-        LOG.info("Copying local file=" + fileToUpload + " to remote="
-            + uploadedFilePath);
+  private Path upload(File localFile, Path uploadedFilePath,
+      boolean shareable) throws IOException {
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    if (shareable && isSharedCacheEnabled()) {
+      Path cached = getSharedCache(fs).upload(localFile);
+      if (cached != null) {
+        return cached;
       }
-      fs.copyFromLocalFile(new Path(fileToUpload), uploadedFilePath);
-      uploadedFiles.add(uploadedFilePath);
     }
+    if (SubmarineLogs.isVerbose()) {
+      LOG.info("Copying local file=" + localFile + " to remote="
+          + uploadedFilePath);
+    }
+    remoteDirectoryManager.copyLocalToRemote(localFile, uploadedFilePath);
+    return uploadedFilePath;
+  }
+
+  private Path waitForUpload(Future<Path> upload) throws IOException {
+    try {
+      return upload.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while uploading");
+    } catch (ExecutionException e) {
+      // The failure is reported now, let the next attempt try again
+      uploads.values().remove(upload);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private synchronized ExecutorService getUploadExecutor() {
+    if (uploadExecutor == null) {
+      int threads = submarineConfig.getInt(
+          SubmarineConfiguration.LOCALIZATION_UPLOAD_THREADS,
+          SubmarineConfiguration.DEFAULT_LOCALIZATION_UPLOAD_THREADS);
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+          60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("submarine-upload-%d").build());
+      // Idle threads go away once the job is submitted
+      executor.allowCoreThreadTimeOut(true);
+      uploadExecutor = executor;
+    }
+    return uploadExecutor;
+  }
+
+  /**
+   * Upload a file to the shared cache, so later jobs of the same user with
+   * the same file reuse the copy instead of uploading it again. Files are
+   * still localized with APPLICATION visibility by the YARN service API.
+   * Falls back to the staging dir when the shared cache is disabled or
+   * can't be used.
+   */
+  public Path uploadToSharedCache(Path stagingDir, String fileToUpload)
+      throws IOException {
+    File localFile = new File(fileToUpload);
+    if (!localFile.exists()) {
+      throw new FileNotFoundException(
+          "Trying to upload file=" + localFile.getAbsolutePath()
+              + " to remote, but couldn't find local file.");
+    }
+    if (!isSharedCacheEnabled()) {
+      return uploadToRemoteFile(stagingDir, fileToUpload, false);
+    }
+    Path cached =
+        getSharedCache(remoteDirectoryManager.getDefaultFileSystem())
+            .upload(localFile);
+    if (cached != null) {
+      return cached;
+    }
+    return uploadToRemoteFile(stagingDir, fileToUpload, false);
+  }
+
+  /**
+   * Whether uploads may go to the shared cache, see
+   * {@link SubmarineConfiguration#LOCALIZATION_SHARED_CACHE_ENABLED}.
+   */
+  public boolean isSharedCacheEnabled() {
+    return submarineConfig != null && submarineConfig.getBoolean(
+        SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_ENABLED,
+        SubmarineConfiguration.DEFAULT_LOCALIZATION_SHARED_CACHE_ENABLED);
+  }
+
+  private synchronized SharedUploadCache getSharedCache(FileSystem fs) {
+    if (sharedCache == null) {
+      String dir = submarineConfig == null
+          ? SubmarineConfiguration.DEFAULT_LOCALIZATION_SHARED_CACHE_DIR
+          : submarineConfig.get(
+              SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+              SubmarineConfiguration.DEFAULT_LOCALIZATION_SHARED_CACHE_DIR);
+      sharedCache = new SharedUploadCache(fs, new Path(dir));
+    }
+    return sharedCache;
+  }
+
+  public int getPrefetchThreads() {
+    return submarineConfig.getInt(
+        SubmarineConfiguration.LOCALIZATION_PREFETCH_THREADS,
+        SubmarineConfiguration.DEFAULT_LOCALIZATION_PREFETCH_THREADS);
+  }
+
+  /**
+   * Whether remote files are streamed into the staging area, see
+   * {@link #streamToRemoteFile(Path, String)}.
+   */
+  public boolean isStreamingEnabled() {
+    return submarineConfig != null && submarineConfig.getBoolean(
+        SubmarineConfiguration.LOCALIZATION_STREAMING_ENABLED,
+        SubmarineConfiguration.DEFAULT_LOCALIZATION_STREAMING_ENABLED);
+  }
+
+  /**
+   * Copy a remote file into the staging dir in one pass, the input stream
+   * of the source is piped into the output stream of the destination so
+   * nothing is written to local disk.
+   */
+  public Path streamToRemoteFile(Path stagingDir, String remoteUri)
+      throws IOException {
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    Path srcPath = new Path(remoteUri);
+    Path uploadedFilePath = new Path(stagingDir, srcPath.getName());
+    if (uploads.containsKey(uploadedFilePath)) {
+      return waitForUpload(uploads.get(uploadedFilePath));
+    }
+
+    int bufferSize = submarineConfig.getInt(
+        SubmarineConfiguration.LOCALIZATION_STREAMING_BUFFER_SIZE_KB,
+        SubmarineConfiguration.DEFAULT_LOCALIZATION_STREAMING_BUFFER_SIZE_KB)
+        * 1024;
+    FileSystem srcFs = remoteDirectoryManager.getFileSystemByUri(remoteUri);
+    long start = System.currentTimeMillis();
+    try (InputStream in = srcFs.open(srcPath, bufferSize);
+         OutputStream out = fs.create(uploadedFilePath, true, bufferSize)) {
+      IOUtils.copyBytes(in, out, bufferSize);
+    } catch (IOException e) {
+      // Don't leave a truncated file behind
+      fs.delete(uploadedFilePath, false);
+      throw e;
+    }
+    if (SubmarineLogs.isVerbose()) {
+      LOG.info("Streamed remote file=" + remoteUri + " to remote="
+          + uploadedFilePath + " in "
+          + (System.currentTimeMillis() - start) + " ms");
+    }
+    uploads.put(uploadedFilePath,
+        CompletableFuture.completedFuture(uploadedFilePath));
+    return uploadedFilePath;
+  }
+
+  /**
+   * Zip a dir straight into the staging area, remote dirs are downloaded
+   * first. Same as {@link #downloadAndZip(String, String, boolean, String)}
+   * followed by an upload, without the zip file on local disk.
+   * @return path of the zip, named like the ones on local disk.
+   */
+  public Path zipToRemoteFile(Path stagingDir, String remoteDir,
+      String zipFileName, String suffix) throws IOException {
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
+    Path uploadedFilePath =
+        new Path(stagingDir, zipFileName + suffix + ".zip");
+    if (uploads.containsKey(uploadedFilePath)) {
+      return waitForUpload(uploads.get(uploadedFilePath));
+    }
+
+    String srcDir = downloadAndZip(remoteDir, zipFileName, false, suffix);
+    int bufferSize = submarineConfig.getInt(
+        SubmarineConfiguration.LOCALIZATION_STREAMING_BUFFER_SIZE_KB,
+        SubmarineConfiguration.DEFAULT_LOCALIZATION_STREAMING_BUFFER_SIZE_KB)
+        * 1024;
+    long start = System.currentTimeMillis();
+    try (OutputStream out = fs.create(uploadedFilePath, true, bufferSize)) {
+      ZipUtilities.zipDir(srcDir, out, false);
+    } catch (IOException e) {
+      // Don't leave a truncated file behind
+      fs.delete(uploadedFilePath, false);
+      throw e;
+    } finally {
+      if (!srcDir.equals(remoteDir)) {
+        deleteFiles(srcDir);
+      }
+    }
+    if (SubmarineLogs.isVerbose()) {
+      LOG.info("Zipped dir=" + remoteDir + " to remote="
+          + uploadedFilePath + " in "
+          + (System.currentTimeMillis() - start) + " ms");
+    }
+    uploads.put(uploadedFilePath,
+        CompletableFuture.completedFuture(uploadedFilePath));
     return uploadedFilePath;
   }
 
   public void validFileSize(String uri) throws IOException {
     long actualSizeByte;
-    String locationType = "Local";
-    if (remoteDirectoryManager.isRemote(uri)) {
-      actualSizeByte = remoteDirectoryManager.getRemoteFileSize(uri);
-      locationType = "Remote";
+    boolean remote = remoteDirectoryManager.isRemote(uri);
+    if (remote) {
+      // No need to know more than that it is too big
+      actualSizeByte = remoteDirectoryManager.getRemoteFileSize(uri,
+          getMaxFileSizeBytes());
     } else {
-      actualSizeByte = FileUtil.getDU(new File(uri));
+      actualSizeByte = LocalDiskUsage.getDU(new File(uri),
+          getMaxFileSizeBytes());
     }
-    long maxFileSizeMB = submarineConfig
-        .getLong(SubmarineConfiguration.LOCALIZATION_MAX_ALLOWED_FILE_SIZE_MB,
-            SubmarineConfiguration.DEFAULT_MAX_ALLOWED_REMOTE_URI_SIZE_MB);
+    validFileSize(uri, actualSizeByte, remote);
+  }
+
+  /**
+   * Check an already known size against the configured maximum.
+   */
+  public void validFileSize(String uri, long actualSizeByte, boolean remote)
+      throws IOException {
+    String locationType = remote ? "Remote" : "Local";
+    long maxFileSizeByte = getMaxFileSizeBytes();
     LOG.info("{} fie/dir: {}, size(Byte):{},"
             + " Allowed max file/dir size: {}",
-        locationType, uri, actualSizeByte, maxFileSizeMB * 1024 * 1024);
+        locationType, uri, actualSizeByte, maxFileSizeByte);
 
-    if (actualSizeByte > maxFileSizeMB * 1024 * 1024) {
+    if (actualSizeByte > maxFileSizeByte) {
       throw new IOException(uri + " size(Byte): "
           + actualSizeByte + " exceeds configured max size:"
-          + maxFileSizeMB * 1024 * 1024);
+          + maxFileSizeByte);
     }
   }
 
+  public long getMaxFileSizeBytes() {
+    return submarineConfig
+        .getLong(SubmarineConfiguration.LOCALIZATION_MAX_ALLOWED_FILE_SIZE_MB,
+            SubmarineConfiguration.DEFAULT_MAX_ALLOWED_REMOTE_URI_SIZE_MB)
+        * 1024 * 1024;
+  }
+
   public void setPermission(Path destPath, FsPermission permission) throws
       IOException {
-    FileSystem fs = FileSystem.get(yarnConfig);
+    FileSystem fs = remoteDirectoryManager.getDefaultFileSystem();
     fs.setPermission(destPath, new FsPermission(permission));
   }
 
@@ -208,4 +549,24 @@ public class FileSystemOperations {
   public static boolean needHdfs(String content) {
     return content != null && content.contains("hdfs://");
   }
+
+  /**
+   * File of a component whose upload may not be finished yet. Done
+   * completes after the upload once what follows it, like deleting the
+   * local file, is done too.
+   */
+  private static class PendingConfigFile {
+    private final Future<Path> upload;
+    private final CompletableFuture<Path> done;
+    private final ConfigFile configFile;
+    private final boolean qualify;
+
+    PendingConfigFile(Future<Path> upload, CompletableFuture<Path> done,
+        ConfigFile configFile, boolean qualify) {
+      this.upload = upload;
+      this.done = done;
+      this.configFile = configFile;
+      this.qualify = qualify;
+    }
+  }
 }
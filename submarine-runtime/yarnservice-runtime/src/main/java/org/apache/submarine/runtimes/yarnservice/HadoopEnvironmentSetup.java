@@ -119,10 +119,11 @@ public class HadoopEnvironmentSetup {
       throw new IOException(
           "Failed to locate core-site.xml / hdfs-site.xml on classpath!");
     }
+    // Cluster configs may hold credentials, they are never shared
     fsOperations.uploadToRemoteFileAndLocalizeToContainerWorkDir(stagingDir,
-        coreSite.getAbsolutePath(), CORE_SITE_XML, comp);
+        coreSite.getAbsolutePath(), CORE_SITE_XML, comp, false);
     fsOperations.uploadToRemoteFileAndLocalizeToContainerWorkDir(stagingDir,
-        hdfsSite.getAbsolutePath(), HDFS_SITE_XML, comp);
+        hdfsSite.getAbsolutePath(), HDFS_SITE_XML, comp, false);
 
     // DEBUG
     if (SubmarineLogs.isVerbose()) {
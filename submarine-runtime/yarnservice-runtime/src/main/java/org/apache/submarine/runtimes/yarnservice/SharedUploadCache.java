@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.submarine.runtimes.yarnservice;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+/**
+ * Directory on the default file system shared by all jobs, holding
+ * uploaded files by the SHA-256 of their content as
+ * [dir]/[user]/[hash]/[file name]. A file whose content was uploaded
+ * before, by any job of the same user, is referenced instead of being
+ * uploaded again.
+ *
+ * Files are written under a temporary name and renamed into place, so a
+ * cached file is always complete and never changes afterwards. The
+ * directory is world writable with the sticky bit, so every user can add
+ * a dir of their own. Only dirs owned by the current user are trusted, a
+ * file found by its hash elsewhere might have any content. Cached files
+ * are readable by everyone, so secrets must never be put here.
+ *
+ * The dir of an entry is touched whenever the entry is used, the garbage
+ * collector deletes entries which were not used for a while, see
+ * {@link SubmarineConfiguration#GC_SHARED_CACHE_RETENTION_MS}.
+ */
+public class SharedUploadCache {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(SharedUploadCache.class);
+
+  private static final FsPermission DIR_PERMISSION =
+      new FsPermission((short) 01777);
+  private static final FsPermission USER_DIR_PERMISSION =
+      new FsPermission((short) 0755);
+  private static final FsPermission ENTRY_PERMISSION =
+      new FsPermission((short) 0755);
+  private static final FsPermission FILE_PERMISSION =
+      new FsPermission((short) 0444);
+
+  private final FileSystem fs;
+  private final Path cacheDir;
+
+  public SharedUploadCache(FileSystem fs, Path cacheDir) {
+    this.fs = fs;
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * Get the cached copy of a local file, uploading it when its content
+   * isn't cached yet.
+   * @return null when the dir of the current user is owned by someone
+   *         else, the file must be uploaded elsewhere then.
+   */
+  public Path upload(File localFile) throws IOException {
+    Path userDir = getUserDir();
+    if (userDir == null) {
+      return null;
+    }
+    Path entryDir = new Path(userDir, hash(localFile));
+    Path cached = new Path(entryDir, localFile.getName());
+    if (fs.exists(cached)) {
+      LOG.debug("Found {} in shared cache as {}", localFile, cached);
+      touch(entryDir);
+      return cached;
+    }
+
+    if (fs.mkdirs(entryDir)) {
+      fs.setPermission(entryDir, ENTRY_PERMISSION);
+    }
+    Path tmp = new Path(entryDir,
+        "." + localFile.getName() + "." + UUID.randomUUID() + ".tmp");
+    fs.copyFromLocalFile(new Path(localFile.getAbsolutePath()), tmp);
+    fs.setPermission(tmp, FILE_PERMISSION);
+    if (!fs.rename(tmp, cached)) {
+      // Uploaded by someone else meanwhile, content is the same
+      fs.delete(tmp, false);
+      if (!fs.exists(cached)) {
+        throw new IOException("Failed to add " + localFile
+            + " to shared cache as " + cached);
+      }
+    }
+    LOG.info("Added {} to shared cache as {}", localFile, cached);
+    return cached;
+  }
+
+  /**
+   * Mark the entry as used, so it is not collected while jobs use it.
+   */
+  private void touch(Path entryDir) {
+    try {
+      fs.setTimes(entryDir, System.currentTimeMillis(), -1);
+    } catch (IOException e) {
+      LOG.warn("Failed to mark shared cache entry " + entryDir + " as used",
+          e);
+    }
+  }
+
+  /**
+   * @return dir of the current user, created when missing, or null when
+   *         it isn't owned by the current user.
+   */
+  private Path getUserDir() throws IOException {
+    String user = UserGroupInformation.getCurrentUser().getShortUserName();
+    Path userDir = new Path(cacheDir, user);
+    if (!fs.exists(userDir)) {
+      if (!fs.exists(cacheDir)) {
+        fs.mkdirs(cacheDir);
+        fs.setPermission(cacheDir, DIR_PERMISSION);
+      }
+      fs.mkdirs(userDir);
+      fs.setPermission(userDir, USER_DIR_PERMISSION);
+    }
+    FileStatus status = fs.getFileStatus(userDir);
+    if (!user.equals(status.getOwner())) {
+      LOG.warn("Not using shared cache dir {}, it is owned by {}"
+          + " instead of {}", userDir, status.getOwner(), user);
+      return null;
+    }
+    return userDir;
+  }
+
+  static String hash(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM has SHA-256
+      throw new IllegalStateException(e);
+    }
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new FileInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
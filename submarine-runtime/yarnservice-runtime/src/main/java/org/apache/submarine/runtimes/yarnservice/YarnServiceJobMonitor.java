@@ -14,18 +14,26 @@
 
 package org.apache.submarine.runtimes.yarnservice;
 
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
 import org.apache.hadoop.yarn.client.api.AppAdminClient;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.service.api.records.Service;
 import org.apache.hadoop.yarn.service.utils.ServiceApiUtil;
 import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.common.api.JobState;
 import org.apache.submarine.common.api.JobStatus;
 import org.apache.submarine.runtimes.common.JobMonitor;
 import org.apache.submarine.runtimes.yarnservice.builder.JobStatusBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 
 public class YarnServiceJobMonitor extends JobMonitor {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(YarnServiceJobMonitor.class);
+
   private volatile AppAdminClient serviceClient = null;
 
   public YarnServiceJobMonitor(ClientContext clientContext) {
@@ -46,9 +54,26 @@ public class YarnServiceJobMonitor extends JobMonitor {
     String appStatus = serviceClient.getStatusString(jobName);
     Service serviceSpec = ServiceApiUtil.jsonSerDeser.fromJson(appStatus);
     JobStatus jobStatus = JobStatusBuilder.fromServiceSpec(serviceSpec);
+    if (JobState.isFinal(jobStatus.getState()) && serviceSpec.getId() != null) {
+      setFinishTime(jobStatus, serviceSpec.getId());
+    }
     return jobStatus;
   }
 
+  /**
+   * The service spec doesn't tell when the job finished, take it from the
+   * report of the application. It is left unknown if there is none.
+   */
+  private void setFinishTime(JobStatus jobStatus, String appId) {
+    try {
+      ApplicationReport report = clientContext.getOrCreateYarnClient()
+          .getApplicationReport(ApplicationId.fromString(appId));
+      jobStatus.setFinishTime(report.getFinishTime());
+    } catch (IOException | YarnException | IllegalArgumentException e) {
+      LOG.warn("Failed to get finish time of application " + appId, e);
+    }
+  }
+
   @Override
   public void cleanup() throws IOException {
     if (this.serviceClient != null) {
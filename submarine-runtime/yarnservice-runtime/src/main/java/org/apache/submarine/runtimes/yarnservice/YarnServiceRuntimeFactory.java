@@ -16,10 +16,8 @@ package org.apache.submarine.runtimes.yarnservice;
 
 import org.apache.submarine.common.ClientContext;
 import org.apache.submarine.runtimes.RuntimeFactory;
-import org.apache.submarine.runtimes.common.FSBasedSubmarineStorageImpl;
 import org.apache.submarine.runtimes.common.JobMonitor;
 import org.apache.submarine.runtimes.common.JobSubmitter;
-import org.apache.submarine.runtimes.common.SubmarineStorage;
 
 public class YarnServiceRuntimeFactory extends RuntimeFactory {
 
@@ -36,9 +34,4 @@ public class YarnServiceRuntimeFactory extends RuntimeFactory {
   protected JobMonitor internalCreateJobMonitor() {
     return new YarnServiceJobMonitor(super.clientContext);
   }
-
-  @Override
-  protected SubmarineStorage internalCreateSubmarineStorage() {
-    return new FSBasedSubmarineStorageImpl(super.clientContext);
-  }
 }
@@ -61,7 +61,7 @@ public class PyTorchServiceSpec extends AbstractServiceSpec {
     // After all components added, handle quicklinks
     handleQuicklinks(serviceWrapper.getService());
 
-    return serviceWrapper;
+    return awaitUploads(serviceWrapper);
   }
 
 }
@@ -73,7 +73,7 @@ public class TensorFlowServiceSpec extends AbstractServiceSpec {
     // After all components added, handle quicklinks
     handleQuicklinks(serviceWrapper.getService());
 
-    return serviceWrapper;
+    return awaitUploads(serviceWrapper);
   }
 
   private void createTensorBoardComponent(ServiceWrapper serviceWrapper)
@@ -73,8 +73,9 @@ public final class KerberosPrincipalFactory {
       throws IOException {
     Path stagingDir = remoteDirectoryManager
         .getJobStagingArea(parameters.getName(), true);
+    // Never shared with other jobs
     Path remoteKeytabPath =
-        fsOperations.uploadToRemoteFile(stagingDir, keytab);
+        fsOperations.uploadToRemoteFile(stagingDir, keytab, false);
     // Only the owner has read access
     fsOperations.setPermission(remoteKeytabPath,
         FsPermission.createImmutable((short) Integer.parseInt("400", 8)));
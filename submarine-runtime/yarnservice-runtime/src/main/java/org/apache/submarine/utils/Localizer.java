@@ -16,11 +16,15 @@
 
 package org.apache.submarine.utils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.yarn.service.api.records.ConfigFile;
 import org.apache.hadoop.yarn.service.api.records.Service;
 import org.apache.submarine.client.cli.param.Localization;
 import org.apache.submarine.client.cli.param.runjob.RunJobParameters;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.fs.LocalDiskUsage;
 import org.apache.submarine.common.fs.RemoteDirectoryManager;
 import org.apache.submarine.runtimes.yarnservice.FileSystemOperations;
 import org.slf4j.Logger;
@@ -29,7 +33,13 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.apache.submarine.runtimes.yarnservice.FileSystemOperations.needHdfs;
 import static org.apache.submarine.utils.EnvironmentUtilities.appendToEnv;
@@ -71,49 +81,63 @@ public class Localizer {
     String remoteUri;
     String containerLocalPath;
 
-    // Check to fail fast
-    for (Localization loc : localizations) {
-      remoteUri = loc.getRemoteUri();
-      Path resourceToLocalize = new Path(remoteUri);
-      // Check if remoteUri exists
-      if (remoteDirectoryManager.isRemote(remoteUri)) {
-        // check if exists
-        if (!remoteDirectoryManager.existsRemoteFile(resourceToLocalize)) {
-          throw new FileNotFoundException(
-              "File " + remoteUri + " doesn't exists.");
-        }
-      } else {
-        // Check if exists
-        File localFile = new File(remoteUri);
-        if (!localFile.exists()) {
-          throw new FileNotFoundException(
-              "File " + remoteUri + " doesn't exists.");
-        }
+    // Look at all uris at once, and check to fail fast
+    List<LocalizationStatus> statuses = getStatuses(localizations);
+    for (LocalizationStatus status : statuses) {
+      if (!status.exists) {
+        throw new FileNotFoundException(
+            "File " + status.uri + " doesn't exists.");
       }
       // check remote file size
-      fsOperations.validFileSize(remoteUri);
+      fsOperations.validFileSize(status.uri, status.size, status.remote);
     }
     // Start download remote if needed and upload to HDFS
-    for (Localization loc : localizations) {
+    for (int i = 0; i < localizations.size(); i++) {
+      Localization loc = localizations.get(i);
+      LocalizationStatus status = statuses.get(i);
       remoteUri = loc.getRemoteUri();
       containerLocalPath = loc.getLocalPath();
       String srcFileStr = remoteUri;
       ConfigFile.TypeEnum destFileType = ConfigFile.TypeEnum.STATIC;
       Path resourceToLocalize = new Path(remoteUri);
       boolean needUploadToHDFS = true;
-
+      // Shared resources are only treated specially with the shared cache
+      boolean shared = loc.isShared() && fsOperations.isSharedCacheEnabled();
+      if (loc.isShared() && !shared) {
+        LOG.warn("Localization {} is marked shared, but the shared cache is"
+            + " disabled, it is uploaded for this job only. Set {} to"
+            + " reuse it in later jobs.", remoteUri,
+            SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_ENABLED);
+      }
 
       // Special handling of remoteUri directory
       boolean needDeleteTempFile = false;
-      if (remoteDirectoryManager.isDir(remoteUri)) {
+      if (status.dir && fsOperations.isStreamingEnabled()
+          && !shared) {
         destFileType = ConfigFile.TypeEnum.ARCHIVE;
-        srcFileStr = fsOperations.downloadAndZip(
-            remoteUri, getLastNameFromPath(srcFileStr), true);
-      } else if (remoteDirectoryManager.isRemote(remoteUri)) {
-        if (!needHdfs(remoteUri)) {
+        // No zip on local disk, the zip in staging dir is named the same
+        resourceToLocalize = fsOperations.zipToRemoteFile(stagingDir,
+            remoteUri, getLastNameFromPath(srcFileStr), status.suffix);
+        srcFileStr = resourceToLocalize.getName();
+        needUploadToHDFS = false;
+      } else if (status.dir) {
+        destFileType = ConfigFile.TypeEnum.ARCHIVE;
+        // Only zips going to the shared cache need to be the same each time
+        srcFileStr = fsOperations.downloadAndZip(remoteUri,
+            getLastNameFromPath(srcFileStr), true, status.suffix, shared);
+        needDeleteTempFile = true;
+      } else if (status.remote) {
+        if (!needHdfs(remoteUri) && fsOperations.isStreamingEnabled()
+            && !shared) {
+          // Non HDFS remote uri, copied to staging dir without local disk
+          resourceToLocalize =
+              fsOperations.streamToRemoteFile(stagingDir, remoteUri);
+          needUploadToHDFS = false;
+        } else if (!needHdfs(remoteUri)) {
           // Non HDFS remote uri. Non directory, no need to zip
           srcFileStr = fsOperations.downloadAndZip(
-              remoteUri, getLastNameFromPath(srcFileStr), false);
+              remoteUri, getLastNameFromPath(srcFileStr), false,
+              status.suffix);
           needDeleteTempFile = true;
         } else {
           // HDFS file, no need to upload
@@ -121,19 +145,22 @@ public class Localizer {
         }
       }
 
-      // Upload file to HDFS
-      if (needUploadToHDFS) {
+      // Upload file to HDFS, shared resources are uploaded once per user
+      // and content to the shared cache. Others are uploaded in the
+      // background, local temp files are deleted then.
+      String fileToUpload = null;
+      if (needUploadToHDFS && shared) {
         resourceToLocalize =
-            fsOperations.uploadToRemoteFile(stagingDir, srcFileStr);
-      }
-      if (needDeleteTempFile) {
-        fsOperations.deleteFiles(srcFileStr);
+            fsOperations.uploadToSharedCache(stagingDir, srcFileStr);
+        if (needDeleteTempFile) {
+          fsOperations.deleteFiles(srcFileStr);
+        }
+      } else if (needUploadToHDFS) {
+        fileToUpload = srcFileStr;
       }
       // Remove .zip from zipped dir name
       if (destFileType == ConfigFile.TypeEnum.ARCHIVE
           && srcFileStr.endsWith(".zip")) {
-        // Delete local zip file
-        fsOperations.deleteFiles(srcFileStr);
         int suffixIndex = srcFileStr.lastIndexOf('_');
         srcFileStr = srcFileStr.substring(0, suffixIndex);
       }
@@ -144,12 +171,22 @@ public class Localizer {
         srcFileStr = getLastNameFromPath(containerLocalPath);
       }
       String localizedName = getLastNameFromPath(srcFileStr);
-      LOG.info("The file/dir to be localized is {}",
-          resourceToLocalize.toString());
+      ConfigFile configFile =
+          new ConfigFile().destFile(localizedName).type(destFileType);
+      service.getConfiguration().getFiles().add(configFile);
+      if (fileToUpload != null) {
+        // The source is filled in by FileSystemOperations#awaitUploads
+        LOG.info("The file/dir to be localized is uploaded from {}",
+            fileToUpload);
+        // Shared ones are uploaded above, plain ones go to the staging dir
+        fsOperations.uploadToRemoteFileAsync(stagingDir, fileToUpload,
+            configFile, false, needDeleteTempFile);
+      } else {
+        LOG.info("The file/dir to be localized is {}",
+            resourceToLocalize.toString());
+        configFile.setSrcFile(resourceToLocalize.toUri().toString());
+      }
       LOG.info("Its localized file name will be {}", localizedName);
-      service.getConfiguration().getFiles().add(new ConfigFile().srcFile(
-          resourceToLocalize.toUri().toString()).destFile(localizedName)
-          .type(destFileType));
       // set mounts
       // if mount path is absolute, just use it.
       // if relative, no need to mount explicitly
@@ -164,6 +201,100 @@ public class Localizer {
     }
   }
 
+  /**
+   * Look up existence, type and size of every uri, concurrently so the
+   * round trips to remote file systems overlap.
+   * @return one status per localization, in the same order.
+   */
+  private List<LocalizationStatus> getStatuses(
+      List<Localization> localizations) throws IOException {
+    int threads = Math.min(localizations.size(),
+        fsOperations.getPrefetchThreads());
+    if (threads <= 1) {
+      List<LocalizationStatus> statuses = new ArrayList<>();
+      for (Localization loc : localizations) {
+        statuses.add(getStatus(loc.getRemoteUri()));
+      }
+      return statuses;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("submarine-localizer-%d").build());
+    try {
+      List<Future<LocalizationStatus>> futures = new ArrayList<>();
+      for (Localization loc : localizations) {
+        futures.add(pool.submit(() -> getStatus(loc.getRemoteUri())));
+      }
+      List<LocalizationStatus> statuses = new ArrayList<>();
+      for (Future<LocalizationStatus> future : futures) {
+        statuses.add(future.get());
+      }
+      return statuses;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted while checking localizations");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private LocalizationStatus getStatus(String uri) throws IOException {
+    LocalizationStatus status = new LocalizationStatus(uri);
+    status.remote = remoteDirectoryManager.isRemote(uri);
+    if (status.remote) {
+      FileStatus fileStatus;
+      try {
+        fileStatus = remoteDirectoryManager.getRemoteFileStatus(new Path(uri));
+      } catch (FileNotFoundException e) {
+        return status;
+      }
+      status.exists = true;
+      status.dir = fileStatus.isDirectory();
+      // Stops early on object stores once the size is over the limit,
+      // the check fails then and the partial size isn't used otherwise
+      status.size = remoteDirectoryManager.getRemoteFileSize(uri,
+          fsOperations.getMaxFileSizeBytes());
+      status.suffix = FileSystemOperations.getVersionSuffix(
+          fileStatus.getModificationTime(), status.size);
+    } else {
+      File localFile = new File(uri);
+      if (!localFile.exists()) {
+        return status;
+      }
+      status.exists = true;
+      status.dir = localFile.isDirectory();
+      status.size = LocalDiskUsage.getDU(localFile,
+          fsOperations.getMaxFileSizeBytes());
+      status.suffix = FileSystemOperations.getVersionSuffix(
+          localFile.lastModified(), localFile.length());
+    }
+    return status;
+  }
+
+  /**
+   * What is known about the uri of a localization before anything is
+   * copied.
+   */
+  private static class LocalizationStatus {
+    private final String uri;
+    private boolean remote;
+    private boolean exists;
+    private boolean dir;
+    private long size;
+    private String suffix;
+
+    LocalizationStatus(String uri) {
+      this.uri = uri;
+    }
+  }
+
   private String getLastNameFromPath(String srcFileStr) {
     return new Path(srcFileStr).getName();
   }
@@ -20,15 +20,24 @@ import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
  * Utilities for zipping directories and adding existing directories to zips.
+ *
+ * Deterministic zips of the same content are identical: entries are added
+ * in order of their names with a fixed time, so they are found again in
+ * the shared cache of uploads.
  */
 public final class ZipUtilities {
   private ZipUtilities() {
@@ -38,42 +47,74 @@ public final class ZipUtilities {
 
   private static final Logger LOG = LoggerFactory.getLogger(ZipUtilities.class);
 
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  // 1980-01-01, the earliest time zip entries can hold
+  private static final long ENTRY_TIME =
+      new GregorianCalendar(1980, Calendar.JANUARY, 1).getTimeInMillis();
+
   @VisibleForTesting
   public static String zipDir(String srcDir, String dstFile)
       throws IOException {
-    FileOutputStream fos = new FileOutputStream(dstFile);
-    ZipOutputStream zos = new ZipOutputStream(fos);
-    File srcFile = new File(srcDir);
-    LOG.info("Compressing directory {}", srcDir);
-    addDirToZip(zos, srcFile, srcFile);
-    // close the ZipOutputStream
-    zos.close();
+    return zipDir(srcDir, dstFile, false);
+  }
+
+  /**
+   * @param deterministic whether to write the same zip for the same
+   *                      content, for uploads to the shared cache.
+   */
+  public static String zipDir(String srcDir, String dstFile,
+      boolean deterministic) throws IOException {
+    try (OutputStream out = new FileOutputStream(dstFile)) {
+      zipDir(srcDir, out, deterministic);
+    }
     LOG.info("Compressed directory {} to file: {}", srcDir, dstFile);
     return dstFile;
   }
 
-  private static void addDirToZip(ZipOutputStream zos, File srcFile, File base)
-      throws IOException {
+  /**
+   * Zip a directory into the given stream, e.g. of a file on a remote file
+   * system, so no zip file is written to local disk. The stream is not
+   * closed.
+   */
+  public static void zipDir(String srcDir, OutputStream out,
+      boolean deterministic) throws IOException {
+    ZipOutputStream zos = new ZipOutputStream(
+        new BufferedOutputStream(out, BUFFER_SIZE));
+    File srcFile = new File(srcDir);
+    LOG.info("Compressing directory {}", srcDir);
+    addDirToZip(zos, srcFile, srcFile, new byte[BUFFER_SIZE], deterministic);
+    zos.finish();
+    zos.flush();
+  }
+
+  private static void addDirToZip(ZipOutputStream zos, File srcFile, File base,
+      byte[] buffer, boolean deterministic) throws IOException {
     File[] files = srcFile.listFiles();
     if (files == null) {
       return;
     }
+    if (deterministic) {
+      Arrays.sort(files);
+    }
     for (File file : files) {
       // if it's directory, add recursively
       if (file.isDirectory()) {
-        addDirToZip(zos, file, base);
+        addDirToZip(zos, file, base, buffer, deterministic);
         continue;
       }
-      byte[] buffer = new byte[1024];
       try (FileInputStream fis = new FileInputStream(file)) {
         String name = base.toURI().relativize(file.toURI()).getPath();
         LOG.info("Adding file {} to zip", name);
-        zos.putNextEntry(new ZipEntry(name));
+        ZipEntry entry = new ZipEntry(name);
+        if (deterministic) {
+          entry.setTime(ENTRY_TIME);
+        }
+        zos.putNextEntry(entry);
         int length;
         while ((length = fis.read(buffer)) > 0) {
           zos.write(buffer, 0, length);
         }
-        zos.flush();
       } finally {
         zos.closeEntry();
       }
@@ -20,21 +20,26 @@ package org.apache.submarine.client.cli.yarnservice;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.service.api.records.Component;
+import org.apache.hadoop.yarn.service.api.records.ConfigFile;
 import org.apache.hadoop.yarn.service.api.records.Service;
 import org.apache.submarine.client.cli.param.runjob.RunJobParameters;
 import org.apache.submarine.client.cli.param.runjob.TensorFlowRunJobParameters;
 import org.apache.submarine.client.cli.runjob.RunJobCli;
 import org.apache.submarine.common.MockClientContext;
 import org.apache.submarine.common.api.TensorFlowRole;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
 import org.apache.submarine.common.conf.SubmarineLogs;
+import org.apache.submarine.common.fs.LocalRemoteDirectoryManager;
 import org.apache.submarine.runtimes.common.JobSubmitter;
 import org.apache.submarine.runtimes.common.StorageKeyConstants;
 import org.apache.submarine.runtimes.common.SubmarineStorage;
 import org.apache.submarine.runtimes.yarnservice.ServiceSpecFileGenerator;
 import org.apache.submarine.runtimes.yarnservice.ServiceWrapper;
+import org.apache.submarine.runtimes.yarnservice.TestFileSystemOperations;
 import org.apache.submarine.runtimes.yarnservice.YarnServiceJobSubmitter;
 import org.apache.submarine.runtimes.yarnservice.tensorflow.component.TensorBoardComponent;
 import org.apache.submarine.utils.ZipUtilities;
@@ -270,6 +275,63 @@ public class TestYarnServiceRunJobCli {
     commonTestSingleNodeTraining(serviceSpec);
   }
 
+  @Test
+  public void testRunJobWithLocalRemoteDirectoryManager() throws Exception {
+    MockClientContext mockClientContext =
+        YarnServiceCliTestUtils.getMockClientContext();
+    File root = new File("target/_local_rdm_" + System.nanoTime());
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    conf.set(SubmarineConfiguration.LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT,
+        root.getAbsolutePath());
+    mockClientContext.setSubmarineConfig(conf);
+    // The default file system of YARN is another one
+    mockClientContext.setConfiguration(
+        TestFileSystemOperations.getOtherYarnConfig());
+    mockClientContext.setRemoteDirectoryMgr(
+        new LocalRemoteDirectoryManager(mockClientContext));
+    File localFile = new File("target/_local_rdm_src_" + System.nanoTime(),
+        "data.txt");
+    assertTrue(localFile.getParentFile().mkdirs());
+    Files.write(localFile.toPath(), "data".getBytes("UTF-8"));
+    RunJobCli runJobCli = new RunJobCli(mockClientContext);
+
+    String[] params = ParamBuilderForTest.create()
+        .withFramework("tensorflow")
+        .withJobName(testName.getMethodName())
+        .withDockerImage(TestYarnServiceRunJobCliCommons.DEFAULT_DOCKER_IMAGE)
+        .withInputPath(TestYarnServiceRunJobCliCommons.DEFAULT_INPUT_PATH)
+        .withCheckpointPath(TestYarnServiceRunJobCliCommons.DEFAULT_CHECKPOINT_PATH)
+        .withNumberOfWorkers(1)
+        .withWorkerLaunchCommand(TestYarnServiceRunJobCliCommons.DEFAULT_WORKER_LAUNCH_CMD)
+        .withWorkerResources(TestYarnServiceRunJobCliCommons.DEFAULT_WORKER_RESOURCES)
+        .withLocalization(localFile.getAbsolutePath(), ".")
+        .build();
+    runJobCli.run(params);
+
+    Service serviceSpec = testCommons.getServiceSpecFromJobSubmitter(
+        runJobCli.getJobSubmitter());
+    assertEquals(1, serviceSpec.getComponents().size());
+    assertEquals(1, serviceSpec.getConfiguration().getFiles().size());
+    assertFalse(serviceSpec.getComponents().get(0).getConfiguration()
+        .getFiles().isEmpty());
+    // Launch scripts and localizations are uploaded into the root
+    for (Component component : serviceSpec.getComponents()) {
+      for (ConfigFile file : component.getConfiguration().getFiles()) {
+        assertFileUnderRoot(root, file);
+      }
+    }
+    for (ConfigFile file : serviceSpec.getConfiguration().getFiles()) {
+      assertFileUnderRoot(root, file);
+    }
+  }
+
+  private void assertFileUnderRoot(File root, ConfigFile file) {
+    File uploaded = new File(new Path(file.getSrcFile()).toUri().getPath());
+    assertTrue(uploaded.getAbsolutePath(),
+        uploaded.getAbsolutePath().startsWith(root.getAbsolutePath()));
+    assertTrue(uploaded.getAbsolutePath(), uploaded.exists());
+  }
+
   @Test
   public void testTensorboardOnlyService() throws Exception {
     MockClientContext mockClientContext =
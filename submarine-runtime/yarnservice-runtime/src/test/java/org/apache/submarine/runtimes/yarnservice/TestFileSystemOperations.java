@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.submarine.runtimes.yarnservice;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.yarn.service.api.records.Component;
+import org.apache.hadoop.yarn.service.api.records.ConfigFile;
+import org.apache.hadoop.yarn.service.api.records.Configuration;
+import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.fs.LocalRemoteDirectoryManager;
+import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.apache.submarine.utils.ZipUtilities;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Class to test the {@link FileSystemOperations}.
+ */
+public class TestFileSystemOperations {
+  /**
+   * Local file system under another scheme, standing for a default file
+   * system of YARN which isn't the one of the remote directory manager.
+   */
+  public static class OtherFileSystem extends RawLocalFileSystem {
+    @Override
+    public URI getUri() {
+      return URI.create("otherfs:///");
+    }
+
+    @Override
+    public String getScheme() {
+      return "otherfs";
+    }
+  }
+
+  /**
+   * @return YARN config whose default file system is an
+   *         {@link OtherFileSystem}.
+   */
+  public static org.apache.hadoop.conf.Configuration getOtherYarnConfig() {
+    org.apache.hadoop.conf.Configuration yarnConfig =
+        new org.apache.hadoop.conf.Configuration();
+    yarnConfig.set("fs.defaultFS", "otherfs:///");
+    yarnConfig.set("fs.otherfs.impl", OtherFileSystem.class.getName());
+    yarnConfig.setBoolean("fs.otherfs.impl.disable.cache", true);
+    return yarnConfig;
+  }
+
+
+  @Test
+  public void testStreamToRemoteFile() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    conf.setBoolean(SubmarineConfiguration.LOCALIZATION_STREAMING_ENABLED,
+        true);
+    conf.setInt(SubmarineConfiguration.LOCALIZATION_STREAMING_BUFFER_SIZE_KB,
+        1);
+    clientContext.setSubmarineConfig(conf);
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    assertTrue(fsOperations.isStreamingEnabled());
+
+    File src = new File("target/_stream_src_" + System.nanoTime(),
+        "model.bin");
+    assertTrue(src.getParentFile().mkdirs());
+    byte[] content = new byte[10000];
+    new Random(0).nextBytes(content);
+    Files.write(src.toPath(), content);
+
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("streamJob", true);
+    Path uploaded = fsOperations.streamToRemoteFile(stagingDir,
+        src.getAbsolutePath());
+
+    assertEquals(new Path(stagingDir, "model.bin"), uploaded);
+    assertArrayEquals(content,
+        Files.readAllBytes(new File(uploaded.toUri().getPath()).toPath()));
+  }
+
+  @Test
+  public void testZipToRemoteFile() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    File root = new File("target/_zip_stream_" + System.nanoTime());
+    File dir = new File(root, "mydir");
+    assertTrue(new File(dir, "sub").mkdirs());
+    Files.write(new File(dir, "1.py").toPath(), "1".getBytes("UTF-8"));
+    Files.write(new File(dir, "sub/2.py").toPath(), "2".getBytes("UTF-8"));
+
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("zipJob", true);
+    Path uploaded = fsOperations.zipToRemoteFile(stagingDir,
+        dir.getAbsolutePath(), "mydir", "_1-2");
+
+    assertEquals(new Path(stagingDir, "mydir_1-2.zip"), uploaded);
+    assertFalse(new File(System.getProperty("java.io.tmpdir"),
+        "mydir_1-2.zip").exists());
+    // Same entries as the zip written to local disk
+    String localZip = ZipUtilities.zipDir(dir.getAbsolutePath(),
+        new File(root, "mydir.zip").getAbsolutePath());
+    assertEquals(readZip(new File(localZip)),
+        readZip(new File(uploaded.toUri().getPath())));
+  }
+
+  private static Map<String, String> readZip(File zip) throws IOException {
+    Map<String, String> entries = new HashMap<>();
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        entries.put(entry.getName(), IOUtils.toString(
+            zipFile.getInputStream(entry), StandardCharsets.UTF_8));
+      }
+    }
+    return entries;
+  }
+
+  @Test
+  public void testStreamingDisabledByDefault() {
+    assertFalse(new FileSystemOperations(new MockClientContext())
+        .isStreamingEnabled());
+  }
+
+  @Test
+  public void testSharedCache() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    conf.setBoolean(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_ENABLED,
+        true);
+    File root = new File("target/_shared_cache_" + System.nanoTime());
+    conf.set(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        new File(root, "cache").getAbsolutePath());
+    clientContext.setSubmarineConfig(conf);
+
+    File first = new File(root, "a/core-site.xml");
+    File same = new File(root, "b/core-site.xml");
+    File other = new File(root, "c/core-site.xml");
+    for (File f : new File[] {first, same, other}) {
+      assertTrue(f.getParentFile().mkdirs());
+    }
+    Files.write(first.toPath(), "<configuration/>".getBytes("UTF-8"));
+    Files.write(same.toPath(), "<configuration/>".getBytes("UTF-8"));
+    Files.write(other.toPath(), "<configuration></configuration>"
+        .getBytes("UTF-8"));
+
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("cacheJob", true);
+    // Separate submissions
+    Path uploaded1 = new FileSystemOperations(clientContext)
+        .uploadToRemoteFile(stagingDir, first.getAbsolutePath());
+    Path uploaded2 = new FileSystemOperations(clientContext)
+        .uploadToRemoteFile(stagingDir, same.getAbsolutePath());
+    Path uploaded3 = new FileSystemOperations(clientContext)
+        .uploadToRemoteFile(stagingDir, other.getAbsolutePath());
+
+    assertEquals(uploaded1, uploaded2);
+    assertFalse(uploaded1.equals(uploaded3));
+    assertEquals("core-site.xml", uploaded1.getName());
+    assertTrue(uploaded1.toUri().getPath().startsWith(
+        new File(root, "cache").getAbsolutePath()));
+
+    // Not shareable files still go to the staging dir
+    Path keytab = new FileSystemOperations(clientContext)
+        .uploadToRemoteFile(stagingDir, first.getAbsolutePath(), false);
+    assertEquals(new Path(stagingDir, "core-site.xml"), keytab);
+  }
+
+  @Test
+  public void testSharedZipsAreUploadedOnce() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    conf.setBoolean(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_ENABLED,
+        true);
+    File root = new File("target/_shared_zip_" + System.nanoTime());
+    conf.set(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        new File(root, "cache").getAbsolutePath());
+    clientContext.setSubmarineConfig(conf);
+
+    // Same content, written in another order at another time
+    File dir1 = new File(root, "a/corpus");
+    File dir2 = new File(root, "b/corpus");
+    assertTrue(dir1.mkdirs());
+    assertTrue(dir2.mkdirs());
+    Files.write(new File(dir1, "1.txt").toPath(), "1".getBytes("UTF-8"));
+    Files.write(new File(dir1, "2.txt").toPath(), "2".getBytes("UTF-8"));
+    Files.write(new File(dir2, "2.txt").toPath(), "2".getBytes("UTF-8"));
+    Files.write(new File(dir2, "1.txt").toPath(), "1".getBytes("UTF-8"));
+    assertTrue(new File(dir2, "1.txt").setLastModified(100000L));
+    String zip1 = ZipUtilities.zipDir(dir1.getAbsolutePath(),
+        new File(root, "a/corpus.zip").getAbsolutePath(), true);
+    String zip2 = ZipUtilities.zipDir(dir2.getAbsolutePath(),
+        new File(root, "b/corpus.zip").getAbsolutePath(), true);
+
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("zipJob", true);
+    Path uploaded1 = new FileSystemOperations(clientContext)
+        .uploadToSharedCache(stagingDir, zip1);
+    Path uploaded2 = new FileSystemOperations(clientContext)
+        .uploadToSharedCache(stagingDir, zip2);
+
+    assertEquals(uploaded1, uploaded2);
+    assertEquals("corpus.zip", uploaded1.getName());
+    assertTrue(uploaded1.toUri().getPath().startsWith(
+        new File(root, "cache").getAbsolutePath()));
+  }
+
+  @Test
+  public void testSharedCacheIsNotUsedWhenDisabled() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    File root = new File("target/_shared_disabled_" + System.nanoTime());
+    conf.set(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        new File(root, "cache").getAbsolutePath());
+    clientContext.setSubmarineConfig(conf);
+    File file = new File(root, "corpus.txt");
+    assertTrue(root.mkdirs());
+    Files.write(file.toPath(), "corpus".getBytes("UTF-8"));
+
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("disabledJob", true);
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    assertFalse(fsOperations.isSharedCacheEnabled());
+    Path uploaded =
+        fsOperations.uploadToSharedCache(stagingDir, file.getAbsolutePath());
+
+    assertEquals("corpus.txt", uploaded.getName());
+    assertEquals(stagingDir.toUri().getPath(),
+        uploaded.getParent().toUri().getPath());
+    assertFalse(new File(root, "cache").exists());
+  }
+
+  @Test
+  public void testSharedCacheDirOfOtherOwnerIsNotUsed() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    conf.setBoolean(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_ENABLED,
+        true);
+    File root = new File("target/_shared_cache_owner_" + System.nanoTime());
+    Path cacheDir = new Path(new File(root, "cache").getAbsolutePath());
+    conf.set(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        cacheDir.toString());
+    clientContext.setSubmarineConfig(conf);
+    File file = new File(root, "core-site.xml");
+    assertTrue(root.mkdirs());
+    Files.write(file.toPath(), "<configuration/>".getBytes("UTF-8"));
+
+    // Someone else created the dir of the current user first
+    RemoteDirectoryManager spyRdm =
+        spy(clientContext.getRemoteDirectoryManager());
+    clientContext.setRemoteDirectoryMgr(spyRdm);
+    FileSystem spyFs = spy(spyRdm.getDefaultFileSystem());
+    doReturn(spyFs).when(spyRdm).getDefaultFileSystem();
+    Path userDir = new Path(cacheDir,
+        UserGroupInformation.getCurrentUser().getShortUserName());
+    assertTrue(spyFs.mkdirs(userDir));
+    FileStatus status = spyFs.getFileStatus(userDir);
+    doReturn(new FileStatus(status.getLen(), true, 1, 0,
+        status.getModificationTime(), 0, status.getPermission(), "intruder",
+        status.getGroup(), status.getPath())).when(spyFs)
+        .getFileStatus(userDir);
+
+    Path stagingDir = spyRdm.getJobStagingArea("ownerJob", true);
+    assertEquals(new Path(stagingDir, "core-site.xml"),
+        new FileSystemOperations(clientContext)
+            .uploadToRemoteFile(stagingDir, file.getAbsolutePath()));
+    assertEquals(new Path(stagingDir, "core-site.xml"),
+        new FileSystemOperations(clientContext)
+            .uploadToSharedCache(stagingDir, file.getAbsolutePath()));
+  }
+
+  @Test
+  public void testFailedUploadIsAwaited() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    RemoteDirectoryManager spyRdm =
+        spy(clientContext.getRemoteDirectoryManager());
+    clientContext.setRemoteDirectoryMgr(spyRdm);
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    File root = new File("target/_failed_upload_" + System.nanoTime());
+    assertTrue(root.mkdirs());
+    File file = new File(root, "data.txt");
+    Files.write(file.toPath(), "data".getBytes("UTF-8"));
+    Path stagingDir = spyRdm.getJobStagingArea("failedJob", true);
+
+    doThrow(new IOException("upload failed")).when(spyRdm)
+        .copyLocalToRemote(any(File.class), any(Path.class));
+    fsOperations.uploadToRemoteFileAsync(stagingDir, file.getAbsolutePath());
+    try {
+      fsOperations.awaitUploads();
+      fail("Failed upload should be reported");
+    } catch (IOException e) {
+      assertEquals("upload failed", e.getMessage());
+    }
+
+    // Tried again once the failure was reported
+    doCallRealMethod().when(spyRdm)
+        .copyLocalToRemote(any(File.class), any(Path.class));
+    assertEquals(new Path(stagingDir, "data.txt"),
+        fsOperations.uploadToRemoteFile(stagingDir, file.getAbsolutePath()));
+    fsOperations.awaitUploads();
+  }
+
+  @Test
+  public void testFailedUploadOfTempFileIsReportedOnce() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    RemoteDirectoryManager spyRdm =
+        spy(clientContext.getRemoteDirectoryManager());
+    clientContext.setRemoteDirectoryMgr(spyRdm);
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    File root = new File("target/_failed_temp_upload_" + System.nanoTime());
+    assertTrue(root.mkdirs());
+    File file = new File(root, "data.zip");
+    Files.write(file.toPath(), "data".getBytes("UTF-8"));
+    Path stagingDir = spyRdm.getJobStagingArea("failedTempJob", true);
+
+    doThrow(new IOException("upload failed")).when(spyRdm)
+        .copyLocalToRemote(any(File.class), any(Path.class));
+    fsOperations.uploadToRemoteFileAsync(stagingDir, file.getAbsolutePath(),
+        new ConfigFile(), false, true);
+    try {
+      fsOperations.awaitUploads();
+      fail("Failed upload should be reported");
+    } catch (IOException e) {
+      assertEquals("upload failed", e.getMessage());
+    }
+    assertFalse(file.exists());
+    // Not kept once reported
+    fsOperations.awaitUploads();
+  }
+
+  @Test
+  public void testLocalRemoteDirectoryManager() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    File root = new File("target/_local_rdm_" + System.nanoTime());
+    SubmarineConfiguration conf = new SubmarineConfiguration();
+    conf.set(SubmarineConfiguration.LOCAL_REMOTE_DIRECTORY_MANAGER_ROOT,
+        root.getAbsolutePath());
+    clientContext.setSubmarineConfig(conf);
+    clientContext.setConfiguration(getOtherYarnConfig());
+    clientContext.setRemoteDirectoryMgr(
+        new LocalRemoteDirectoryManager(clientContext));
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    File local = new File("target/_local_rdm_src_" + System.nanoTime());
+    assertTrue(local.mkdirs());
+    File script = new File(local, "script.sh");
+    Files.write(script.toPath(), "echo".getBytes("UTF-8"));
+    File keytab = new File(local, "user.keytab");
+    Files.write(keytab.toPath(), "secret".getBytes("UTF-8"));
+
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("localJob", true);
+    Component comp = new Component().configuration(new Configuration());
+    fsOperations.uploadToRemoteFileAndLocalizeToContainerWorkDir(
+        stagingDir, script.getAbsolutePath(), "run.sh", comp, false);
+    Path uploadedKeytab = fsOperations.uploadToRemoteFile(stagingDir,
+        keytab.getAbsolutePath(), false);
+    fsOperations.setPermission(uploadedKeytab,
+        new FsPermission((short) 0400));
+    fsOperations.awaitUploads();
+
+    File uploadedScript = new File(new Path(comp.getConfiguration()
+        .getFiles().get(0).getSrcFile()).toUri().getPath());
+    assertTrue(uploadedScript.getAbsolutePath(), uploadedScript
+        .getAbsolutePath().startsWith(root.getAbsolutePath()));
+    assertEquals("echo",
+        new String(Files.readAllBytes(uploadedScript.toPath()), "UTF-8"));
+    File keytabFile = new File(uploadedKeytab.toUri().getPath());
+    assertTrue(keytabFile.getAbsolutePath()
+        .startsWith(root.getAbsolutePath()));
+    assertEquals("r--------", PosixFilePermissions.toString(
+        Files.getPosixFilePermissions(keytabFile.toPath())));
+  }
+
+  @Test
+  public void testUploadsAreAwaited() throws IOException {
+    MockClientContext clientContext = new MockClientContext();
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    File root = new File("target/_uploads_" + System.nanoTime());
+    assertTrue(root.mkdirs());
+    Path stagingDir = clientContext.getRemoteDirectoryManager()
+        .getJobStagingArea("uploadJob", true);
+
+    Component comp = new Component().configuration(new Configuration());
+    for (int i = 0; i < 10; i++) {
+      File script = new File(root, "script-" + i + ".sh");
+      Files.write(script.toPath(), ("echo " + i).getBytes("UTF-8"));
+      fsOperations.uploadToRemoteFileAndLocalizeToContainerWorkDir(
+          stagingDir, script.getAbsolutePath(), "run-" + i + ".sh", comp);
+    }
+    fsOperations.awaitUploads();
+
+    List<ConfigFile> files = comp.getConfiguration().getFiles();
+    assertEquals(10, files.size());
+    for (int i = 0; i < 10; i++) {
+      ConfigFile file = files.get(i);
+      assertEquals("run-" + i + ".sh", file.getDestFile());
+      assertEquals("echo " + i, new String(Files.readAllBytes(
+          new File(new Path(file.getSrcFile()).toUri().getPath()).toPath()),
+          "UTF-8"));
+    }
+  }
+}
@@ -121,7 +121,7 @@ public class TestTensorBoardComponent {
     verify(testCommons.fsOperations)
         .uploadToRemoteFileAndLocalizeToContainerWorkDir(
         any(Path.class), eq("mockScript"), eq("run-TENSORBOARD.sh"),
-        eq(component));
+        eq(component), eq(false));
   }
 
 }
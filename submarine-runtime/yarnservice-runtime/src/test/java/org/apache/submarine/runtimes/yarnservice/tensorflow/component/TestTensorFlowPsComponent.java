@@ -79,7 +79,7 @@ public class TestTensorFlowPsComponent {
     verify(testCommons.fsOperations)
         .uploadToRemoteFileAndLocalizeToContainerWorkDir(
         any(Path.class), eq("mockScript"), eq(expectedScriptName),
-        eq(component));
+        eq(component), eq(false));
   }
 
   @Test
@@ -102,7 +102,7 @@ public class TestTensorFlowWorkerComponent {
     verify(testCommons.fsOperations)
         .uploadToRemoteFileAndLocalizeToContainerWorkDir(
         any(Path.class), eq("mockScript"), eq(expectedScriptName),
-        eq(component));
+        eq(component), eq(false));
   }
 
   @Test
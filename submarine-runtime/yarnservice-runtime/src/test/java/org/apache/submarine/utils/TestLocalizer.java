@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.submarine.utils;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.service.api.records.ConfigFile;
+import org.apache.hadoop.yarn.service.api.records.Service;
+import org.apache.submarine.client.cli.param.Localization;
+import org.apache.submarine.client.cli.param.runjob.RunJobParameters;
+import org.apache.submarine.client.cli.param.runjob.TensorFlowRunJobParameters;
+import org.apache.submarine.common.MockClientContext;
+import org.apache.submarine.common.conf.SubmarineConfiguration;
+import org.apache.submarine.common.fs.RemoteDirectoryManager;
+import org.apache.submarine.runtimes.yarnservice.FileSystemOperations;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * This class is to test {@link Localizer}.
+ */
+public class TestLocalizer {
+  private static final String JOB_NAME = "localizerJob";
+
+  private MockClientContext clientContext;
+  private SubmarineConfiguration conf;
+  private RemoteDirectoryManager spyRdm;
+  private Path stagingDir;
+  private File root;
+
+  @Before
+  public void before() throws IOException {
+    clientContext = new MockClientContext();
+    conf = new SubmarineConfiguration();
+    // Look up statuses concurrently, the order must still be kept
+    conf.setInt(SubmarineConfiguration.LOCALIZATION_PREFETCH_THREADS, 4);
+    clientContext.setSubmarineConfig(conf);
+    spyRdm = spy(clientContext.getRemoteDirectoryManager());
+    clientContext.setRemoteDirectoryMgr(spyRdm);
+    // Remote uris of the mock are files in the staging area
+    stagingDir = spyRdm.getJobStagingArea(JOB_NAME, true);
+    root = new File("target/_localizer_" + System.nanoTime());
+    assertTrue(root.mkdirs());
+  }
+
+  private File createRemoteFile(String name) throws IOException {
+    File file = new File(stagingDir.toUri().getPath(), name);
+    Files.write(file.toPath(), name.getBytes("UTF-8"));
+    return file;
+  }
+
+  private Service localize(String... args) throws Exception {
+    RunJobParameters parameters = new TensorFlowRunJobParameters();
+    parameters.setName(JOB_NAME);
+    for (String arg : args) {
+      Localization localization = new Localization();
+      localization.parse(arg);
+      parameters.getLocalizations().add(localization);
+    }
+    Service service = new Service();
+    FileSystemOperations fsOperations =
+        new FileSystemOperations(clientContext);
+    new Localizer(fsOperations, spyRdm, parameters)
+        .handleLocalizations(service);
+    fsOperations.awaitUploads();
+    return service;
+  }
+
+  @Test
+  public void testOneStatusLookupPerUri() throws Exception {
+    createRemoteFile("data1.txt");
+    createRemoteFile("data2.txt");
+    File local = new File(root, "local.txt");
+    Files.write(local.toPath(), "local".getBytes("UTF-8"));
+
+    Service service = localize("hdfs://nn/data1.txt:.",
+        "hdfs://nn/data2.txt:.", local.getAbsolutePath() + ":.");
+
+    assertEquals(3, service.getConfiguration().getFiles().size());
+    verify(spyRdm, times(1)).getRemoteFileStatus(
+        eq(new Path("hdfs://nn/data1.txt")));
+    verify(spyRdm, times(1)).getRemoteFileStatus(
+        eq(new Path("hdfs://nn/data2.txt")));
+    verify(spyRdm, times(1)).getRemoteFileSize(
+        eq("hdfs://nn/data1.txt"), anyLong());
+    verify(spyRdm, times(1)).getRemoteFileSize(
+        eq("hdfs://nn/data2.txt"), anyLong());
+    verify(spyRdm, never()).existsRemoteFile(any(Path.class));
+  }
+
+  @Test
+  public void testFirstMissingLocalizationFails() throws Exception {
+    conf.setLong(SubmarineConfiguration.LOCALIZATION_MAX_ALLOWED_FILE_SIZE_MB,
+        1);
+    createRemoteFile("big.bin");
+    String missing = new File(root, "missing.txt").getAbsolutePath();
+    try {
+      localize(missing + ":.", "hdfs://nn/big.bin:.",
+          "hdfs://nn/missing.bin:.");
+      fail("Missing file should fail");
+    } catch (FileNotFoundException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(missing));
+    }
+    verify(spyRdm, never()).copyLocalToRemote(any(File.class),
+        any(Path.class));
+  }
+
+  @Test
+  public void testFirstOversizedLocalizationFails() throws Exception {
+    conf.setLong(SubmarineConfiguration.LOCALIZATION_MAX_ALLOWED_FILE_SIZE_MB,
+        1);
+    createRemoteFile("big.bin");
+    String missing = new File(root, "missing.txt").getAbsolutePath();
+    try {
+      localize("hdfs://nn/big.bin:.", missing + ":.");
+      fail("Oversized file should fail");
+    } catch (FileNotFoundException e) {
+      fail("Oversized file comes first: " + e.getMessage());
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith(
+          "hdfs://nn/big.bin size(Byte)"));
+    }
+    verify(spyRdm, never()).copyLocalToRemote(any(File.class),
+        any(Path.class));
+  }
+
+  @Test
+  public void testZipSuffixesAreUnchanged() throws Exception {
+    File localDir = new File(root, "localdir");
+    assertTrue(localDir.mkdirs());
+    Files.write(new File(localDir, "1.py").toPath(), "1".getBytes("UTF-8"));
+    File remoteDir = new File(stagingDir.toUri().getPath(), "remotedir");
+    assertTrue(remoteDir.mkdirs());
+    Files.write(new File(remoteDir, "2.py").toPath(), "2".getBytes("UTF-8"));
+    // Suffixes as the zip files were named before statuses were looked up
+    // once for all localizations
+    String localSuffix = FileSystemOperations.getVersionSuffix(
+        localDir.lastModified(), localDir.length());
+    String remoteSuffix = FileSystemOperations.getVersionSuffix(
+        spyRdm.getRemoteFileStatus(new Path("hdfs://nn/remotedir"))
+            .getModificationTime(),
+        spyRdm.getRemoteFileSize("hdfs://nn/remotedir"));
+
+    Service service = localize(localDir.getAbsolutePath() + ":.",
+        "hdfs://nn/remotedir:/opt/remotedir");
+
+    List<ConfigFile> files = service.getConfiguration().getFiles();
+    assertEquals(2, files.size());
+    assertEquals("localdir" + localSuffix + ".zip",
+        new Path(files.get(0).getSrcFile()).getName());
+    assertEquals("localdir", files.get(0).getDestFile());
+    assertEquals(ConfigFile.TypeEnum.ARCHIVE, files.get(0).getType());
+    assertEquals("remotedir" + remoteSuffix + ".zip",
+        new Path(files.get(1).getSrcFile()).getName());
+    assertEquals("remotedir", files.get(1).getDestFile());
+    assertEquals(ConfigFile.TypeEnum.ARCHIVE, files.get(1).getType());
+    // Zips on local disk are deleted once uploaded
+    String tmpDir = System.getProperty("java.io.tmpdir");
+    assertFalse(new File(tmpDir, "localdir" + localSuffix + ".zip").exists());
+    assertFalse(
+        new File(tmpDir, "remotedir" + remoteSuffix + ".zip").exists());
+  }
+
+  @Test
+  public void testPlainLocalizationIsNotShared() throws Exception {
+    conf.setBoolean(
+        SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_ENABLED, true);
+    conf.set(SubmarineConfiguration.LOCALIZATION_SHARED_CACHE_DIR,
+        new File(root, "shared").getAbsolutePath());
+    File local = new File(root, "local.txt");
+    Files.write(local.toPath(), "local".getBytes("UTF-8"));
+
+    Service service = localize(local.getAbsolutePath() + ":.");
+
+    List<ConfigFile> files = service.getConfiguration().getFiles();
+    assertEquals(1, files.size());
+    assertEquals(new Path(stagingDir, "local.txt"),
+        new Path(files.get(0).getSrcFile()));
+    assertFalse(new File(root, "shared").exists());
+  }
+}
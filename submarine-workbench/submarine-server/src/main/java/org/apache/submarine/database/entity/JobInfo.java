@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.submarine.database.entity;
+
+/**
+ * A row of the job table. Info keys which are looked up by value have a
+ * column of their own, the whole info is kept as JSON.
+ */
+public class JobInfo {
+
+  private String jobName;
+
+  private String applicationId;
+
+  private String inputPath;
+
+  private String checkpointPath;
+
+  private String savedModelPath;
+
+  private String info;
+
+  public String getJobName() {
+    return jobName;
+  }
+
+  public void setJobName(String jobName) {
+    this.jobName = jobName;
+  }
+
+  public String getApplicationId() {
+    return applicationId;
+  }
+
+  public void setApplicationId(String applicationId) {
+    this.applicationId = applicationId;
+  }
+
+  public String getInputPath() {
+    return inputPath;
+  }
+
+  public void setInputPath(String inputPath) {
+    this.inputPath = inputPath;
+  }
+
+  public String getCheckpointPath() {
+    return checkpointPath;
+  }
+
+  public void setCheckpointPath(String checkpointPath) {
+    this.checkpointPath = checkpointPath;
+  }
+
+  public String getSavedModelPath() {
+    return savedModelPath;
+  }
+
+  public void setSavedModelPath(String savedModelPath) {
+    this.savedModelPath = savedModelPath;
+  }
+
+  public String getInfo() {
+    return info;
+  }
+
+  public void setInfo(String info) {
+    this.info = info;
+  }
+}
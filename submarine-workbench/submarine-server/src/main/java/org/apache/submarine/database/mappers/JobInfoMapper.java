@@ -0,0 +1,36 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.submarine.database.mappers;
+
+import org.apache.submarine.database.entity.JobInfo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface JobInfoMapper {
+  /**
+   * Insert jobs or replace existing ones, with one statement.
+   */
+  int insertOrUpdate(List<JobInfo> jobInfos);
+
+  JobInfo getByName(String jobName);
+
+  List<JobInfo> selectByNames(Collection<String> jobNames);
+
+  /**
+   * @param where "column", one of the indexed columns, and "value"
+   */
+  List<String> selectNamesBy(Map<String, String> where);
+}
@@ -0,0 +1,35 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.submarine.database.mappers;
+
+import org.apache.submarine.database.entity.ModelInfo;
+
+import java.util.List;
+
+public interface ModelInfoMapper {
+  /**
+   * Insert a model version, an existing one is replaced and becomes the
+   * latest version.
+   */
+  int replace(ModelInfo modelInfo);
+
+  ModelInfo getByVersion(ModelInfo key);
+
+  /**
+   * @return versions in the order they were added
+   */
+  List<String> selectVersions(String modelName);
+
+  ModelInfo getLatest(String modelName);
+}
@@ -0,0 +1,278 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.submarine.database.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.submarine.common.ClientContext;
+import org.apache.submarine.database.MyBatisUtil;
+import org.apache.submarine.database.entity.JobInfo;
+import org.apache.submarine.database.entity.ModelInfo;
+import org.apache.submarine.database.mappers.JobInfoMapper;
+import org.apache.submarine.database.mappers.ModelInfoMapper;
+import org.apache.submarine.runtimes.common.JobIndexes;
+import org.apache.submarine.runtimes.common.StorageKeyConstants;
+import org.apache.submarine.runtimes.common.SubmarineStorage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SubmarineStorage on top of the workbench database, so that jobs
+ * submitted by the CLI and by the server share one store. Job and model
+ * infos are kept in the job and model tables (see
+ * docs/database/submarine.sql), connections come from the pool of
+ * {@link MyBatisUtil}, which is configured by submarine-site.xml.
+ *
+ * To be used by the CLI, set submarine.storage.class to this class and put
+ * the workbench server jar on the classpath.
+ */
+public class DatabaseSubmarineStorageImpl extends SubmarineStorage {
+  // Null values are kept, like the other storages do
+  private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+  private static final Type INFO_TYPE =
+      new TypeToken<Map<String, String>>() {}.getType();
+
+  // Indexed job info key -> column
+  private static final Map<String, String> INDEXED_COLUMNS = new HashMap<>();
+
+  static {
+    INDEXED_COLUMNS.put(StorageKeyConstants.APPLICATION_ID, "application_id");
+    INDEXED_COLUMNS.put(StorageKeyConstants.INPUT_PATH, "input_path");
+    INDEXED_COLUMNS.put(StorageKeyConstants.CHECKPOINT_PATH, "checkpoint_path");
+    INDEXED_COLUMNS.put(StorageKeyConstants.SAVED_MODEL_PATH, "saved_model_path");
+  }
+
+  /**
+   * The database is not configured by the client context, but by
+   * submarine-site.xml of the workbench through {@link MyBatisUtil}. The
+   * constructor exists since RuntimeFactory creates storages with the
+   * client context.
+   */
+  public DatabaseSubmarineStorageImpl(ClientContext clientContext) {
+    this();
+  }
+
+  public DatabaseSubmarineStorageImpl() {
+  }
+
+  @Override
+  public void addNewJob(String jobName, Map<String, String> jobInfo)
+      throws IOException {
+    addNewJobs(Collections.singletonMap(jobName, jobInfo));
+  }
+
+  @Override
+  public void addNewJobs(Map<String, Map<String, String>> jobInfos)
+      throws IOException {
+    if (jobInfos.isEmpty()) {
+      return;
+    }
+    List<JobInfo> rows = new ArrayList<>(jobInfos.size());
+    for (Map.Entry<String, Map<String, String>> e : jobInfos.entrySet()) {
+      Map<String, String> info = e.getValue();
+      JobInfo row = new JobInfo();
+      row.setJobName(e.getKey());
+      // Indexed columns hold normalized values, like the other storages
+      row.setApplicationId(
+          getIndexed(info, StorageKeyConstants.APPLICATION_ID));
+      row.setInputPath(getIndexed(info, StorageKeyConstants.INPUT_PATH));
+      row.setCheckpointPath(
+          getIndexed(info, StorageKeyConstants.CHECKPOINT_PATH));
+      row.setSavedModelPath(
+          getIndexed(info, StorageKeyConstants.SAVED_MODEL_PATH));
+      row.setInfo(GSON.toJson(info, INFO_TYPE));
+      rows.add(row);
+    }
+
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      sqlSession.getMapper(JobInfoMapper.class).insertOrUpdate(rows);
+      sqlSession.commit();
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to add jobs " + jobInfos.keySet(), e);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Override
+  public Map<String, String> getJobInfoByName(String jobName)
+      throws IOException {
+    JobInfo row;
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      row = sqlSession.getMapper(JobInfoMapper.class).getByName(jobName);
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to get job=" + jobName, e);
+    } finally {
+      sqlSession.close();
+    }
+    if (row == null) {
+      throw new FileNotFoundException("Failed to find job=" + jobName);
+    }
+    return GSON.fromJson(row.getInfo(), INFO_TYPE);
+  }
+
+  /**
+   * All infos are read with one query.
+   */
+  @Override
+  public Map<String, Map<String, String>> getJobInfos(
+      Collection<String> jobNames) throws IOException {
+    Map<String, Map<String, String>> jobInfos = new LinkedHashMap<>();
+    if (jobNames.isEmpty()) {
+      return jobInfos;
+    }
+    List<JobInfo> rows;
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      rows = sqlSession.getMapper(JobInfoMapper.class).selectByNames(jobNames);
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to get jobs " + jobNames, e);
+    } finally {
+      sqlSession.close();
+    }
+
+    Map<String, JobInfo> byName = new HashMap<>();
+    for (JobInfo row : rows) {
+      byName.put(row.getJobName(), row);
+    }
+    for (String jobName : jobNames) {
+      JobInfo row = byName.get(jobName);
+      if (row == null) {
+        throw new FileNotFoundException("Failed to find job=" + jobName);
+      }
+      jobInfos.put(jobName, GSON.fromJson(row.getInfo(), INFO_TYPE));
+    }
+    return jobInfos;
+  }
+
+  private static String getIndexed(Map<String, String> info, String key) {
+    return JobIndexes.normalize(key, info.get(key), null);
+  }
+
+  @Override
+  public List<String> getJobNamesByInfo(String key, String value)
+      throws IOException {
+    JobIndexes.checkIndexed(key, value);
+    Map<String, String> where = new HashMap<>();
+    where.put("column", INDEXED_COLUMNS.get(key));
+    where.put("value", JobIndexes.normalize(key, value, null));
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      return sqlSession.getMapper(JobInfoMapper.class).selectNamesBy(where);
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to get jobs by " + key + "=" + value, e);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Override
+  public void addNewModel(String modelName, String version,
+      Map<String, String> modelInfo) throws IOException {
+    ModelInfo row = getModelKey(modelName, version);
+    row.setInfo(GSON.toJson(modelInfo, INFO_TYPE));
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      sqlSession.getMapper(ModelInfoMapper.class).replace(row);
+      sqlSession.commit();
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to add model=" + modelName + " version="
+          + version, e);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Override
+  public Map<String, String> getModelInfoByName(String modelName,
+      String version) throws IOException {
+    ModelInfo row;
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      row = sqlSession.getMapper(ModelInfoMapper.class).getByVersion(
+          getModelKey(modelName, version));
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to get model=" + modelName + " version="
+          + version, e);
+    } finally {
+      sqlSession.close();
+    }
+    if (row == null) {
+      throw new IOException(
+          "Failed to find, model=" + modelName + " version=" + version);
+    }
+    return GSON.fromJson(row.getInfo(), INFO_TYPE);
+  }
+
+  @Override
+  public List<String> listModelVersions(String modelName)
+      throws IOException {
+    List<String> versions;
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      versions = sqlSession.getMapper(ModelInfoMapper.class).selectVersions(
+          modelName);
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to get versions of model=" + modelName,
+          e);
+    } finally {
+      sqlSession.close();
+    }
+    List<String> result = new ArrayList<>(versions.size());
+    for (String version : versions) {
+      result.add(version.isEmpty() ? null : version);
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, String> getLatestModelInfo(String modelName)
+      throws IOException {
+    ModelInfo row;
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      row = sqlSession.getMapper(ModelInfoMapper.class).getLatest(modelName);
+    } catch (PersistenceException e) {
+      throw new IOException("Failed to get model=" + modelName, e);
+    } finally {
+      sqlSession.close();
+    }
+    if (row == null) {
+      throw new IOException("Failed to find, model=" + modelName);
+    }
+    return GSON.fromJson(row.getInfo(), INFO_TYPE);
+  }
+
+  private ModelInfo getModelKey(String modelName, String version) {
+    ModelInfo key = new ModelInfo();
+    key.setModelName(modelName);
+    // Unique key can't tell NULLs apart
+    key.setVersion(version == null ? "" : version);
+    return key;
+  }
+}
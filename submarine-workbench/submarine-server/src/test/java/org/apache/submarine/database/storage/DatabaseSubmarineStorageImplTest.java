@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.submarine.database.storage;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.submarine.database.MyBatisUtil;
+import org.apache.submarine.runtimes.common.StorageKeyConstants;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.submarine.runtimes.common.StorageTestUtils.getMapWithNullValue;
+import static org.junit.Assert.assertEquals;
+
+public class DatabaseSubmarineStorageImplTest {
+  private final String prefix = "test-" + System.currentTimeMillis() + "-";
+
+  private DatabaseSubmarineStorageImpl storage =
+      new DatabaseSubmarineStorageImpl();
+
+  @After
+  public void removeAllRecord() throws Exception {
+    SqlSession sqlSession = MyBatisUtil.getSqlSession();
+    try {
+      Connection connection = sqlSession.getConnection();
+      for (String sql : new String[] {
+          "DELETE FROM job WHERE job_name LIKE ?",
+          "DELETE FROM model WHERE model_name LIKE ?"}) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+          statement.setString(1, prefix + "%");
+          statement.executeUpdate();
+        }
+      }
+      sqlSession.commit(true);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void addJobsTest() throws Exception {
+    Map<String, String> jobInfo = getMapWithNullValue("job1");
+    jobInfo.put(StorageKeyConstants.APPLICATION_ID, prefix + "app_1");
+    storage.addNewJob(prefix + "job1", jobInfo);
+    Map<String, Map<String, String>> jobInfos = new HashMap<>();
+    jobInfos.put(prefix + "job2", getMapWithNullValue("job2"));
+    jobInfos.put(prefix + "job3", getMapWithNullValue("job3"));
+    storage.addNewJobs(jobInfos);
+
+    assertEquals(jobInfo, storage.getJobInfoByName(prefix + "job1"));
+    Map<String, Map<String, String>> read = storage.getJobInfos(
+        Arrays.asList(prefix + "job3", prefix + "job1"));
+    assertEquals(Arrays.asList(prefix + "job3", prefix + "job1"),
+        Arrays.asList(read.keySet().toArray()));
+    assertEquals(getMapWithNullValue("job3"), read.get(prefix + "job3"));
+    assertEquals(Collections.singletonList(prefix + "job1"),
+        storage.getJobNamesByInfo(StorageKeyConstants.APPLICATION_ID,
+            prefix + "app_1"));
+
+    // Replace job1
+    storage.addNewJob(prefix + "job1", getMapWithNullValue("job1_new"));
+    assertEquals(getMapWithNullValue("job1_new"),
+        storage.getJobInfoByName(prefix + "job1"));
+    assertEquals(0, storage.getJobNamesByInfo(
+        StorageKeyConstants.APPLICATION_ID, prefix + "app_1").size());
+  }
+
+  @Test(expected = IOException.class)
+  public void getNonExistingJobTest() throws Exception {
+    storage.getJobInfoByName(prefix + "job-missing");
+  }
+
+  @Test
+  public void addModelsTest() throws Exception {
+    String model = prefix + "model1";
+    storage.addNewModel(model, "1.0", getMapWithNullValue("model1_1.0"));
+    storage.addNewModel(model, null, getMapWithNullValue("model1_default"));
+    storage.addNewModel(model, "2.0", getMapWithNullValue("model1_2.0"));
+
+    assertEquals(getMapWithNullValue("model1_default"), storage.getModelInfoByName(model, null));
+    assertEquals(Arrays.asList("1.0", null, "2.0"), storage.listModelVersions(model));
+    assertEquals(getMapWithNullValue("model1_2.0"), storage.getLatestModelInfo(model));
+
+    // Adding an existing version again makes it the latest
+    storage.addNewModel(model, "1.0", getMapWithNullValue("model1_1.0_new"));
+    assertEquals(Arrays.asList(null, "2.0", "1.0"), storage.listModelVersions(model));
+    assertEquals(getMapWithNullValue("model1_1.0_new"), storage.getLatestModelInfo(model));
+  }
+}